@@ -1,8 +1,82 @@
+import api.ServeurApi;
+import dao.ArchiveTransactions;
+import dao.ArchiveTransactions.MoisArchive;
+import dao.CommitGroupe;
+import dao.CompacteurResumes;
+import dao.SchemaManager;
+import fraude.SurveillanceAsynchrone;
+import journal.Journal;
+import registre.Registre;
 import ui.Menu;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.YearMonth;
+
 public class Main {
     public static void main(String[] args) {
+        try {
+            new SchemaManager().initialiser();
+        } catch (SQLException e) {
+            System.err.println("❌ Initialisation du schéma impossible : " + e.getMessage());
+        }
+        CompacteurResumes.demarrer();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            Registre.arreterActif();
+            Journal.fermerActif();
+            CommitGroupe.fermerActif();
+            SurveillanceAsynchrone.fermerActif();
+            CompacteurResumes.arreter();
+        }));
+
+        if (args.length > 0 && "--api".equals(args[0])) {
+            demarrerApi(args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+            return;
+        }
+
+        if (args.length > 0 && "--partitionner".equals(args[0])) {
+            partitionner();
+            return;
+        }
+
+        if (args.length > 0 && "--archiver".equals(args[0])) {
+            archiver(args.length > 1 ? Integer.parseInt(args[1]) : 12);
+            return;
+        }
+
         Menu menu = new Menu();
         menu.afficher();
     }
-}
\ No newline at end of file
+
+    private static void demarrerApi(int port) {
+        try {
+            ServeurApi serveur = new ServeurApi(port);
+            serveur.demarrer();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> serveur.arreter(1)));
+            System.out.println("✅ API démarrée sur le port " + serveur.getPort() + " (" + serveur.getDescriptionExecuteur() + ")");
+        } catch (IOException e) {
+            System.err.println("❌ Démarrage de l'API impossible : " + e.getMessage());
+        }
+    }
+
+    private static void partitionner() {
+        try {
+            long debut = System.nanoTime();
+            new SchemaManager().partitionnerTransactions();
+            System.out.println("✅ Table transaction partitionnée par mois en " + (System.nanoTime() - debut) / 1_000_000 + " ms");
+        } catch (SQLException e) {
+            System.err.println("❌ Partitionnement impossible : " + e.getMessage());
+        }
+    }
+
+    // Archive les mois antérieurs aux moisChauds derniers mois.
+    private static void archiver(int moisChauds) {
+        try {
+            for (MoisArchive archive : new ArchiveTransactions().archiver(YearMonth.now().minusMonths(moisChauds))) {
+                System.out.println("✅ " + archive.mois() + " : " + archive.nombre() + " transactions → " + archive.fichier());
+            }
+        } catch (SQLException | IOException e) {
+            System.err.println("❌ Archivage impossible : " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package analytique;
+
+import dao.ArchiveTransactions;
+import dao.ArchiveTransactions.MoisArchive;
+import dao.StatistiqueDAO.StatistiqueCompte;
+import dao.StatistiqueDAO.StatistiqueMois;
+import dao.StatistiqueDAO.StatistiqueType;
+import dao.TransactionDAO;
+import dao.TransactionDAO.InstantaneLecture;
+import entity.Transaction;
+import entity.TypeTransaction;
+import util.Montant;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Copie en colonnes primitives de la table transaction pour les agrégations : une date en
+// millisecondes, un montant en centimes, un octet de type, un int de compte et un code de lieu
+// par ligne, en blocs de 64 Ki lignes. Les noyaux parcourent les colonnes en boucles simples,
+// sans objet par ligne.
+//
+// Le rafraîchissement ne lit que les ids au-delà du dernier chargé. Un trou de séquence (ligne
+// pas encore validée au moment de la lecture) est relu tant que la transaction qui a pu le prendre
+// n'est pas terminée : son horizon est le xmax de l'instantané du rafraîchissement qui suit sa
+// découverte, et le trou n'est abandonné qu'une fois le xmin d'une lecture au-delà de cet horizon.
+// Cela suppose que l'id est tiré et la ligne écrite dans la même instruction, comme partout ici.
+// Les suppressions ne sont pas reportées. Les mois archivés, figés, sont lus une fois depuis
+// leurs fichiers au premier chargement ; un mois archivé ensuite reste en mémoire tel quel.
+public final class ColonnesTransactions {
+    private static final int BITS_BLOC = 16;
+    private static final int TAILLE_BLOC = 1 << BITS_BLOC;
+    private static final long MILLIS_PAR_JOUR = TimeUnit.DAYS.toMillis(1);
+    private static final int TROUS_MAX = 10_000;
+    private static final long HORIZON_A_FIXER = -1;
+    private static final TypeTransaction[] TYPES = TypeTransaction.values();
+    private static volatile ColonnesTransactions instance;
+
+    public record StatistiqueLieu(String lieu, long nombre, long total) {}
+
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final ArchiveTransactions archives = new ArchiveTransactions();
+    private final long delaiRafraichissementNanos;
+    private volatile long[][] dates = new long[0][];
+    private volatile long[][] montants = new long[0][];
+    private volatile byte[][] types = new byte[0][];
+    private volatile int[][] comptes = new int[0][];
+    private volatile int[][] lieux = new int[0][];
+    private volatile String[] dictionnaire = new String[0];
+    private volatile long jourMin = Long.MAX_VALUE;
+    private volatile long jourMax = Long.MIN_VALUE;
+    private volatile int taille;
+    private final Map<String, Integer> codesLieux = new HashMap<>();
+    private final Map<Integer, Long> trous = new HashMap<>();
+    private int idMax;
+    private List<MoisArchive> archivesACharger;
+    private long dernierRafraichissement;
+
+    public ColonnesTransactions(long delaiRafraichissementMillis) {
+        this.delaiRafraichissementNanos = TimeUnit.MILLISECONDS.toNanos(delaiRafraichissementMillis);
+    }
+
+    // null tant que bank.colonnes.actif n'est pas positionné : les statistiques restent calculées en SQL.
+    public static ColonnesTransactions actif() {
+        if (!Boolean.getBoolean("bank.colonnes.actif")) {
+            return null;
+        }
+        ColonnesTransactions courant = instance;
+        if (courant == null) {
+            synchronized (ColonnesTransactions.class) {
+                courant = instance;
+                if (courant == null) {
+                    courant = new ColonnesTransactions(Long.getLong("bank.colonnes.rafraichissementMs", 1_000L));
+                    instance = courant;
+                }
+            }
+        }
+        return courant;
+    }
+
+    // Rafraîchit si la dernière lecture date de plus que le délai configuré.
+    public synchronized ColonnesTransactions aJour() throws SQLException {
+        if (dernierRafraichissement == 0 || System.nanoTime() - dernierRafraichissement >= delaiRafraichissementNanos) {
+            rafraichir();
+        }
+        return this;
+    }
+
+    public synchronized long rafraichir() throws SQLException {
+        // Liste figée au premier appel ; un mois n'est ajouté qu'une fois lu en entier, une erreur
+        // de lecture reprend donc au même mois sans doublon.
+        long archivees = 0;
+        if (archivesACharger == null) {
+            archivesACharger = new ArrayList<>(archives.moisArchives());
+        }
+        while (!archivesACharger.isEmpty()) {
+            List<Transaction> lignes = new ArrayList<>((int) archivesACharger.get(0).nombre());
+            archives.lire(archivesACharger.get(0), lignes::add);
+            for (Transaction transaction : lignes) {
+                ajouter(versMillis(transaction.date()), transaction.montant(), transaction.type(),
+                        transaction.idCompte(), transaction.lieu());
+            }
+            archivesACharger.remove(0);
+            archivees += lignes.size();
+        }
+        int[] enAttente = trous.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int idMaxAvant = idMax;
+        List<int[]> nouveauxTrous = new ArrayList<>();
+
+        InstantaneLecture lecture = transactionDAO.scanSince(idMax, enAttente, (id, dateMillis, montant, type, idCompte, lieu) -> {
+            if (id <= idMaxAvant) {
+                trous.remove(id);
+            } else {
+                if (id > idMax + 1) {
+                    nouveauxTrous.add(new int[]{idMax + 1, id - 1});
+                }
+                idMax = id;
+            }
+            ajouter(dateMillis, montant, type, idCompte, lieu);
+        });
+
+        trous.entrySet().removeIf(trou -> trou.getValue() != HORIZON_A_FIXER && lecture.xmin() >= trou.getValue());
+        trous.replaceAll((id, horizon) -> horizon == HORIZON_A_FIXER ? lecture.xmax() : horizon);
+        // Seuls les TROUS_MAX derniers ids sont suivis : au premier chargement, les trous de
+        // l'historique (suppressions, archives, annulations) ne se rempliront plus.
+        long ignores = 0;
+        int borne = Math.max(idMaxAvant, idMax - TROUS_MAX);
+        for (int[] plage : nouveauxTrous) {
+            for (int id = plage[0]; id <= plage[1]; id++) {
+                if (id > borne) {
+                    trous.put(id, HORIZON_A_FIXER);
+                } else {
+                    ignores++;
+                }
+            }
+        }
+        if (ignores > 0 && idMaxAvant > 0) {
+            System.err.println("Colonnes de transactions : " + ignores + " trou(s) de séquence non suivis, "
+                    + "des lignes validées plus tard pourront manquer");
+        }
+        dernierRafraichissement = System.nanoTime();
+        return archivees + lecture.lignes();
+    }
+
+    public int taille() {
+        return taille;
+    }
+
+    public List<StatistiqueType> statistiquesParType() {
+        return statistiquesParType(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Bornes incluses, comme BETWEEN côté SQL.
+    public List<StatistiqueType> statistiquesParType(LocalDateTime debut, LocalDateTime fin) {
+        return statistiquesParType(versMillis(debut), versMillis(fin));
+    }
+
+    public List<StatistiqueMois> statistiquesParMois() {
+        int n = taille;
+        long premierJour = jourMin;
+        long dernierJour = jourMax;
+        if (n == 0) {
+            return List.of();
+        }
+
+        // Table jour -> mois construite une fois par appel : la boucle ne fait plus qu'une division et un accès.
+        LocalDate origine = LocalDate.ofEpochDay(premierJour).withDayOfMonth(1);
+        int[] moisDuJour = new int[(int) (dernierJour - premierJour + 1)];
+        for (int j = 0; j < moisDuJour.length; j++) {
+            LocalDate jour = LocalDate.ofEpochDay(premierJour + j);
+            moisDuJour[j] = (jour.getYear() - origine.getYear()) * 12 + jour.getMonthValue() - origine.getMonthValue();
+        }
+        int nombreMois = moisDuJour[moisDuJour.length - 1] + 1;
+        long[] nombres = new long[nombreMois];
+        long[] totaux = new long[nombreMois];
+
+        long[][] blocsDates = dates;
+        long[][] blocsMontants = montants;
+        for (int bloc = 0, reste = n; reste > 0; bloc++, reste -= TAILLE_BLOC) {
+            long[] d = blocsDates[bloc];
+            long[] m = blocsMontants[bloc];
+            int limite = Math.min(reste, TAILLE_BLOC);
+            for (int i = 0; i < limite; i++) {
+                int mois = moisDuJour[(int) (Math.floorDiv(d[i], MILLIS_PAR_JOUR) - premierJour)];
+                nombres[mois]++;
+                totaux[mois] = Math.addExact(totaux[mois], m[i]);
+            }
+        }
+
+        List<StatistiqueMois> statistiques = new ArrayList<>();
+        for (int mois = 0; mois < nombreMois; mois++) {
+            if (nombres[mois] > 0) {
+                LocalDate date = origine.plusMonths(mois);
+                statistiques.add(new StatistiqueMois(date.getYear(), date.getMonthValue(), nombres[mois], totaux[mois],
+                        Montant.moyenne(totaux[mois], nombres[mois])));
+            }
+        }
+        return statistiques;
+    }
+
+    public StatistiqueCompte statistiquesCompte(int idCompte) {
+        int n = taille;
+        long nombre = 0;
+        long total = 0;
+        int[][] blocsComptes = comptes;
+        long[][] blocsMontants = montants;
+        for (int bloc = 0, reste = n; reste > 0; bloc++, reste -= TAILLE_BLOC) {
+            int[] c = blocsComptes[bloc];
+            long[] m = blocsMontants[bloc];
+            int limite = Math.min(reste, TAILLE_BLOC);
+            for (int i = 0; i < limite; i++) {
+                if (c[i] == idCompte) {
+                    nombre++;
+                    total = Math.addExact(total, m[i]);
+                }
+            }
+        }
+        return new StatistiqueCompte(nombre, total, Montant.moyenne(total, nombre));
+    }
+
+    // Par volume décroissant.
+    public List<StatistiqueLieu> statistiquesParLieu() {
+        int n = taille;
+        String[] libelles = dictionnaire;
+        long[] nombres = new long[libelles.length];
+        long[] totaux = new long[libelles.length];
+        int[][] blocsLieux = lieux;
+        long[][] blocsMontants = montants;
+        for (int bloc = 0, reste = n; reste > 0; bloc++, reste -= TAILLE_BLOC) {
+            int[] l = blocsLieux[bloc];
+            long[] m = blocsMontants[bloc];
+            int limite = Math.min(reste, TAILLE_BLOC);
+            for (int i = 0; i < limite; i++) {
+                nombres[l[i]]++;
+                totaux[l[i]] = Math.addExact(totaux[l[i]], m[i]);
+            }
+        }
+
+        List<StatistiqueLieu> statistiques = new ArrayList<>();
+        for (int code = 0; code < libelles.length; code++) {
+            if (nombres[code] > 0) {
+                statistiques.add(new StatistiqueLieu(libelles[code], nombres[code], totaux[code]));
+            }
+        }
+        statistiques.sort((a, b) -> Long.compare(b.total(), a.total()));
+        return statistiques;
+    }
+
+    private List<StatistiqueType> statistiquesParType(long debutMillis, long finMillis) {
+        int n = taille;
+        long[] nombres = new long[TYPES.length];
+        long[] totaux = new long[TYPES.length];
+        long[][] blocsDates = dates;
+        long[][] blocsMontants = montants;
+        byte[][] blocsTypes = types;
+        boolean sansBornes = debutMillis == Long.MIN_VALUE && finMillis == Long.MAX_VALUE;
+        for (int bloc = 0, reste = n; reste > 0; bloc++, reste -= TAILLE_BLOC) {
+            long[] d = blocsDates[bloc];
+            long[] m = blocsMontants[bloc];
+            byte[] t = blocsTypes[bloc];
+            int limite = Math.min(reste, TAILLE_BLOC);
+            if (sansBornes) {
+                for (int i = 0; i < limite; i++) {
+                    nombres[t[i]]++;
+                    totaux[t[i]] = Math.addExact(totaux[t[i]], m[i]);
+                }
+            } else {
+                for (int i = 0; i < limite; i++) {
+                    long date = d[i];
+                    if (date >= debutMillis && date <= finMillis) {
+                        nombres[t[i]]++;
+                        totaux[t[i]] = Math.addExact(totaux[t[i]], m[i]);
+                    }
+                }
+            }
+        }
+
+        List<StatistiqueType> statistiques = new ArrayList<>();
+        for (TypeTransaction type : TYPES) {
+            long nombre = nombres[type.ordinal()];
+            if (nombre > 0) {
+                statistiques.add(new StatistiqueType(type, nombre, totaux[type.ordinal()],
+                        Montant.moyenne(totaux[type.ordinal()], nombre)));
+            }
+        }
+        return statistiques;
+    }
+
+    // Appelé sous le verrou de rafraichir ; la ligne n'est visible des lecteurs qu'à la publication de taille.
+    private void ajouter(long dateMillis, long montant, TypeTransaction type, int idCompte, String lieu) {
+        int position = taille;
+        int bloc = position >>> BITS_BLOC;
+        if (bloc == dates.length) {
+            agrandir();
+        }
+        int decalage = position & (TAILLE_BLOC - 1);
+        dates[bloc][decalage] = dateMillis;
+        montants[bloc][decalage] = montant;
+        types[bloc][decalage] = (byte) type.ordinal();
+        comptes[bloc][decalage] = idCompte;
+        lieux[bloc][decalage] = coder(lieu);
+
+        long jour = Math.floorDiv(dateMillis, MILLIS_PAR_JOUR);
+        if (jour < jourMin) {
+            jourMin = jour;
+        }
+        if (jour > jourMax) {
+            jourMax = jour;
+        }
+        taille = position + 1;
+    }
+
+    private int coder(String lieu) {
+        String cle = lieu != null ? lieu : "";
+        Integer code = codesLieux.get(cle);
+        if (code == null) {
+            code = codesLieux.size();
+            codesLieux.put(cle, code);
+            String[] nouveau = Arrays.copyOf(dictionnaire, code + 1);
+            nouveau[code] = cle;
+            dictionnaire = nouveau;
+        }
+        return code;
+    }
+
+    private void agrandir() {
+        int blocs = dates.length + 1;
+        long[][] nouvellesDates = Arrays.copyOf(dates, blocs);
+        long[][] nouveauxMontants = Arrays.copyOf(montants, blocs);
+        byte[][] nouveauxTypes = Arrays.copyOf(types, blocs);
+        int[][] nouveauxComptes = Arrays.copyOf(comptes, blocs);
+        int[][] nouveauxLieux = Arrays.copyOf(lieux, blocs);
+        nouvellesDates[blocs - 1] = new long[TAILLE_BLOC];
+        nouveauxMontants[blocs - 1] = new long[TAILLE_BLOC];
+        nouveauxTypes[blocs - 1] = new byte[TAILLE_BLOC];
+        nouveauxComptes[blocs - 1] = new int[TAILLE_BLOC];
+        nouveauxLieux[blocs - 1] = new int[TAILLE_BLOC];
+        montants = nouveauxMontants;
+        types = nouveauxTypes;
+        comptes = nouveauxComptes;
+        lieux = nouveauxLieux;
+        dates = nouvellesDates;
+    }
+
+    private static long versMillis(LocalDateTime date) {
+        return date.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,133 @@
+package api;
+
+import util.Montant;
+
+import java.nio.charset.StandardCharsets;
+
+public class JsonEcrivain {
+    private final StringBuilder tampon;
+    private boolean premierChamp = true;
+
+    public JsonEcrivain() {
+        this(256);
+    }
+
+    public JsonEcrivain(int capacite) {
+        this.tampon = new StringBuilder(capacite);
+    }
+
+    public JsonEcrivain debutObjet() {
+        separer();
+        tampon.append('{');
+        premierChamp = true;
+        return this;
+    }
+
+    public JsonEcrivain debutObjet(String nom) {
+        nom(nom);
+        tampon.append('{');
+        premierChamp = true;
+        return this;
+    }
+
+    public JsonEcrivain finObjet() {
+        tampon.append('}');
+        premierChamp = false;
+        return this;
+    }
+
+    public JsonEcrivain debutTableau(String nom) {
+        nom(nom);
+        tampon.append('[');
+        premierChamp = true;
+        return this;
+    }
+
+    public JsonEcrivain finTableau() {
+        tampon.append(']');
+        premierChamp = false;
+        return this;
+    }
+
+    public JsonEcrivain champ(String nom, String valeur) {
+        nom(nom);
+        chaine(valeur);
+        return this;
+    }
+
+    public JsonEcrivain champ(String nom, long valeur) {
+        nom(nom);
+        tampon.append(valeur);
+        return this;
+    }
+
+    public JsonEcrivain champMontant(String nom, long centimes) {
+        nom(nom);
+        Montant.ecrire(tampon, centimes);
+        return this;
+    }
+
+    public JsonEcrivain champ(String nom, double valeur) {
+        nom(nom);
+        if (Double.isFinite(valeur)) {
+            tampon.append(valeur);
+        } else {
+            tampon.append("null");
+        }
+        return this;
+    }
+
+    public JsonEcrivain champ(String nom, boolean valeur) {
+        nom(nom);
+        tampon.append(valeur);
+        return this;
+    }
+
+    public byte[] versOctets() {
+        return tampon.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return tampon.toString();
+    }
+
+    private void nom(String nom) {
+        separer();
+        chaine(nom);
+        tampon.append(':');
+    }
+
+    private void separer() {
+        if (!premierChamp) {
+            tampon.append(',');
+        }
+        premierChamp = false;
+    }
+
+    private void chaine(String valeur) {
+        if (valeur == null) {
+            tampon.append("null");
+            return;
+        }
+        tampon.append('"');
+        for (int i = 0; i < valeur.length(); i++) {
+            char c = valeur.charAt(i);
+            switch (c) {
+                case '"' -> tampon.append("\\\"");
+                case '\\' -> tampon.append("\\\\");
+                case '\n' -> tampon.append("\\n");
+                case '\r' -> tampon.append("\\r");
+                case '\t' -> tampon.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        tampon.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        tampon.append(c);
+                    }
+                }
+            }
+        }
+        tampon.append('"');
+    }
+}
@@ -0,0 +1,119 @@
+package api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class JsonLecteur {
+    private final String texte;
+    private int position;
+
+    private JsonLecteur(String texte) {
+        this.texte = texte;
+    }
+
+    // Lit un objet plat : les valeurs sont des chaînes, nombres, booléens ou null. Rien d'autre que
+    // des blancs ne doit suivre l'accolade fermante.
+    public static Map<String, String> lireObjet(String texte) {
+        JsonLecteur lecteur = new JsonLecteur(texte);
+        Map<String, String> valeurs = new HashMap<>();
+
+        lecteur.attendre('{');
+        if (lecteur.suivant() == '}') {
+            lecteur.position++;
+            lecteur.terminer();
+            return valeurs;
+        }
+        while (true) {
+            String nom = lecteur.lireChaine();
+            lecteur.attendre(':');
+            valeurs.put(nom, lecteur.lireValeur());
+
+            char c = lecteur.suivant();
+            lecteur.position++;
+            if (c == '}') {
+                lecteur.terminer();
+                return valeurs;
+            }
+            if (c != ',') {
+                throw new IllegalArgumentException("JSON invalide à la position " + (lecteur.position - 1));
+            }
+        }
+    }
+
+    private String lireValeur() {
+        char c = suivant();
+        if (c == '"') {
+            return lireChaine();
+        }
+        int debut = position;
+        while (position < texte.length() && ",}] \t\r\n".indexOf(texte.charAt(position)) < 0) {
+            position++;
+        }
+        String brut = texte.substring(debut, position);
+        if (brut.isEmpty() || c == '{' || c == '[') {
+            throw new IllegalArgumentException("Valeur JSON non supportée à la position " + debut);
+        }
+        return "null".equals(brut) ? null : brut;
+    }
+
+    private String lireChaine() {
+        attendre('"');
+        StringBuilder valeur = new StringBuilder();
+        while (position < texte.length()) {
+            char c = texte.charAt(position++);
+            if (c == '"') {
+                return valeur.toString();
+            }
+            if (c != '\\') {
+                valeur.append(c);
+                continue;
+            }
+            if (position >= texte.length()) {
+                break;
+            }
+            char echappe = texte.charAt(position++);
+            switch (echappe) {
+                case 'n' -> valeur.append('\n');
+                case 'r' -> valeur.append('\r');
+                case 't' -> valeur.append('\t');
+                case 'b' -> valeur.append('\b');
+                case 'f' -> valeur.append('\f');
+                case 'u' -> {
+                    if (position + 4 > texte.length()) {
+                        throw new IllegalArgumentException("Échappement unicode incomplet");
+                    }
+                    valeur.append((char) Integer.parseInt(texte, position, position + 4, 16));
+                    position += 4;
+                }
+                default -> valeur.append(echappe);
+            }
+        }
+        throw new IllegalArgumentException("Chaîne JSON non terminée");
+    }
+
+    private void terminer() {
+        while (position < texte.length() && Character.isWhitespace(texte.charAt(position))) {
+            position++;
+        }
+        if (position < texte.length()) {
+            throw new IllegalArgumentException("JSON invalide : contenu après l'objet à la position " + position);
+        }
+    }
+
+    private void attendre(char attendu) {
+        if (suivant() != attendu) {
+            throw new IllegalArgumentException("JSON invalide : '" + attendu + "' attendu à la position " + position);
+        }
+        position++;
+    }
+
+    private char suivant() {
+        while (position < texte.length() && Character.isWhitespace(texte.charAt(position))) {
+            position++;
+        }
+        if (position >= texte.length()) {
+            throw new IllegalArgumentException("JSON incomplet");
+        }
+        return texte.charAt(position);
+    }
+}
@@ -0,0 +1,323 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dao.CommitGroupe;
+import dao.CommitGroupe.MetriquesCommitGroupe;
+import dao.CompteDAO;
+import dao.DatabaseConnection;
+import dao.MouvementSolde;
+import dao.PoolMetrics;
+import entity.Compte;
+import entity.CompteCourant;
+import entity.CompteEpargne;
+import journal.Journal;
+import journal.Journal.MetriquesJournal;
+import service.CompteService;
+import service.RapportService;
+import service.TransactionService;
+import util.Executeurs;
+import util.Executeurs.Executeur;
+import util.LatencyHistogram;
+import util.Montant;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ServeurApi {
+    private static final String TYPE_JSON = "application/json; charset=utf-8";
+
+    private final HttpServer serveur;
+    private final Executeur executeur;
+    private final TransactionService transactionService = new TransactionService();
+    private final CompteService compteService = new CompteService();
+    private final RapportService rapportService = new RapportService();
+    private final Map<String, LatencyHistogram> latences = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> erreurs = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    private interface Traitement {
+        Reponse traiter(HttpExchange echange) throws Exception;
+    }
+
+    private record Reponse(int statut, byte[] corps) {
+        static Reponse ok(JsonEcrivain json) {
+            return new Reponse(200, json.versOctets());
+        }
+
+        static Reponse erreur(int statut, String message) {
+            return new Reponse(statut, new JsonEcrivain(64).debutObjet().champ("erreur", message).finObjet().versOctets());
+        }
+    }
+
+    public ServeurApi(int port) throws IOException {
+        this(port, Integer.getInteger("bank.api.threadsPlateforme", 200));
+    }
+
+    public ServeurApi(int port, int threadsPlateforme) throws IOException {
+        this.serveur = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.executeur = Executeurs.unThreadParTache("api", threadsPlateforme);
+        this.serveur.setExecutor(executeur.service());
+
+        route("/api/versements", "POST", "versement", echange -> {
+            Map<String, String> corps = lireCorps(echange);
+            MouvementSolde mouvement = transactionService.effectuerVersement(
+                    requis(corps, "code"), montant(corps), corps.get("lieu"));
+            return Reponse.ok(mouvement(mouvement));
+        });
+        route("/api/retraits", "POST", "retrait", echange -> {
+            Map<String, String> corps = lireCorps(echange);
+            MouvementSolde mouvement = transactionService.effectuerRetrait(
+                    requis(corps, "code"), montant(corps), corps.get("lieu"));
+            return Reponse.ok(mouvement(mouvement));
+        });
+        route("/api/virements", "POST", "virement", echange -> {
+            Map<String, String> corps = lireCorps(echange);
+            transactionService.effectuerVirement(requis(corps, "source"), requis(corps, "destination"), montant(corps));
+            return Reponse.ok(new JsonEcrivain(32).debutObjet().champ("statut", "ok").finObjet());
+        });
+        route("/api/comptes/", "GET", "compte", echange -> {
+            String code = segment(echange, "/api/comptes/");
+            Optional<Compte> compte = compteService.rechercherParCode(code);
+            if (compte.isEmpty()) {
+                return Reponse.erreur(404, "Compte introuvable");
+            }
+            return Reponse.ok(compte(compte.get()));
+        });
+        route("/api/rapports/", "GET", "rapport", this::rapport);
+        route("/api/metriques", "GET", "metriques", echange -> Reponse.ok(metriques()));
+    }
+
+    public void demarrer() {
+        serveur.start();
+    }
+
+    public void arreter(int delaiSecondes) {
+        serveur.stop(delaiSecondes);
+        executeur.service().shutdown();
+    }
+
+    public int getPort() {
+        return serveur.getAddress().getPort();
+    }
+
+    public String getDescriptionExecuteur() {
+        return executeur.description();
+    }
+
+    private Reponse rapport(HttpExchange echange) throws SQLException {
+        String nom = segment(echange, "/api/rapports/");
+        Map<String, String> parametres = lireParametres(echange.getRequestURI().getRawQuery());
+        LocalDate aujourdhui = LocalDate.now();
+
+        String rapport = switch (nom) {
+            case "complet" -> rapportService.genererRapportComplet();
+            case "mensuel" -> rapportService.genererRapportMensuel(
+                    entier(parametres, "mois", aujourdhui.getMonthValue()),
+                    entier(parametres, "annee", aujourdhui.getYear()));
+            case "top" -> rapportService.genererTopClientsParSolde(entier(parametres, "k", 5));
+            case "suspectes" -> rapportService.detecterTransactionsSuspectes(montant(parametres, "seuil", Montant.unites(10_000)));
+            case "inactifs" -> rapportService.identifierComptesInactifs(entier(parametres, "jours", 90));
+            case "soldes-bas" -> rapportService.genererAlertesSoldesBas(montant(parametres, "seuil", Montant.unites(100)));
+            default -> null;
+        };
+        if (rapport == null) {
+            return Reponse.erreur(404, "Rapport inconnu : " + nom);
+        }
+        return Reponse.ok(new JsonEcrivain(rapport.length() + 32).debutObjet()
+                .champ("rapport", nom)
+                .champ("contenu", rapport)
+                .finObjet());
+    }
+
+    private void route(String chemin, String methode, String nom, Traitement traitement) {
+        serveur.createContext(chemin, echange -> servir(echange, methode, nom, traitement));
+    }
+
+    private void servir(HttpExchange echange, String methode, String nom, Traitement traitement) throws IOException {
+        long debut = System.nanoTime();
+        Reponse reponse;
+        try {
+            if (!methode.equals(echange.getRequestMethod())) {
+                reponse = Reponse.erreur(405, "Méthode non autorisée");
+            } else {
+                reponse = traitement.traiter(echange);
+            }
+        } catch (IllegalArgumentException e) {
+            reponse = Reponse.erreur(400, e.getMessage());
+        } catch (IllegalStateException e) {
+            reponse = Reponse.erreur(409, e.getMessage());
+        } catch (SQLTimeoutException e) {
+            reponse = Reponse.erreur(503, e.getMessage());
+        } catch (Exception e) {
+            // Le détail (requête SQL, chemin, état interne) reste dans les journaux du serveur.
+            System.err.println("Erreur interne sur " + nom + " : " + e);
+            e.printStackTrace();
+            reponse = Reponse.erreur(500, "Erreur interne");
+        }
+
+        // Le corps doit être entièrement consommé et la longueur annoncée pour que la
+        // connexion reste ouverte (keep-alive) pour la requête suivante.
+        try (InputStream entree = echange.getRequestBody()) {
+            entree.transferTo(OutputStream.nullOutputStream());
+        }
+        echange.getResponseHeaders().set("Content-Type", TYPE_JSON);
+        echange.sendResponseHeaders(reponse.statut(), reponse.corps().length);
+        try (OutputStream sortie = echange.getResponseBody()) {
+            sortie.write(reponse.corps());
+        }
+
+        if (reponse.statut() >= 400) {
+            erreurs.computeIfAbsent(nom, n -> new LongAdder()).increment();
+        }
+        latences.computeIfAbsent(nom, n -> new LatencyHistogram()).enregistrer(System.nanoTime() - debut);
+    }
+
+    private JsonEcrivain metriques() throws SQLException {
+        JsonEcrivain json = new JsonEcrivain(1024).debutObjet()
+                .champ("executeur", executeur.description())
+                .debutObjet("endpoints");
+        for (Map.Entry<String, LatencyHistogram> entree : new TreeMap<>(latences).entrySet()) {
+            LatencyHistogram latence = entree.getValue();
+            LongAdder nbErreurs = erreurs.get(entree.getKey());
+            json.debutObjet(entree.getKey())
+                    .champ("requetes", latence.nombre())
+                    .champ("erreurs", nbErreurs != null ? nbErreurs.sum() : 0)
+                    .champ("moyenneMicros", latence.moyenneNanos() / 1_000)
+                    .champ("p50Micros", latence.percentileNanos(50) / 1_000)
+                    .champ("p99Micros", latence.percentileNanos(99) / 1_000)
+                    .champ("p999Micros", latence.percentileNanos(99.9) / 1_000)
+                    .champ("maxMicros", latence.maxNanos() / 1_000)
+                    .finObjet();
+        }
+        json.finObjet();
+
+        PoolMetrics pool = DatabaseConnection.getInstance().getMetrics();
+        json.debutObjet("pool")
+                .champ("actives", pool.actives())
+                .champ("libres", pool.libres())
+                .champ("enAttente", pool.enAttente())
+                .champ("tauxSuccesInstructions", pool.tauxSuccesInstructions())
+                .finObjet()
+                .champ("tauxSuccesCacheComptes", CompteDAO.getCacheMetrics().tauxSucces());
+        Journal journal = Journal.actif();
+        if (journal != null) {
+            MetriquesJournal etat = journal.metriques();
+            json.debutObjet("journal")
+                    .champ("sequenceEcrite", etat.sequenceEcrite())
+                    .champ("sequenceDurable", etat.sequenceDurable())
+                    .champ("sequenceExpediee", etat.sequenceExpediee())
+                    .champ("segments", etat.segments())
+                    .champ("synchronisations", etat.synchronisations())
+                    .champ("lotsExpedies", etat.lotsExpedies())
+                    .champ("echecsExpedition", etat.echecsExpedition())
+                    .champ("quarantaines", etat.quarantaines())
+                    .champ("defaillance", etat.defaillance())
+                    .finObjet();
+        }
+        CommitGroupe commitGroupe = CommitGroupe.actif();
+        if (commitGroupe != null) {
+            MetriquesCommitGroupe etat = commitGroupe.metriques();
+            json.debutObjet("commitGroupe")
+                    .champ("profondeur", etat.profondeur())
+                    .champ("lots", etat.lots())
+                    .champ("lignes", etat.lignes())
+                    .champ("tailleMoyenne", etat.tailleMoyenne())
+                    .champ("tailleMax", etat.tailleMax())
+                    .champ("p50CommitMicros", etat.p50CommitMicros())
+                    .champ("p99CommitMicros", etat.p99CommitMicros())
+                    .champ("p99AttenteMicros", etat.p99AttenteMicros())
+                    .champ("echecs", etat.echecs())
+                    .finObjet();
+        }
+        return json.finObjet();
+    }
+
+    private static JsonEcrivain mouvement(MouvementSolde mouvement) {
+        return new JsonEcrivain(96).debutObjet()
+                .champ("code", mouvement.code())
+                .champ("idCompte", mouvement.idCompte())
+                .champMontant("solde", mouvement.nouveauSolde())
+                .finObjet();
+    }
+
+    private static JsonEcrivain compte(Compte compte) {
+        JsonEcrivain json = new JsonEcrivain(160).debutObjet()
+                .champ("id", compte.getId())
+                .champ("code", compte.getCode())
+                .champMontant("solde", compte.getSolde())
+                .champ("idClient", compte.getIdClient());
+        if (compte instanceof CompteCourant courant) {
+            json.champ("type", "COURANT").champMontant("decouvert", courant.getDecouvert());
+        } else if (compte instanceof CompteEpargne epargne) {
+            json.champ("type", "EPARGNE").champ("tauxInteret", epargne.getTauxInteret());
+        }
+        return json.finObjet();
+    }
+
+    private static Map<String, String> lireCorps(HttpExchange echange) throws IOException {
+        byte[] corps = echange.getRequestBody().readAllBytes();
+        return JsonLecteur.lireObjet(new String(corps, StandardCharsets.UTF_8));
+    }
+
+    // Dernier segment du chemin, décodé. Lu sur le chemin brut : un %2F reste dans le segment au lieu
+    // d'ouvrir un sous-chemin, et '+' y est littéral (il ne vaut espace que dans une requête).
+    private static String segment(HttpExchange echange, String prefixe) {
+        String brut = echange.getRequestURI().getRawPath().substring(prefixe.length());
+        if (brut.isEmpty() || brut.indexOf('/') >= 0) {
+            throw new IllegalArgumentException("Chemin invalide");
+        }
+        return URLDecoder.decode(brut.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> lireParametres(String requete) {
+        Map<String, String> parametres = new HashMap<>();
+        if (requete == null || requete.isEmpty()) {
+            return parametres;
+        }
+        for (String paire : requete.split("&")) {
+            int egal = paire.indexOf('=');
+            if (egal > 0) {
+                parametres.put(URLDecoder.decode(paire.substring(0, egal), StandardCharsets.UTF_8),
+                        URLDecoder.decode(paire.substring(egal + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parametres;
+    }
+
+    private static String requis(Map<String, String> valeurs, String nom) {
+        String valeur = valeurs.get(nom);
+        if (valeur == null || valeur.isBlank()) {
+            throw new IllegalArgumentException("Champ requis : " + nom);
+        }
+        return valeur;
+    }
+
+    private static long montant(Map<String, String> valeurs) {
+        return Montant.parser(requis(valeurs, "montant"));
+    }
+
+    private static int entier(Map<String, String> valeurs, String nom, int parDefaut) {
+        String valeur = valeurs.get(nom);
+        try {
+            return valeur != null ? Integer.parseInt(valeur) : parDefaut;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Paramètre invalide : " + nom);
+        }
+    }
+
+    private static long montant(Map<String, String> valeurs, String nom, long parDefaut) {
+        String valeur = valeurs.get(nom);
+        return valeur != null ? Montant.parser(valeur) : parDefaut;
+    }
+}
@@ -0,0 +1,95 @@
+package benchmark;
+
+import analytique.ColonnesTransactions;
+import dao.CompteDAO;
+import dao.StatistiqueDAO;
+import dao.TransactionDAO;
+import entity.Compte;
+import entity.Transaction;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class AgregationBenchmark {
+    private static final int ITERATIONS = 3;
+
+    @FunctionalInterface
+    private interface Operation {
+        Object executer() throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long[] paliers = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToLong(Long::parseLong).toArray()
+                : new long[]{1_000_000L, 10_000_000L, 50_000_000L};
+
+        TransactionDAO transactionDAO = new TransactionDAO();
+        StatistiqueDAO statistiqueDAO = new StatistiqueDAO();
+        int[] idsComptes = new CompteDAO().findAll().stream().mapToInt(Compte::getId).toArray();
+        int compteId = idsComptes[0];
+        ColonnesTransactions colonnes = new ColonnesTransactions(0);
+
+        for (long palier : paliers) {
+            long existantes = transactionDAO.count();
+            if (existantes < palier) {
+                System.out.printf("Génération de %,d transactions...%n", palier - existantes);
+                LocalDateTime maintenant = LocalDateTime.now();
+                System.out.println(transactionDAO.copyAll(new GenerateurTransactions(
+                        palier - existantes, idsComptes, maintenant.minusYears(3), maintenant, palier)));
+            }
+
+            System.out.printf("%n=== %,d transactions ===%n", transactionDAO.count());
+            long debutChargement = System.nanoTime();
+            colonnes.rafraichir();
+            System.out.printf("Colonnes à jour en %,d ms (%,d lignes)%n",
+                    (System.nanoTime() - debutChargement) / 1_000_000, colonnes.taille());
+            System.out.printf("%-32s %15s %15s %15s%n", "Opération", "Java (ms)", "SQL (ms)", "Colonnes (ms)");
+
+            comparer("statistiques par type",
+                    () -> transactionDAO.findAll(true).stream()
+                            .collect(Collectors.groupingBy(Transaction::type,
+                                    Collectors.summingLong(Transaction::montant))),
+                    statistiqueDAO::statistiquesParType,
+                    colonnes::statistiquesParType);
+            comparer("statistiques par mois",
+                    () -> transactionDAO.findAll(true).stream()
+                            .collect(Collectors.groupingBy(t -> t.date().getYear() * 100 + t.date().getMonthValue(),
+                                    Collectors.summingLong(Transaction::montant))),
+                    statistiqueDAO::statistiquesParMois,
+                    colonnes::statistiquesParMois);
+            comparer("moyenne d'un compte",
+                    () -> transactionDAO.findByCompteId(compteId, true).stream()
+                            .mapToLong(Transaction::montant).average().orElse(0.0),
+                    () -> statistiqueDAO.statistiquesCompte(compteId).moyenne(),
+                    () -> colonnes.statistiquesCompte(compteId).moyenne());
+            comparer("total d'un compte",
+                    () -> transactionDAO.findByCompteId(compteId, true).stream()
+                            .mapToLong(Transaction::montant).sum(),
+                    () -> statistiqueDAO.statistiquesCompte(compteId).total(),
+                    () -> colonnes.statistiquesCompte(compteId).total());
+        }
+    }
+
+    private static void comparer(String nom, Operation ancienne, Operation nouvelle, Operation colonnes) {
+        System.out.printf("%-32s %15s %15s %15s%n", nom, mesurer(ancienne), mesurer(nouvelle), mesurer(colonnes));
+    }
+
+    private static String mesurer(Operation operation) {
+        long meilleur = Long.MAX_VALUE;
+        try {
+            for (int i = 0; i < ITERATIONS; i++) {
+                long debut = System.nanoTime();
+                operation.executer();
+                meilleur = Math.min(meilleur, System.nanoTime() - debut);
+            }
+        } catch (OutOfMemoryError e) {
+            return "mémoire épuisée";
+        } catch (SQLException e) {
+            return "erreur : " + e.getSQLState();
+        }
+        return String.format("%,.1f", meilleur / 1_000_000.0);
+    }
+}
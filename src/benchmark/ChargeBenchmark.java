@@ -0,0 +1,227 @@
+package benchmark;
+
+import benchmark.OperationsBanque.JeuDeDonnees;
+import util.LatencyHistogram;
+import util.Montant;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ChargeBenchmark {
+    private static final String MELANGE_PAR_DEFAUT = "consulter=50,verser=20,retirer=15,virer=10,rapport=5";
+    private static final String[] LIEUX = {"Casablanca", "Rabat", "Marrakech", "Fès", "Tanger"};
+
+    enum TypeOperation { CONSULTER, VERSER, RETIRER, VIRER, RAPPORT }
+
+    private record Compteurs(LatencyHistogram latences, LongAdder refus, LongAdder erreurs) {
+        Compteurs() {
+            this(new LatencyHistogram(), new LongAdder(), new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String cible = args.length > 0 ? args[0] : "postgres";
+        int nombreComptes = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        long nombreTransactions = args.length > 2 ? Long.parseLong(args[2]) : 100_000L;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        int dureeSecondes = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+        Map<TypeOperation, Integer> melange = lireMelange(args.length > 5 ? args[5] : MELANGE_PAR_DEFAUT);
+        int echauffementSecondes = Integer.parseInt(System.getProperty("bank.charge.echauffement", "5"));
+        double p99MaxMillis = Double.parseDouble(System.getProperty("bank.charge.p99MaxMs", "0"));
+
+        if (nombreComptes < 2) {
+            throw new IllegalArgumentException("Il faut au moins deux comptes");
+        }
+
+        OperationsBanque operations = switch (cible) {
+            case "postgres" -> new OperationsPostgres();
+            case "memoire" -> new OperationsMemoire();
+            case "registre" -> OperationsRegistre.creer();
+            default -> throw new IllegalArgumentException("Cible inconnue : " + cible + " (postgres | memoire | registre)");
+        };
+
+        System.out.printf("Semis de %,d comptes et %,d transactions (%s)...%n",
+                nombreComptes, nombreTransactions, operations.nom());
+        long debutSemis = System.nanoTime();
+        JeuDeDonnees jeu = operations.semer(nombreComptes, nombreTransactions, nombreComptes);
+        System.out.printf("Semis terminé en %,d ms%n", (System.nanoTime() - debutSemis) / 1_000_000);
+
+        int[] cumul = new int[TypeOperation.values().length];
+        int poidsTotal = 0;
+        for (TypeOperation type : TypeOperation.values()) {
+            poidsTotal += melange.getOrDefault(type, 0);
+            cumul[type.ordinal()] = poidsTotal;
+        }
+        if (poidsTotal == 0) {
+            throw new IllegalArgumentException("Le mélange d'opérations est vide");
+        }
+
+        if (echauffementSecondes > 0) {
+            System.out.printf("Échauffement pendant %d s...%n", echauffementSecondes);
+            executer(operations, jeu, threads, echauffementSecondes, cumul, new EnumMap<>(TypeOperation.class), new LongAdder());
+        }
+
+        Map<TypeOperation, Compteurs> compteurs = new EnumMap<>(TypeOperation.class);
+        for (TypeOperation type : TypeOperation.values()) {
+            compteurs.put(type, new Compteurs());
+        }
+        LongAdder fluxNet = new LongAdder();
+        long soldeAvant = operations.soldeTotal(jeu);
+        long dureeNanos = executer(operations, jeu, threads, dureeSecondes, cumul, compteurs, fluxNet);
+        long soldeApres = operations.soldeTotal(jeu);
+        double secondes = dureeNanos / 1_000_000_000.0;
+
+        System.out.println("=== Benchmark de charge ===");
+        System.out.printf("Cible : %s | Comptes : %,d | Transactions semées : %,d | Threads : %d | Durée : %.1f s%n",
+                operations.nom(), nombreComptes, nombreTransactions, threads, secondes);
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %8s %8s%n",
+                "Opération", "Nombre", "Ops/s", "p50 (ms)", "p99 (ms)", "p999 (ms)", "Refus", "Erreurs");
+
+        long total = 0;
+        long totalErreurs = 0;
+        boolean seuilDepasse = false;
+        for (Map.Entry<TypeOperation, Compteurs> entree : compteurs.entrySet()) {
+            Compteurs c = entree.getValue();
+            LatencyHistogram latences = c.latences();
+            if (latences.nombre() == 0) {
+                continue;
+            }
+            double p99 = latences.percentileNanos(99) / 1_000_000.0;
+            System.out.printf("%-10s %,10d %,10.0f %10.3f %10.3f %10.3f %,8d %,8d%n",
+                    entree.getKey().name().toLowerCase(Locale.ROOT),
+                    latences.nombre(),
+                    latences.nombre() / secondes,
+                    latences.percentileNanos(50) / 1_000_000.0,
+                    p99,
+                    latences.percentileNanos(99.9) / 1_000_000.0,
+                    c.refus().sum(),
+                    c.erreurs().sum());
+            total += latences.nombre();
+            totalErreurs += c.erreurs().sum();
+            if (p99MaxMillis > 0 && p99 > p99MaxMillis) {
+                seuilDepasse = true;
+            }
+        }
+        System.out.printf("%-10s %,10d %,10.0f%n", "total", total, total / secondes);
+
+        long soldeAttendu = Montant.additionner(soldeAvant, fluxNet.sum());
+        System.out.printf("Solde total avant : %,.2f | après : %,.2f | attendu : %,.2f%n",
+                Montant.versDecimal(soldeAvant), Montant.versDecimal(soldeApres), Montant.versDecimal(soldeAttendu));
+
+        boolean incoherent = soldeApres != soldeAttendu;
+        if (incoherent) {
+            System.out.println("❌ Incohérence : le solde total ne correspond pas aux mouvements");
+        }
+        if (seuilDepasse) {
+            System.out.printf("❌ Un p99 dépasse le seuil de %.3f ms%n", p99MaxMillis);
+        }
+        if (incoherent || seuilDepasse || totalErreurs > 0) {
+            System.exit(1);
+        }
+        System.out.println("✅ Charge terminée sans erreur ni incohérence");
+    }
+
+    private static long executer(OperationsBanque operations, JeuDeDonnees jeu, int threads, int dureeSecondes,
+                                 int[] cumul, Map<TypeOperation, Compteurs> compteurs, LongAdder fluxNet)
+            throws Exception {
+        int poidsTotal = cumul[cumul.length - 1];
+        TypeOperation[] types = TypeOperation.values();
+        ExecutorService executeur = Executors.newFixedThreadPool(threads);
+        List<Future<?>> taches = new ArrayList<>();
+        long debut = System.nanoTime();
+        long fin = debut + TimeUnit.SECONDS.toNanos(dureeSecondes);
+
+        for (int t = 0; t < threads; t++) {
+            taches.add(executeur.submit(() -> {
+                ThreadLocalRandom aleatoire = ThreadLocalRandom.current();
+                while (System.nanoTime() < fin) {
+                    int tirage = aleatoire.nextInt(poidsTotal);
+                    int indexType = 0;
+                    while (cumul[indexType] <= tirage) {
+                        indexType++;
+                    }
+                    TypeOperation type = types[indexType];
+                    Compteurs c = compteurs.get(type);
+
+                    long debutOperation = System.nanoTime();
+                    try {
+                        executer(operations, jeu, type, aleatoire, fluxNet);
+                    } catch (IllegalArgumentException e) {
+                        if (c != null) {
+                            c.refus().increment();
+                        }
+                    } catch (SQLException e) {
+                        if (c != null) {
+                            c.erreurs().increment();
+                        }
+                        System.err.println("Erreur SQL [" + e.getSQLState() + "] : " + e.getMessage());
+                    }
+                    if (c != null) {
+                        c.latences().enregistrer(System.nanoTime() - debutOperation);
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> tache : taches) {
+            tache.get();
+        }
+        long dureeNanos = System.nanoTime() - debut;
+        executeur.shutdown();
+        executeur.awaitTermination(1, TimeUnit.MINUTES);
+        return dureeNanos;
+    }
+
+    private static void executer(OperationsBanque operations, JeuDeDonnees jeu, TypeOperation type,
+                                 ThreadLocalRandom aleatoire, LongAdder fluxNet) throws SQLException {
+        int nombreComptes = jeu.nombreComptes();
+        String code = jeu.code(aleatoire.nextInt(nombreComptes));
+        long montant = Montant.unites(1 + aleatoire.nextInt(500));
+        switch (type) {
+            case CONSULTER -> operations.consulter(code);
+            case VERSER -> {
+                operations.verser(code, montant, LIEUX[aleatoire.nextInt(LIEUX.length)]);
+                fluxNet.add(montant);
+            }
+            case RETIRER -> {
+                operations.retirer(code, montant, LIEUX[aleatoire.nextInt(LIEUX.length)]);
+                fluxNet.add(-montant);
+            }
+            case VIRER -> {
+                int source = aleatoire.nextInt(nombreComptes);
+                int dest = aleatoire.nextInt(nombreComptes - 1);
+                if (dest >= source) {
+                    dest++;
+                }
+                operations.virer(jeu.code(source), jeu.code(dest), montant);
+            }
+            case RAPPORT -> operations.rapport();
+        }
+    }
+
+    private static Map<TypeOperation, Integer> lireMelange(String texte) {
+        Map<TypeOperation, Integer> melange = new EnumMap<>(TypeOperation.class);
+        for (String element : texte.split(",")) {
+            String[] parties = element.trim().split("=");
+            if (parties.length != 2) {
+                throw new IllegalArgumentException("Élément de mélange invalide : " + element);
+            }
+            int poids = Integer.parseInt(parties[1].trim());
+            if (poids < 0) {
+                throw new IllegalArgumentException("Poids négatif : " + element);
+            }
+            melange.put(TypeOperation.valueOf(parties[0].trim().toUpperCase(Locale.ROOT)), poids);
+        }
+        return melange;
+    }
+}
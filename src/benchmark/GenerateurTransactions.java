@@ -0,0 +1,64 @@
+package benchmark;
+
+import entity.Transaction;
+import entity.TypeTransaction;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+public class GenerateurTransactions implements Iterable<Transaction> {
+    private static final String[] LIEUX = {
+            "Agence Casablanca, Maroc", "Agence Rabat, Maroc", "GAB Marrakech, Maroc",
+            "GAB Tanger, Maroc", "Agence Fès, Maroc", "Paris, France", "Madrid, Espagne"
+    };
+
+    private final long nombre;
+    private final int[] idsComptes;
+    private final LocalDateTime debut;
+    private final long etendueSecondes;
+    private final long graine;
+
+    public GenerateurTransactions(long nombre, int[] idsComptes, LocalDateTime debut, LocalDateTime fin, long graine) {
+        if (idsComptes.length == 0) {
+            throw new IllegalArgumentException("Aucun compte pour générer des transactions");
+        }
+        this.nombre = nombre;
+        this.idsComptes = idsComptes;
+        this.debut = debut;
+        this.etendueSecondes = Math.max(1, Duration.between(debut, fin).getSeconds());
+        this.graine = graine;
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        SplittableRandom aleatoire = new SplittableRandom(graine);
+        TypeTransaction[] types = TypeTransaction.values();
+
+        return new Iterator<>() {
+            private long produites;
+
+            @Override
+            public boolean hasNext() {
+                return produites < nombre;
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                produites++;
+                return new Transaction(
+                        debut.plusSeconds(aleatoire.nextLong(etendueSecondes)),
+                        aleatoire.nextInt(1, 500_000),
+                        types[aleatoire.nextInt(types.length)],
+                        LIEUX[aleatoire.nextInt(LIEUX.length)],
+                        idsComptes[aleatoire.nextInt(idsComptes.length)]
+                );
+            }
+        };
+    }
+}
@@ -0,0 +1,165 @@
+package benchmark;
+
+import dao.CompteDAO;
+import dao.DatabaseConnection;
+import dao.TransactionDAO;
+import entity.Compte;
+import entity.CompteCourant;
+import entity.CompteEpargne;
+import entity.Transaction;
+import entity.TypeTransaction;
+import service.RapportService;
+import service.TransactionService;
+import util.Montant;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class MicroBenchmark {
+    private static final long ECHAUFFEMENT_NANOS = Long.getLong("bank.micro.echauffementMs", 1_000) * 1_000_000;
+    private static final long MESURE_NANOS = Long.getLong("bank.micro.dureeMs", 2_000) * 1_000_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile int puits;
+
+    @FunctionalInterface
+    private interface Cas {
+        Object executer() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int lignes = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("La mesure des allocations par thread n'est pas supportée par cette JVM");
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        System.out.println("=== Microbenchmarks (par unité : ligne, transaction ou rapport) ===");
+        System.out.printf("%-36s %12s %12s %14s%n", "Cas", "Unités", "ns/unité", "octets/unité");
+
+        TransactionService transactionService = new TransactionService();
+        RapportService rapportService = new RapportService();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT " + TransactionDAO.COLONNES + " FROM transaction ORDER BY id LIMIT " + lignes)) {
+                int n = compter(rs);
+                mesurer("mappage transaction (par nom)", n, () -> parcourir(rs, MicroBenchmark::mapperTransactionParNom));
+                mesurer("mappage transaction", n, () -> parcourir(rs, TransactionDAO::mapResultSetToTransaction));
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT " + CompteDAO.COLONNES + " FROM compte ORDER BY id LIMIT " + lignes)) {
+                int n = compter(rs);
+                mesurer("mappage compte (par nom)", n, () -> parcourir(rs, MicroBenchmark::mapperCompteParNom));
+                mesurer("mappage compte", n, () -> parcourir(rs, CompteDAO::mapResultSetToCompte));
+            }
+        }
+
+        List<Transaction> transactions = new ArrayList<>(lignes);
+        LocalDateTime maintenant = LocalDateTime.now();
+        new GenerateurTransactions(lignes, new int[]{1, 2, 3, 4, 5}, maintenant.minusYears(2), maintenant, 42)
+                .forEach(transactions::add);
+        int n = transactions.size();
+
+        mesurer("regrouper par type (groupingBy)", n, () -> transactions.stream()
+                .collect(Collectors.groupingBy(Transaction::type)));
+        mesurer("regrouper par type", n, () -> transactionService.regrouperParType(transactions.stream()));
+        mesurer("regrouper par mois (String.format)", n, () -> transactions.stream()
+                .collect(Collectors.groupingBy(t ->
+                        t.date().getYear() + "-" + String.format("%02d", t.date().getMonthValue()))));
+        mesurer("regrouper par mois", n, () -> transactionService.regrouperParMois(transactions.stream()));
+
+        LocalDate aujourdhui = LocalDate.now();
+        mesurer("rapport top 5 clients", 1, rapportService::genererTop5ClientsParSolde);
+        mesurer("rapport mensuel", 1, () ->
+                rapportService.genererRapportMensuel(aujourdhui.getMonthValue(), aujourdhui.getYear()));
+        mesurer("rapport complet", 1, rapportService::genererRapportComplet);
+    }
+
+    private static void mesurer(String nom, int unites, Cas cas) throws Exception {
+        long finEchauffement = System.nanoTime() + ECHAUFFEMENT_NANOS;
+        while (System.nanoTime() < finEchauffement) {
+            consommer(cas.executer());
+        }
+
+        long operations = 0;
+        long octetsAvant = THREADS.getCurrentThreadAllocatedBytes();
+        long debut = System.nanoTime();
+        long fin = debut + MESURE_NANOS;
+        long maintenant;
+        do {
+            consommer(cas.executer());
+            operations++;
+            maintenant = System.nanoTime();
+        } while (maintenant < fin);
+        long octets = THREADS.getCurrentThreadAllocatedBytes() - octetsAvant;
+
+        double total = (double) operations * unites;
+        System.out.printf("%-36s %,12d %,12.1f %,14.1f%n",
+                nom, operations * unites, (maintenant - debut) / total, octets / total);
+    }
+
+    private static void consommer(Object resultat) {
+        puits ^= System.identityHashCode(resultat);
+    }
+
+    @FunctionalInterface
+    private interface Mappeur<T> {
+        T mapper(ResultSet rs) throws SQLException;
+    }
+
+    private static <T> Object parcourir(ResultSet rs, Mappeur<T> mappeur) throws SQLException {
+        rs.beforeFirst();
+        Object dernier = null;
+        while (rs.next()) {
+            dernier = mappeur.mapper(rs);
+            consommer(dernier);
+        }
+        return dernier;
+    }
+
+    private static int compter(ResultSet rs) throws SQLException {
+        int n = 0;
+        while (rs.next()) {
+            n++;
+        }
+        if (n == 0) {
+            throw new IllegalStateException("Aucune ligne à mapper : la base est vide");
+        }
+        return n;
+    }
+
+    private static Transaction mapperTransactionParNom(ResultSet rs) throws SQLException {
+        return new Transaction(
+                rs.getInt("id"),
+                rs.getTimestamp("date").toLocalDateTime(),
+                Montant.depuisDecimal(rs.getBigDecimal("montant")),
+                TypeTransaction.depuisCode(rs.getString("type")),
+                rs.getString("lieu"),
+                rs.getInt("id_compte"));
+    }
+
+    private static Compte mapperCompteParNom(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        String code = rs.getString("code");
+        long solde = Montant.depuisDecimal(rs.getBigDecimal("solde"));
+        int idClient = rs.getInt("id_client");
+        if ("COURANT".equals(rs.getString("type_compte"))) {
+            return new CompteCourant(id, code, solde, idClient, Montant.depuisDecimal(rs.getBigDecimal("decouvert")));
+        }
+        return new CompteEpargne(id, code, solde, idClient, rs.getDouble("taux_interet"));
+    }
+}
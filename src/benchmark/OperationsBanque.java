@@ -0,0 +1,32 @@
+package benchmark;
+
+import java.sql.SQLException;
+
+public interface OperationsBanque {
+    record JeuDeDonnees(String prefixe, int nombreComptes) {
+        public String code(int index) {
+            String numero = Integer.toString(index);
+            StringBuilder code = new StringBuilder(prefixe.length() + 9).append(prefixe).append('-');
+            for (int i = numero.length(); i < 8; i++) {
+                code.append('0');
+            }
+            return code.append(numero).toString();
+        }
+    }
+
+    String nom();
+
+    JeuDeDonnees semer(int nombreComptes, long nombreTransactions, long graine) throws SQLException;
+
+    void consulter(String code) throws SQLException;
+
+    void verser(String code, long montant, String lieu) throws SQLException;
+
+    void retirer(String code, long montant, String lieu) throws SQLException;
+
+    void virer(String codeSource, String codeDest, long montant) throws SQLException;
+
+    void rapport() throws SQLException;
+
+    long soldeTotal(JeuDeDonnees jeu) throws SQLException;
+}
@@ -0,0 +1,116 @@
+package benchmark;
+
+import util.Montant;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Remplaçant en mémoire : mêmes règles métier (découvert, virement atomique),
+// sans base de données, pour isoler le coût applicatif et détecter les régressions.
+public class OperationsMemoire implements OperationsBanque {
+    private static final int VERROUS = 1024;
+
+    private final Object[] verrous = new Object[VERROUS];
+    private final LongAdder nombreTransactions = new LongAdder();
+    private final LongAdder totalSoldes = new LongAdder();
+    private JeuDeDonnees jeu;
+    private long[] soldes;
+
+    public OperationsMemoire() {
+        for (int i = 0; i < VERROUS; i++) {
+            verrous[i] = new Object();
+        }
+    }
+
+    @Override
+    public String nom() {
+        return "mémoire";
+    }
+
+    @Override
+    public JeuDeDonnees semer(int nombreComptes, long nombreTransactions, long graine) {
+        jeu = new JeuDeDonnees("LM", nombreComptes);
+        soldes = new long[nombreComptes];
+        java.util.Arrays.fill(soldes, OperationsPostgres.SOLDE_INITIAL);
+        totalSoldes.add(Math.multiplyExact(OperationsPostgres.SOLDE_INITIAL, nombreComptes));
+        this.nombreTransactions.add(nombreTransactions);
+        return jeu;
+    }
+
+    @Override
+    public void consulter(String code) {
+        int index = index(code);
+        synchronized (verrous[index % VERROUS]) {
+            long ignore = soldes[index];
+        }
+    }
+
+    @Override
+    public void verser(String code, long montant, String lieu) {
+        int index = index(code);
+        synchronized (verrous[index % VERROUS]) {
+            soldes[index] = Montant.additionner(soldes[index], montant);
+        }
+        totalSoldes.add(montant);
+        nombreTransactions.increment();
+    }
+
+    @Override
+    public void retirer(String code, long montant, String lieu) {
+        int index = index(code);
+        synchronized (verrous[index % VERROUS]) {
+            debiter(index, montant);
+        }
+        totalSoldes.add(-montant);
+        nombreTransactions.increment();
+    }
+
+    @Override
+    public void virer(String codeSource, String codeDest, long montant) {
+        int source = index(codeSource);
+        int dest = index(codeDest);
+        if (source == dest) {
+            throw new IllegalArgumentException("Les comptes source et destination doivent être différents");
+        }
+        Object premier = verrous[Math.min(source % VERROUS, dest % VERROUS)];
+        Object second = verrous[Math.max(source % VERROUS, dest % VERROUS)];
+        synchronized (premier) {
+            synchronized (second) {
+                debiter(source, montant);
+                soldes[dest] = Montant.additionner(soldes[dest], montant);
+            }
+        }
+        nombreTransactions.add(2);
+    }
+
+    @Override
+    public void rapport() {
+        String ignore = String.format("%d comptes | %d transactions | %s MAD",
+                jeu.nombreComptes(), nombreTransactions.sum(), Montant.texte(totalSoldes.sum()));
+    }
+
+    @Override
+    public long soldeTotal(JeuDeDonnees jeu) {
+        long total = 0;
+        for (int i = 0; i < soldes.length; i++) {
+            synchronized (verrous[i % VERROUS]) {
+                total = Montant.additionner(total, soldes[i]);
+            }
+        }
+        return total;
+    }
+
+    private void debiter(int index, long montant) {
+        if (soldes[index] - montant < -OperationsPostgres.DECOUVERT) {
+            throw new IllegalArgumentException("Opération refusée : dépassement du découvert autorisé");
+        }
+        soldes[index] = Montant.soustraire(soldes[index], montant);
+    }
+
+    private int index(String code) {
+        int index = Integer.parseInt(code, code.lastIndexOf('-') + 1, code.length(), 10);
+        if (index < 0 || index >= soldes.length) {
+            throw new IllegalArgumentException("Compte introuvable");
+        }
+        return index;
+    }
+}
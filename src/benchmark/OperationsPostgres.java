@@ -0,0 +1,120 @@
+package benchmark;
+
+import dao.CompacteurResumes;
+import dao.DatabaseConnection;
+import dao.ResultatIngestion;
+import dao.TransactionDAO;
+import service.CompteService;
+import service.RapportService;
+import service.TransactionService;
+import util.Montant;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class OperationsPostgres implements OperationsBanque {
+    static final long SOLDE_INITIAL = Montant.unites(10_000);
+    static final long DECOUVERT = Montant.unites(500);
+
+    private static final String SQL_SEMER_COMPTES = """
+            WITH c AS (
+                INSERT INTO client (nom, email)
+                SELECT ?, 'charge' || g || '@bank.ma' FROM generate_series(1, ?) g
+                RETURNING id
+            )
+            INSERT INTO compte (code, solde, id_client, type_compte, decouvert)
+            SELECT ? || '-' || lpad((row_number() OVER (ORDER BY id) - 1)::text, 8, '0'), ?, id, 'COURANT', ?
+            FROM c
+            RETURNING id
+            """;
+    private static final String SQL_SOLDE_TOTAL =
+            "SELECT COALESCE(SUM(solde), 0) FROM compte WHERE code LIKE ?";
+
+    private final TransactionService transactionService = new TransactionService();
+    private final CompteService compteService = new CompteService();
+    private final RapportService rapportService = new RapportService();
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+
+    public OperationsPostgres() {
+        CompacteurResumes.demarrer();
+    }
+
+    @Override
+    public String nom() {
+        return "PostgreSQL";
+    }
+
+    @Override
+    public JeuDeDonnees semer(int nombreComptes, long nombreTransactions, long graine) throws SQLException {
+        String prefixe = "LG" + Integer.toHexString(ThreadLocalRandom.current().nextInt(0x10000, 0x100000));
+        // Les séquences ne garantissent pas des ids contigus (cache, insertions concurrentes) :
+        // on récupère les ids réellement créés.
+        int[] idsComptes = new int[nombreComptes];
+        int nombreCrees = 0;
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_SEMER_COMPTES)) {
+            stmt.setString(1, "Charge " + prefixe);
+            stmt.setInt(2, nombreComptes);
+            stmt.setString(3, prefixe);
+            stmt.setBigDecimal(4, Montant.versDecimal(SOLDE_INITIAL));
+            stmt.setBigDecimal(5, Montant.versDecimal(DECOUVERT));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    idsComptes[nombreCrees++] = rs.getInt(1);
+                }
+            }
+        }
+        if (nombreCrees != nombreComptes) {
+            throw new IllegalStateException("Comptes semés : " + nombreCrees + " au lieu de " + nombreComptes);
+        }
+
+        if (nombreTransactions > 0) {
+            LocalDateTime maintenant = LocalDateTime.now();
+            ResultatIngestion resultat = transactionDAO.copyAll(new GenerateurTransactions(
+                    nombreTransactions, idsComptes, maintenant.minusYears(1), maintenant, graine));
+            System.out.println("Transactions semées : " + resultat);
+        }
+        return new JeuDeDonnees(prefixe, nombreComptes);
+    }
+
+    @Override
+    public void consulter(String code) throws SQLException {
+        compteService.rechercherParCode(code);
+    }
+
+    @Override
+    public void verser(String code, long montant, String lieu) throws SQLException {
+        transactionService.effectuerVersement(code, montant, lieu);
+    }
+
+    @Override
+    public void retirer(String code, long montant, String lieu) throws SQLException {
+        transactionService.effectuerRetrait(code, montant, lieu);
+    }
+
+    @Override
+    public void virer(String codeSource, String codeDest, long montant) throws SQLException {
+        transactionService.effectuerVirement(codeSource, codeDest, montant);
+    }
+
+    @Override
+    public void rapport() throws SQLException {
+        rapportService.genererRapportComplet();
+    }
+
+    @Override
+    public long soldeTotal(JeuDeDonnees jeu) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_SOLDE_TOTAL)) {
+            stmt.setString(1, jeu.prefixe() + "-%");
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return Montant.depuisDecimal(rs.getBigDecimal(1));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package benchmark;
+
+import registre.Registre;
+
+import java.sql.SQLException;
+
+// Mêmes services que OperationsPostgres, mais les soldes sont tenus par le registre en mémoire.
+// Le solde total est lu en base une fois le journal rattrapé : il valide aussi la persistance.
+public class OperationsRegistre extends OperationsPostgres {
+    private OperationsRegistre() {
+    }
+
+    public static OperationsRegistre creer() {
+        System.setProperty("bank.registre.actif", "true");
+        return new OperationsRegistre();
+    }
+
+    @Override
+    public String nom() {
+        return "PostgreSQL + registre en mémoire";
+    }
+
+    @Override
+    public long soldeTotal(JeuDeDonnees jeu) throws SQLException {
+        if (!Registre.actif().attendrePersistance()) {
+            throw new SQLException("Le registre n'a pas rattrapé la base à temps");
+        }
+        return super.soldeTotal(jeu);
+    }
+}
@@ -0,0 +1,129 @@
+package benchmark;
+
+import dao.ClientDAO;
+import dao.CompteDAO;
+import dao.TransactionManager;
+import entity.Client;
+import entity.Compte;
+import entity.CompteCourant;
+import service.MoteurVirement;
+import util.LatencyHistogram;
+import util.Montant;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class VirementBenchmark {
+    private static final long SOLDE_INITIAL = Montant.unites(10_000);
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int nombreComptes = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int operationsParThread = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        if (nombreComptes < 2) {
+            throw new IllegalArgumentException("Il faut au moins deux comptes");
+        }
+
+        CompteDAO compteDAO = new CompteDAO();
+        int idClient = new ClientDAO().save(new Client("Benchmark Virement", "benchmark@bank.ma"));
+        List<String> codes = creerComptes(compteDAO, idClient, nombreComptes);
+        long soldeAvant = soldeTotal(compteDAO, idClient);
+
+        TransactionManager transactionManager = new TransactionManager();
+        MoteurVirement moteur = new MoteurVirement(transactionManager);
+        LatencyHistogram latences = new LatencyHistogram();
+        LongAdder reussis = new LongAdder();
+        LongAdder refuses = new LongAdder();
+        LongAdder erreurs = new LongAdder();
+
+        ExecutorService executeur = Executors.newFixedThreadPool(threads);
+        List<Future<?>> taches = new ArrayList<>();
+        long debut = System.nanoTime();
+
+        for (int t = 0; t < threads; t++) {
+            taches.add(executeur.submit(() -> {
+                ThreadLocalRandom aleatoire = ThreadLocalRandom.current();
+                for (int i = 0; i < operationsParThread; i++) {
+                    int source = aleatoire.nextInt(nombreComptes);
+                    int dest = aleatoire.nextInt(nombreComptes - 1);
+                    if (dest >= source) {
+                        dest++;
+                    }
+                    long montant = Montant.unites(1 + aleatoire.nextInt(500));
+
+                    long debutOperation = System.nanoTime();
+                    try {
+                        moteur.executer(codes.get(source), codes.get(dest), montant);
+                        reussis.increment();
+                    } catch (IllegalArgumentException e) {
+                        refuses.increment();
+                    } catch (SQLException e) {
+                        erreurs.increment();
+                        System.err.println("Erreur SQL [" + e.getSQLState() + "] : " + e.getMessage());
+                    }
+                    latences.enregistrer(System.nanoTime() - debutOperation);
+                }
+            }));
+        }
+
+        for (Future<?> tache : taches) {
+            tache.get();
+        }
+        long dureeNanos = System.nanoTime() - debut;
+        executeur.shutdown();
+        executeur.awaitTermination(1, TimeUnit.MINUTES);
+
+        long soldeApres = soldeTotal(compteDAO, idClient);
+        double secondes = dureeNanos / 1_000_000_000.0;
+        long total = reussis.sum() + refuses.sum() + erreurs.sum();
+
+        System.out.println("=== Benchmark des virements ===");
+        System.out.printf("Threads : %d | Comptes : %d | Opérations : %d%n", threads, nombreComptes, total);
+        System.out.printf("Réussis : %d | Refusés : %d | Erreurs : %d%n", reussis.sum(), refuses.sum(), erreurs.sum());
+        System.out.printf("Débit : %,.0f virements/s%n", total / secondes);
+        System.out.println("Latence : " + latences.resume());
+        System.out.printf("Nouvelles tentatives : %d | Interblocages : %d%n",
+                transactionManager.getReessais(), transactionManager.getInterblocages());
+        System.out.printf("Solde total avant : %,.2f | après : %,.2f%n",
+                Montant.versDecimal(soldeAvant), Montant.versDecimal(soldeApres));
+
+        boolean argentPerdu = soldeAvant != soldeApres;
+        if (argentPerdu) {
+            System.out.println("❌ Incohérence : le solde total a changé");
+        }
+        if (transactionManager.getInterblocages() > 0) {
+            System.out.println("❌ Des interblocages ont été détectés");
+        }
+        if (argentPerdu || transactionManager.getInterblocages() > 0 || erreurs.sum() > 0) {
+            System.exit(1);
+        }
+        System.out.println("✅ Aucun argent perdu, aucun interblocage");
+    }
+
+    private static List<String> creerComptes(CompteDAO compteDAO, int idClient, int nombre) throws SQLException {
+        String prefixe = "BV" + Integer.toHexString(ThreadLocalRandom.current().nextInt(0x1000, 0x10000));
+        List<String> codes = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            String code = String.format("%s-%05d", prefixe, i);
+            compteDAO.saveCompteCourant(new CompteCourant(code, SOLDE_INITIAL, idClient, 0));
+            codes.add(code);
+        }
+        return codes;
+    }
+
+    private static long soldeTotal(CompteDAO compteDAO, int idClient) throws SQLException {
+        long total = 0;
+        for (Compte compte : compteDAO.findByClientId(idClient)) {
+            total = Montant.additionner(total, compte.getSolde());
+        }
+        return total;
+    }
+}
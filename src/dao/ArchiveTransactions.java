@@ -0,0 +1,465 @@
+package dao;
+
+import entity.Transaction;
+import entity.TypeTransaction;
+import util.Montant;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Mois froids de la table transaction : la partition est recopiée, encore attachée, dans un fichier
+// compressé en lecture seule, relu pour vérification ; seuls le détachement, le contrôle de la partition
+// contre le fichier, le catalogue et la suppression se font ensuite sous verrou exclusif, en une courte
+// transaction. Le catalogue transaction_archive indique quels mois lire dans les fichiers plutôt qu'en
+// base, avec les bornes d'ids et le plus gros montant de chaque mois ; transaction_archive_jour,
+// transaction_archive_compte (avec la dernière opération du compte dans le mois) et
+// transaction_archive_lieu gardent les agrégats et les lieux servis aux statistiques, à la recherche
+// des comptes inactifs et au choix des mois à relire, sans ouvrir les fichiers.
+public class ArchiveTransactions {
+    private static final int MAGIQUE = 0x42565441;
+    private static final int VERSION = 1;
+    private static final int TAILLE_FETCH = 10_000;
+    private static final long ATTENTE_VERROU_MILLIS = Long.getLong("bank.archive.attenteVerrouMillis", 5_000L);
+    private static final TypeTransaction[] TYPES = TypeTransaction.values();
+    private static final String COLONNES_CATALOGUE = "mois, fichier, nombre, volume, id_min, id_max";
+
+    public record MoisArchive(YearMonth mois, Path fichier, long nombre, long volume, int idMin, int idMax) {
+        public boolean contient(int id) {
+            return nombre > 0 && id >= idMin && id <= idMax;
+        }
+    }
+
+    private final Path repertoire;
+
+    public ArchiveTransactions() {
+        this(Path.of(System.getProperty("bank.archive.repertoire", "archives")));
+    }
+
+    public ArchiveTransactions(Path repertoire) {
+        this.repertoire = repertoire;
+    }
+
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
+    }
+
+    // Archive toutes les partitions mensuelles antérieures à avant.
+    public List<MoisArchive> archiver(YearMonth avant) throws SQLException, IOException {
+        List<MoisArchive> archives = new ArrayList<>();
+        for (YearMonth mois : new SchemaManager().partitionsTransactions()) {
+            if (mois.isBefore(avant)) {
+                archives.add(archiverMois(mois));
+            }
+        }
+        return archives;
+    }
+
+    // Un mois modifié entre l'export et le détachement fait échouer l'archivage, qui peut être relancé :
+    // la partition reste alors attachée et le fichier temporaire est supprimé.
+    public MoisArchive archiverMois(YearMonth mois) throws SQLException, IOException {
+        String partition = SchemaManager.nomPartition(mois);
+        Files.createDirectories(repertoire);
+        Path fichier = repertoire.resolve(partition + ".bin.gz");
+        Path temporaire = temporaire(fichier);
+        Agregats agregats = new Agregats();
+
+        try {
+            exporter(mois, partition, temporaire, agregats);
+            verifierFichier(new MoisArchive(mois, temporaire, agregats.nombre, agregats.volume, 0, 0));
+
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try (Statement stmt = conn.createStatement()) {
+                    // Les requêtes sur transaction attendent derrière DETACH : l'attente du verrou est bornée.
+                    stmt.execute("SET LOCAL lock_timeout = " + ATTENTE_VERROU_MILLIS);
+                    stmt.execute("ALTER TABLE transaction DETACH PARTITION " + partition);
+                    verifierPartition(stmt, partition, agregats);
+                    try (PreparedStatement catalogue = conn.prepareStatement(
+                            "INSERT INTO transaction_archive (mois, fichier, nombre, volume, id_min, id_max, montant_max) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                        catalogue.setDate(1, Date.valueOf(mois.atDay(1)));
+                        catalogue.setString(2, fichier.toAbsolutePath().toString());
+                        catalogue.setLong(3, agregats.nombre);
+                        catalogue.setBigDecimal(4, Montant.versDecimal(agregats.volume));
+                        catalogue.setInt(5, agregats.idMin());
+                        catalogue.setInt(6, agregats.idMax);
+                        catalogue.setBigDecimal(7, agregats.montantMax());
+                        catalogue.executeUpdate();
+                    }
+                    agregats.enregistrer(conn, mois, true);
+                    stmt.execute("DROP TABLE " + partition);
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaire);
+            throw e;
+        }
+        // Mis en place seulement une fois le commit acquis : une annulation ne laisse aucun fichier.
+        // Un arrêt entre les deux laisse le temporaire, que lire installe au premier accès.
+        installer(temporaire, fichier);
+        return new MoisArchive(mois, fichier, agregats.nombre, agregats.volume, agregats.idMin(), agregats.idMax);
+    }
+
+    // Lecture de la partition encore attachée, dans un seul instantané : le nombre annoncé en tête du
+    // fichier et les lignes écrites correspondent. Les agrégats sont calculés au passage.
+    private void exporter(YearMonth mois, String partition, Path temporaire, Agregats agregats) throws SQLException, IOException {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+                long nombre;
+                try (ResultSet compte = stmt.executeQuery("SELECT COUNT(*) FROM " + partition)) {
+                    compte.next();
+                    nombre = compte.getLong(1);
+                }
+                try (FileOutputStream sortie = new FileOutputStream(temporaire.toFile());
+                     DataOutputStream donnees = new DataOutputStream(new BufferedOutputStream(
+                             new GZIPOutputStream(sortie, 1 << 16), 1 << 16));
+                     PreparedStatement lecture = conn.prepareStatement(
+                             "SELECT " + TransactionDAO.COLONNES + " FROM " + partition + " ORDER BY date, id")) {
+                    donnees.writeInt(MAGIQUE);
+                    donnees.writeInt(VERSION);
+                    donnees.writeInt(mois.getYear());
+                    donnees.writeInt(mois.getMonthValue());
+                    donnees.writeLong(nombre);
+                    lecture.setFetchSize(TAILLE_FETCH);
+                    ResultSet rs = lecture.executeQuery();
+                    while (rs.next()) {
+                        Transaction transaction = TransactionDAO.mapResultSetToTransaction(rs);
+                        ecrire(donnees, transaction);
+                        agregats.ajouter(transaction);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        forcer(temporaire);
+    }
+
+    // Relit le fichier forcé sur disque : CRC gzip, nombre de lignes et volume doivent correspondre à l'export.
+    private void verifierFichier(MoisArchive archive) throws IOException {
+        long[] relu = new long[2];
+        try {
+            lire(archive, transaction -> {
+                relu[0]++;
+                relu[1] = Montant.additionner(relu[1], transaction.montant());
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (relu[0] != archive.nombre() || relu[1] != archive.volume()) {
+            throw new IOException("Fichier d'archive différent de l'export : " + archive.fichier());
+        }
+    }
+
+    // Partition détachée, donc figée : elle doit encore contenir exactement ce qui a été exporté.
+    private static void verifierPartition(Statement stmt, String partition, Agregats agregats) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*), COALESCE(SUM(montant), 0), COALESCE(MIN(id), 0), " +
+                "COALESCE(MAX(id), 0) FROM " + partition)) {
+            rs.next();
+            if (rs.getLong(1) != agregats.nombre || Montant.depuisDecimal(rs.getBigDecimal(2)) != agregats.volume
+                    || rs.getInt(3) != agregats.idMin() || rs.getInt(4) != agregats.idMax) {
+                throw new IllegalStateException("Partition " + partition + " modifiée pendant l'export, archivage annulé");
+            }
+        }
+    }
+
+    // Mois archivés avant l'introduction des agrégats, puis du montant maximal, des lieux et des dates
+    // de dernière opération : ce qui manque est recalculé depuis les fichiers, un mois par transaction.
+    public void completerAgregats() throws SQLException {
+        for (MoisArchive archive : lireCatalogue("SELECT " + COLONNES_CATALOGUE + " FROM transaction_archive a " +
+                "WHERE id_min IS NULL OR montant_max IS NULL OR EXISTS (SELECT 1 FROM transaction_archive_compte c " +
+                "WHERE c.mois = a.mois AND c.derniere_date IS NULL) ORDER BY mois", stmt -> {})) {
+            // Bornes à 0 : id_min était NULL, les agrégats par jour et par compte manquent aussi.
+            boolean sansAgregats = archive.idMin() == 0 && archive.idMax() == 0 && archive.nombre() > 0;
+            Agregats agregats = new Agregats();
+            lire(archive, agregats::ajouter);
+
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement catalogue = conn.prepareStatement(
+                        "UPDATE transaction_archive SET id_min = ?, id_max = ?, montant_max = ? WHERE mois = ?")) {
+                    agregats.enregistrer(conn, archive.mois(), sansAgregats);
+                    catalogue.setInt(1, agregats.idMin());
+                    catalogue.setInt(2, agregats.idMax);
+                    catalogue.setBigDecimal(3, agregats.montantMax());
+                    catalogue.setDate(4, Date.valueOf(archive.mois().atDay(1)));
+                    catalogue.executeUpdate();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public List<MoisArchive> moisArchives() throws SQLException {
+        return lireCatalogue("SELECT " + COLONNES_CATALOGUE + " FROM transaction_archive ORDER BY mois", stmt -> {});
+    }
+
+    // Mois archivés où le compte a des transactions, d'après transaction_archive_compte.
+    public List<MoisArchive> moisDuCompte(int idCompte) throws SQLException {
+        return lireCatalogue("SELECT a.mois, a.fichier, a.nombre, a.volume, a.id_min, a.id_max FROM transaction_archive a " +
+                "JOIN transaction_archive_compte c ON c.mois = a.mois WHERE c.id_compte = ? ORDER BY a.mois",
+                stmt -> stmt.setInt(1, idCompte));
+    }
+
+    // Mois archivés contenant au moins une transaction du type, d'après transaction_archive_jour.
+    public List<MoisArchive> moisDuType(TypeTransaction type) throws SQLException {
+        return lireCatalogue("SELECT " + COLONNES_CATALOGUE + " FROM transaction_archive a WHERE EXISTS (" +
+                "SELECT 1 FROM transaction_archive_jour j WHERE j.type = ?::type_transaction " +
+                "AND j.jour >= a.mois AND j.jour < a.mois + INTERVAL '1 month') ORDER BY mois",
+                stmt -> stmt.setString(1, type.name()));
+    }
+
+    // Mois archivés où le lieu apparaît ; un mois dont les lieux ne sont pas encore recensés est gardé.
+    public List<MoisArchive> moisDuLieu(String lieu) throws SQLException {
+        return lireCatalogue("SELECT " + COLONNES_CATALOGUE + " FROM transaction_archive a WHERE a.montant_max IS NULL " +
+                "OR EXISTS (SELECT 1 FROM transaction_archive_lieu l WHERE l.lieu = ? AND l.mois = a.mois) ORDER BY mois",
+                stmt -> stmt.setString(1, lieu));
+    }
+
+    // Mois archivés dont le plus gros montant dépasse montant.
+    public List<MoisArchive> moisAuDessusDe(long montant) throws SQLException {
+        return lireCatalogue("SELECT " + COLONNES_CATALOGUE + " FROM transaction_archive " +
+                "WHERE montant_max IS NULL OR montant_max > ? ORDER BY mois",
+                stmt -> stmt.setBigDecimal(1, Montant.versDecimal(montant)));
+    }
+
+    // Lignes des mois fournis vérifiant filtre, mois après mois dans l'ordre de la liste ; dans un
+    // mois par (date, id) croissants, ou décroissants si decroissant. Un seul mois est en mémoire à la fois.
+    public Stream<Transaction> stream(List<MoisArchive> archives, Predicate<Transaction> filtre, boolean decroissant) {
+        return archives.stream().flatMap(archive -> {
+            List<Transaction> duMois = new ArrayList<>();
+            lire(archive, transaction -> {
+                if (filtre.test(transaction)) {
+                    duMois.add(transaction);
+                }
+            });
+            if (decroissant) {
+                Collections.reverse(duMois);
+            }
+            return duMois.stream();
+        });
+    }
+
+    // Relit un mois archivé dans l'ordre (date, id) ; le CRC du format gzip valide le fichier.
+    public void lire(MoisArchive archive, Consumer<Transaction> traitement) {
+        try {
+            if (Files.notExists(archive.fichier()) && Files.exists(temporaire(archive.fichier()))) {
+                installer(temporaire(archive.fichier()), archive.fichier());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (DataInputStream donnees = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(archive.fichier()), 1 << 16), 1 << 16))) {
+            if (donnees.readInt() != MAGIQUE || donnees.readInt() != VERSION) {
+                throw new IOException("Fichier d'archive invalide : " + archive.fichier());
+            }
+            donnees.readInt();
+            donnees.readInt();
+            long nombre = donnees.readLong();
+            for (long i = 0; i < nombre; i++) {
+                traitement.accept(lireTransaction(donnees));
+            }
+            // Lire jusqu'à la fin fait vérifier la taille et le CRC de fin de flux gzip.
+            if (donnees.read() != -1) {
+                throw new IOException("Fichier d'archive plus long qu'annoncé : " + archive.fichier());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Parametres {
+        void lier(PreparedStatement stmt) throws SQLException;
+    }
+
+    private List<MoisArchive> lireCatalogue(String sql, Parametres parametres) throws SQLException {
+        List<MoisArchive> archives = new ArrayList<>();
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            parametres.lier(stmt);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                archives.add(mapResultSetToMoisArchive(rs));
+            }
+        }
+        return archives;
+    }
+
+    private static MoisArchive mapResultSetToMoisArchive(ResultSet rs) throws SQLException {
+        return new MoisArchive(
+                YearMonth.from(rs.getDate("mois").toLocalDate()),
+                Path.of(rs.getString("fichier")),
+                rs.getLong("nombre"),
+                Montant.depuisDecimal(rs.getBigDecimal("volume")),
+                rs.getInt("id_min"),
+                rs.getInt("id_max")
+        );
+    }
+
+    // Agrégats d'un mois accumulés pendant un parcours de ses lignes, enregistrés ensuite par lots.
+    private static final class Agregats {
+        private final Map<LocalDate, long[]> parJour = new HashMap<>();
+        private final Map<Integer, long[]> parCompte = new HashMap<>();
+        private final Map<Integer, LocalDateTime> derniereParCompte = new HashMap<>();
+        private final Set<String> lieux = new HashSet<>();
+        private long nombre;
+        private long volume;
+        private long montantMax = Long.MIN_VALUE;
+        private int idMin = Integer.MAX_VALUE;
+        private int idMax;
+
+        void ajouter(Transaction transaction) {
+            long[] jour = parJour.computeIfAbsent(transaction.date().toLocalDate(), j -> new long[2 * TYPES.length]);
+            jour[transaction.type().ordinal()]++;
+            int volumeType = TYPES.length + transaction.type().ordinal();
+            jour[volumeType] = Montant.additionner(jour[volumeType], transaction.montant());
+            long[] compte = parCompte.computeIfAbsent(transaction.idCompte(), c -> new long[2]);
+            compte[0]++;
+            compte[1] = Montant.additionner(compte[1], transaction.montant());
+            derniereParCompte.merge(transaction.idCompte(), transaction.date(), (a, b) -> a.isAfter(b) ? a : b);
+            if (transaction.lieu() != null) {
+                lieux.add(transaction.lieu());
+            }
+            nombre++;
+            volume = Montant.additionner(volume, transaction.montant());
+            montantMax = Math.max(montantMax, transaction.montant());
+            idMin = Math.min(idMin, transaction.id());
+            idMax = Math.max(idMax, transaction.id());
+        }
+
+        // Mois vide : bornes 0..0, que MoisArchive.contient ignore.
+        int idMin() {
+            return Math.min(idMin, idMax);
+        }
+
+        // 0 pour un mois vide, qui n'a de toute façon aucune ligne à relire.
+        BigDecimal montantMax() {
+            return Montant.versDecimal(nombre > 0 ? montantMax : 0);
+        }
+
+        // Sans avecJoursEtComptes, les agrégats existent déjà : seules les dates de dernière opération
+        // par compte et les lieux sont complétés.
+        void enregistrer(Connection conn, YearMonth mois, boolean avecJoursEtComptes) throws SQLException {
+            try (PreparedStatement jours = conn.prepareStatement(
+                    "INSERT INTO transaction_archive_jour (jour, type, nombre, volume) VALUES (?, ?::type_transaction, ?, ?)");
+                 PreparedStatement comptes = conn.prepareStatement(avecJoursEtComptes
+                         ? "INSERT INTO transaction_archive_compte (derniere_date, id_compte, mois, nombre, volume) VALUES (?, ?, ?, ?, ?)"
+                         : "UPDATE transaction_archive_compte SET derniere_date = ? WHERE id_compte = ? AND mois = ?");
+                 PreparedStatement lieuxDuMois = conn.prepareStatement(
+                         "INSERT INTO transaction_archive_lieu (mois, lieu) VALUES (?, ?) ON CONFLICT DO NOTHING")) {
+                Date premierJour = Date.valueOf(mois.atDay(1));
+                if (avecJoursEtComptes) {
+                    for (Map.Entry<LocalDate, long[]> jour : parJour.entrySet()) {
+                        for (TypeTransaction type : TYPES) {
+                            long nombreType = jour.getValue()[type.ordinal()];
+                            if (nombreType > 0) {
+                                jours.setDate(1, Date.valueOf(jour.getKey()));
+                                jours.setString(2, type.name());
+                                jours.setLong(3, nombreType);
+                                jours.setBigDecimal(4, Montant.versDecimal(jour.getValue()[TYPES.length + type.ordinal()]));
+                                jours.addBatch();
+                            }
+                        }
+                    }
+                    jours.executeBatch();
+                }
+                for (Map.Entry<Integer, long[]> compte : parCompte.entrySet()) {
+                    comptes.setTimestamp(1, Timestamp.valueOf(derniereParCompte.get(compte.getKey())));
+                    comptes.setInt(2, compte.getKey());
+                    comptes.setDate(3, premierJour);
+                    if (avecJoursEtComptes) {
+                        comptes.setLong(4, compte.getValue()[0]);
+                        comptes.setBigDecimal(5, Montant.versDecimal(compte.getValue()[1]));
+                    }
+                    comptes.addBatch();
+                }
+                comptes.executeBatch();
+                for (String lieu : lieux) {
+                    lieuxDuMois.setDate(1, premierJour);
+                    lieuxDuMois.setString(2, lieu);
+                    lieuxDuMois.addBatch();
+                }
+                lieuxDuMois.executeBatch();
+            }
+        }
+    }
+
+    private static void ecrire(DataOutputStream donnees, Transaction transaction) throws IOException {
+        donnees.writeInt(transaction.id());
+        donnees.writeLong(transaction.date().toEpochSecond(ZoneOffset.UTC));
+        donnees.writeInt(transaction.date().getNano());
+        donnees.writeLong(transaction.montant());
+        donnees.writeByte(transaction.type().ordinal());
+        donnees.writeInt(transaction.idCompte());
+        donnees.writeBoolean(transaction.lieu() != null);
+        if (transaction.lieu() != null) {
+            donnees.writeUTF(transaction.lieu());
+        }
+    }
+
+    private static Transaction lireTransaction(DataInputStream donnees) throws IOException {
+        int id = donnees.readInt();
+        LocalDateTime date = LocalDateTime.ofEpochSecond(donnees.readLong(), donnees.readInt(), ZoneOffset.UTC);
+        long montant = donnees.readLong();
+        TypeTransaction type = TYPES[donnees.readByte()];
+        int idCompte = donnees.readInt();
+        String lieu = donnees.readBoolean() ? donnees.readUTF() : null;
+        return new Transaction(id, date, montant, type, lieu, idCompte);
+    }
+
+    private static Path temporaire(Path fichier) {
+        return fichier.resolveSibling(fichier.getFileName() + ".tmp");
+    }
+
+    private static void installer(Path temporaire, Path fichier) throws IOException {
+        Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        fichier.toFile().setReadOnly();
+    }
+
+    private static void forcer(Path fichier) throws IOException {
+        try (FileOutputStream sortie = new FileOutputStream(fichier.toFile(), true)) {
+            sortie.getFD().sync();
+        }
+    }
+}
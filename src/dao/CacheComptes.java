@@ -0,0 +1,96 @@
+package dao;
+
+import entity.Compte;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+class CacheComptes {
+    private static final int SEGMENTS_VERSION = 1024;
+
+    record Ticket(String code, long generation) {}
+
+    private record Entree(Compte compte, long version) {}
+
+    private final int capacite;
+    private final LinkedHashMap<String, Entree> entrees;
+    private final long[] generations = new long[SEGMENTS_VERSION];
+    private final LongAdder succes = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final LongAdder remplissagesRejetes = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private long evictions;
+
+    CacheComptes(int capacite) {
+        if (capacite <= 0) {
+            throw new IllegalArgumentException("La capacité du cache doit être positive");
+        }
+        this.capacite = capacite;
+        this.entrees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entree> eldest) {
+                if (size() > CacheComptes.this.capacite) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    synchronized Compte lire(String code) {
+        Entree entree = entrees.get(code);
+        if (entree == null) {
+            echecs.increment();
+            return null;
+        }
+        succes.increment();
+        return entree.compte();
+    }
+
+    synchronized Ticket ticket(String code) {
+        return new Ticket(code, generations[segment(code)]);
+    }
+
+    // Une lecture n'est mise en cache que si aucune écriture validée sur le segment
+    // n'a eu lieu depuis le ticket, et jamais par-dessus une version plus récente.
+    synchronized void remplir(Ticket ticket, Compte compte, long version) {
+        Entree existante = entrees.get(ticket.code());
+        if (generations[segment(ticket.code())] != ticket.generation()
+                || (existante != null && existante.version() >= version)) {
+            remplissagesRejetes.increment();
+            return;
+        }
+        entrees.put(ticket.code(), new Entree(compte, version));
+    }
+
+    synchronized void ecrire(Compte compte, long version) {
+        String code = compte.getCode();
+        generations[segment(code)]++;
+        Entree existante = entrees.get(code);
+        if (existante == null) {
+            return;
+        }
+        if (existante.version() < version) {
+            entrees.put(code, new Entree(compte, version));
+        } else {
+            remplissagesRejetes.increment();
+        }
+    }
+
+    synchronized void invalider(String code) {
+        generations[segment(code)]++;
+        entrees.remove(code);
+        invalidations.increment();
+    }
+
+    synchronized CacheMetrics metriques() {
+        return new CacheMetrics(true, capacite, entrees.size(), succes.sum(), echecs.sum(),
+                evictions, remplissagesRejetes.sum(), invalidations.sum());
+    }
+
+    private int segment(String code) {
+        return (code.hashCode() & 0x7fffffff) % SEGMENTS_VERSION;
+    }
+}
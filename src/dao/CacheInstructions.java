@@ -0,0 +1,146 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+class CacheInstructions {
+    private record Cle(String sql, int clesGenerees) {}
+
+    private final Connection physique;
+    private final int capacite;
+    private final LongAdder succes;
+    private final LongAdder echecs;
+    private final LongAdder evictions;
+    private final LinkedHashMap<Cle, PreparedStatement> libres;
+
+    CacheInstructions(Connection physique, int capacite, LongAdder succes, LongAdder echecs, LongAdder evictions) {
+        this.physique = physique;
+        this.capacite = capacite;
+        this.succes = succes;
+        this.echecs = echecs;
+        this.evictions = evictions;
+        this.libres = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Cle, PreparedStatement> eldest) {
+                if (size() > CacheInstructions.this.capacite) {
+                    CacheInstructions.this.evictions.increment();
+                    fermer(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Une instruction empruntée est retirée du cache : deux usages simultanés de la même
+    // requête sur une connexion obtiennent chacun leur propre instruction.
+    PreparedStatement preparer(Connection logique, String sql, int clesGenerees) throws SQLException {
+        Cle cle = new Cle(sql, clesGenerees);
+        PreparedStatement instruction = libres.remove(cle);
+        if (instruction != null && !instruction.isClosed()) {
+            succes.increment();
+        } else {
+            echecs.increment();
+            instruction = physique.prepareStatement(sql, clesGenerees);
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new InstructionEmpruntee(logique, cle, instruction)
+        );
+    }
+
+    void vider() {
+        libres.values().forEach(this::fermer);
+        libres.clear();
+    }
+
+    private void restituer(Cle cle, PreparedStatement instruction) {
+        try {
+            ResultSet resultat = instruction.getResultSet();
+            if (resultat != null) {
+                resultat.close();
+            }
+            instruction.clearParameters();
+            instruction.clearBatch();
+            instruction.clearWarnings();
+        } catch (SQLException e) {
+            fermer(instruction);
+            return;
+        }
+        if (libres.containsKey(cle)) {
+            fermer(instruction);
+        } else {
+            libres.put(cle, instruction);
+        }
+    }
+
+    private void fermer(PreparedStatement instruction) {
+        try {
+            instruction.close();
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture d'une instruction : " + e.getMessage());
+        }
+    }
+
+    private final class InstructionEmpruntee implements InvocationHandler {
+        private final Connection logique;
+        private final Cle cle;
+        private final PreparedStatement instruction;
+        private boolean restituee;
+
+        private InstructionEmpruntee(Connection logique, Cle cle, PreparedStatement instruction) {
+            this.logique = logique;
+            this.cle = cle;
+            this.instruction = instruction;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!restituee) {
+                        restituee = true;
+                        restituer(cle, instruction);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return restituee || instruction.isClosed();
+                }
+                case "getConnection" -> {
+                    return logique;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "InstructionEnCache[" + cle.sql() + "]";
+                }
+                default -> {
+                    if (restituee) {
+                        throw new SQLException("Instruction déjà fermée");
+                    }
+                }
+            }
+
+            try {
+                return method.invoke(instruction, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package dao;
+
+public record CacheMetrics(boolean actif, int capacite, int taille, long succes, long echecs,
+                           long evictions, long remplissagesRejetes, long invalidations) {
+
+    public double tauxSucces() {
+        long total = succes + echecs;
+        return total == 0 ? 0.0 : (double) succes / total;
+    }
+
+    @Override
+    public String toString() {
+        if (!actif) {
+            return "Cache[désactivé]";
+        }
+        return String.format("Cache[%d/%d, succès=%d, échecs=%d (%.1f%%), évictions=%d, rejetés=%d, invalidations=%d]",
+                taille, capacite, succes, echecs, tauxSucces() * 100, evictions, remplissagesRejetes, invalidations);
+    }
+}
@@ -0,0 +1,48 @@
+package dao;
+
+import entity.Compte;
+
+import java.sql.SQLException;
+import java.util.*;
+
+public class ChargeurComptes {
+    private final CompteDAO compteDAO;
+    private final Map<Integer, List<Compte>> comptesParClient = new HashMap<>();
+    private int requetes;
+
+    public ChargeurComptes() {
+        this(new CompteDAO());
+    }
+
+    public ChargeurComptes(CompteDAO compteDAO) {
+        this.compteDAO = compteDAO;
+    }
+
+    public List<Compte> comptesDuClient(int clientId) throws SQLException {
+        return charger(List.of(clientId)).get(clientId);
+    }
+
+    public Map<Integer, List<Compte>> charger(Collection<Integer> clientIds) throws SQLException {
+        Set<Integer> manquants = new HashSet<>();
+        for (Integer clientId : clientIds) {
+            if (!comptesParClient.containsKey(clientId)) {
+                manquants.add(clientId);
+            }
+        }
+        if (!manquants.isEmpty()) {
+            requetes++;
+            compteDAO.findByClientIds(manquants)
+                    .forEach((clientId, comptes) -> comptesParClient.put(clientId, List.copyOf(comptes)));
+        }
+
+        Map<Integer, List<Compte>> resultat = new LinkedHashMap<>();
+        for (Integer clientId : clientIds) {
+            resultat.put(clientId, comptesParClient.get(clientId));
+        }
+        return resultat;
+    }
+
+    public int getRequetes() {
+        return requetes;
+    }
+}
@@ -3,11 +3,10 @@ package dao;
 import entity.Client;
 
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 public class ClientDAO {
+    private static final String ESPACE_CURSEUR = "client";
 
     private Connection getConnection() throws SQLException {
         return DatabaseConnection.getInstance().getConnection();
@@ -16,7 +15,8 @@ public class ClientDAO {
     public int save(Client client) throws SQLException {
         String sql = "INSERT INTO client (nom, email) VALUES (?, ?)";
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, client.nom());
             stmt.setString(2, client.email());
             stmt.executeUpdate();
@@ -30,34 +30,72 @@ public class ClientDAO {
     }
 
     public Optional<Client> findById(int id) throws SQLException {
-        String sql = "SELECT nom, email FROM client WHERE id = ?";
+        String sql = "SELECT id, nom, email FROM client WHERE id = ?";
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                return Optional.of(new Client(
-                        rs.getString("nom"),
-                        rs.getString("email")
-                ));
+                return Optional.of(mapResultSetToClient(rs));
             }
             return Optional.empty();
         }
     }
 
+    public Map<Integer, Client> findByIds(Collection<Integer> ids) throws SQLException {
+        String sql = "SELECT id, nom, email FROM client WHERE id = ANY(?)";
+        Map<Integer, Client> clients = new HashMap<>();
+        if (ids.isEmpty()) {
+            return clients;
+        }
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Client client = mapResultSetToClient(rs);
+                clients.put(client.id(), client);
+            }
+        }
+        return clients;
+    }
+
+    public Page<Client> findPage(String curseur, int taille) throws SQLException {
+        String sql = "SELECT id, nom, email FROM client WHERE id > ? ORDER BY id LIMIT ?";
+        Curseur.taille(taille, Page.TAILLE_MAX);
+        List<Client> clients = new ArrayList<>(taille + 1);
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, curseur == null ? Integer.MIN_VALUE : Curseur.lireId(ESPACE_CURSEUR, curseur));
+            stmt.setInt(2, taille + 1);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                clients.add(mapResultSetToClient(rs));
+            }
+        }
+        if (clients.size() <= taille) {
+            return new Page<>(clients, null);
+        }
+        clients.remove(taille);
+        return new Page<>(clients, Curseur.versJeton(ESPACE_CURSEUR, clients.get(taille - 1).id()));
+    }
+
     public List<Client> findAll() throws SQLException {
-        String sql = "SELECT nom, email FROM client";
+        String sql = "SELECT id, nom, email FROM client";
         List<Client> clients = new ArrayList<>();
 
-        try (Statement stmt = getConnection().createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                clients.add(new Client(
-                        rs.getString("nom"),
-                        rs.getString("email")
-                ));
+                clients.add(mapResultSetToClient(rs));
             }
         }
         return clients;
@@ -66,7 +104,8 @@ public class ClientDAO {
     public void update(int id, Client client) throws SQLException {
         String sql = "UPDATE client SET nom = ?, email = ? WHERE id = ?";
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, client.nom());
             stmt.setString(2, client.email());
             stmt.setInt(3, id);
@@ -77,27 +116,34 @@ public class ClientDAO {
     public void delete(int id) throws SQLException {
         String sql = "DELETE FROM client WHERE id = ?";
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             stmt.executeUpdate();
         }
     }
 
     public List<Client> findByNom(String nom) throws SQLException {
-        String sql = "SELECT nom, email FROM client WHERE nom LIKE ?";
+        String sql = "SELECT id, nom, email FROM client WHERE nom LIKE ?";
         List<Client> clients = new ArrayList<>();
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, "%" + nom + "%");
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                clients.add(new Client(
-                        rs.getString("nom"),
-                        rs.getString("email")
-                ));
+                clients.add(mapResultSetToClient(rs));
             }
         }
         return clients;
     }
+
+    private Client mapResultSetToClient(ResultSet rs) throws SQLException {
+        return new Client(
+                rs.getInt("id"),
+                rs.getString("nom"),
+                rs.getString("email")
+        );
+    }
 }
\ No newline at end of file
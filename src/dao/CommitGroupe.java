@@ -0,0 +1,241 @@
+package dao;
+
+import entity.Transaction;
+import util.LatencyHistogram;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Étage d'écriture différée devant TransactionDAO : les producteurs réservent un emplacement d'un
+// anneau par getAndIncrement, sans verrou ; un consommateur unique regroupe les insertions en un lot
+// par fenêtre de commit. Le lot part dès qu'il atteint tailleLot, ou quand sa plus ancienne
+// demande a attendu fenetre ; chaque appelant est libéré au commit de son lot. Un lot refusé
+// est repris ligne par ligne : seule la ligne fautive échoue.
+public final class CommitGroupe {
+    private static final long ATTENTE_INACTIF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static volatile CommitGroupe instance;
+
+    public record MetriquesCommitGroupe(long profondeur, long lots, long lignes, double tailleMoyenne, long tailleMax,
+                                        long p50CommitMicros, long p99CommitMicros, long p99AttenteMicros, long echecs) {}
+
+    private record Demande(Transaction transaction, CompletableFuture<Integer> id, long soumission) {}
+
+    private final AtomicReferenceArray<Demande> emplacements;
+    private final int masque;
+    private final int tailleLot;
+    private final long fenetreNanos;
+    private final AtomicLong queue = new AtomicLong();
+    private final AtomicInteger producteursEnCours = new AtomicInteger();
+    private volatile long tete;
+    private volatile boolean endormi;
+    private volatile boolean actif = true;
+    private final Thread consommateur;
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final TransactionManager transactionManager = new TransactionManager();
+    private final LongAdder lots = new LongAdder();
+    private final LongAdder lignes = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final AtomicLong tailleMax = new AtomicLong();
+    private final LatencyHistogram latencesCommit = new LatencyHistogram();
+    private final LatencyHistogram attentes = new LatencyHistogram();
+
+    public CommitGroupe(int capacite, int tailleLot, long fenetreMicros) {
+        if (Integer.bitCount(capacite) != 1) {
+            throw new IllegalArgumentException("La capacité doit être une puissance de deux : " + capacite);
+        }
+        if (tailleLot <= 0 || tailleLot > capacite) {
+            throw new IllegalArgumentException("Taille de lot invalide : " + tailleLot);
+        }
+        this.emplacements = new AtomicReferenceArray<>(capacite);
+        this.masque = capacite - 1;
+        this.tailleLot = tailleLot;
+        this.fenetreNanos = TimeUnit.MICROSECONDS.toNanos(fenetreMicros);
+        this.consommateur = new Thread(this::consommer, "commit-groupe");
+        this.consommateur.setDaemon(true);
+        this.consommateur.start();
+    }
+
+    // null tant que bank.commitGroupe.actif n'est pas positionné : chaque insertion valide alors seule.
+    public static CommitGroupe actif() {
+        if (!Boolean.getBoolean("bank.commitGroupe.actif")) {
+            return null;
+        }
+        CommitGroupe courant = instance;
+        if (courant == null) {
+            synchronized (CommitGroupe.class) {
+                courant = instance;
+                if (courant == null) {
+                    courant = new CommitGroupe(
+                            Integer.getInteger("bank.commitGroupe.capacite", 1 << 14),
+                            Integer.getInteger("bank.commitGroupe.tailleLot", 256),
+                            Long.getLong("bank.commitGroupe.fenetreMicros", 500L));
+                    instance = courant;
+                }
+            }
+        }
+        return courant;
+    }
+
+    public static void fermerActif() {
+        synchronized (CommitGroupe.class) {
+            if (instance != null) {
+                instance.fermer();
+                instance = null;
+            }
+        }
+    }
+
+    // Le producteur se déclare avant de lire actif : le consommateur ne s'arrête qu'une fois tous
+    // les producteurs déclarés sortis, une demande publiée pendant fermer est donc toujours traitée.
+    public CompletableFuture<Integer> soumettre(Transaction transaction) {
+        producteursEnCours.incrementAndGet();
+        try {
+            if (!actif) {
+                throw new IllegalStateException("Commit groupé arrêté");
+            }
+            Demande demande = new Demande(transaction, new CompletableFuture<>(), System.nanoTime());
+            long sequence = queue.getAndIncrement();
+            // Anneau plein : l'emplacement ne se libère qu'une fois la demande d'un tour plus tôt consommée.
+            while (sequence - tete > masque) {
+                reveiller();
+                LockSupport.parkNanos(1_000);
+            }
+            emplacements.set((int) (sequence & masque), demande);
+            return demande.id();
+        } finally {
+            producteursEnCours.decrementAndGet();
+            reveiller();
+        }
+    }
+
+    // Attend le commit du lot et retourne l'identifiant généré.
+    public int enregistrer(Transaction transaction) throws SQLException {
+        try {
+            return soumettre(transaction).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public MetriquesCommitGroupe metriques() {
+        long nombreLots = lots.sum();
+        long nombreLignes = lignes.sum();
+        return new MetriquesCommitGroupe(
+                queue.get() - tete,
+                nombreLots,
+                nombreLignes,
+                nombreLots > 0 ? (double) nombreLignes / nombreLots : 0,
+                tailleMax.get(),
+                latencesCommit.percentileNanos(50) / 1_000,
+                latencesCommit.percentileNanos(99) / 1_000,
+                attentes.percentileNanos(99) / 1_000,
+                echecs.sum());
+    }
+
+    public void fermer() {
+        actif = false;
+        LockSupport.unpark(consommateur);
+        try {
+            consommateur.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reveiller() {
+        if (endormi) {
+            LockSupport.unpark(consommateur);
+        }
+    }
+
+    private void consommer() {
+        List<Demande> lot = new ArrayList<>(tailleLot);
+        while (actif || producteursEnCours.get() > 0 || tete < queue.get() || !lot.isEmpty()) {
+            long position = tete;
+            int index = (int) (position & masque);
+            Demande demande = emplacements.get(index);
+            if (demande != null) {
+                emplacements.set(index, null);
+                tete = position + 1;
+                lot.add(demande);
+                if (lot.size() >= tailleLot) {
+                    valider(lot);
+                }
+                continue;
+            }
+
+            long attente = ATTENTE_INACTIF_NANOS;
+            if (!lot.isEmpty()) {
+                long age = System.nanoTime() - lot.get(0).soumission();
+                if (age >= fenetreNanos || !actif) {
+                    valider(lot);
+                    continue;
+                }
+                attente = fenetreNanos - age;
+            }
+            endormi = true;
+            if (emplacements.get(index) == null) {
+                LockSupport.parkNanos(attente);
+            }
+            endormi = false;
+        }
+    }
+
+    private void valider(List<Demande> lot) {
+        List<Transaction> transactions = new ArrayList<>(lot.size());
+        for (Demande demande : lot) {
+            transactions.add(demande.transaction());
+        }
+
+        long debut = System.nanoTime();
+        try {
+            int[] ids = transactionManager.executer(() -> transactionDAO.saveBatchWithIds(transactions));
+            long fin = System.nanoTime();
+            latencesCommit.enregistrer(fin - debut);
+            for (int i = 0; i < ids.length; i++) {
+                Demande demande = lot.get(i);
+                attentes.enregistrer(fin - demande.soumission());
+                demande.id().complete(ids[i]);
+            }
+            lots.increment();
+            lignes.add(lot.size());
+            tailleMax.accumulateAndGet(lot.size(), Math::max);
+        } catch (SQLException | RuntimeException e) {
+            if (lot.size() == 1) {
+                echecs.increment();
+                lot.get(0).id().completeExceptionally(e);
+            } else {
+                validerUneParUne(lot);
+            }
+        }
+        lot.clear();
+    }
+
+    // Les soldes des appelants sont déjà validés : on ne fait échouer que les lignes refusées.
+    private void validerUneParUne(List<Demande> lot) {
+        for (Demande demande : lot) {
+            try {
+                int[] ids = transactionManager.executer(() -> transactionDAO.saveBatchWithIds(List.of(demande.transaction())));
+                attentes.enregistrer(System.nanoTime() - demande.soumission());
+                demande.id().complete(ids[0]);
+                lignes.increment();
+            } catch (SQLException | RuntimeException e) {
+                echecs.increment();
+                demande.id().completeExceptionally(e);
+            }
+        }
+        lots.increment();
+    }
+}
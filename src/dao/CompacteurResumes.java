@@ -0,0 +1,59 @@
+package dao;
+
+import util.Executeurs;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Replie périodiquement les deltas des résumés dans les tables de base, que des rapports soient
+// lus ou non : les lectures de rapports restent en lecture seule et la taille des tables delta
+// reste bornée par ce qui s'écrit pendant une période.
+public final class CompacteurResumes {
+    private static volatile CompacteurResumes instance;
+
+    private final ScheduledExecutorService minuteur;
+    private final ResumeDAO resumeDAO = new ResumeDAO();
+
+    private CompacteurResumes(long periodeMillis) {
+        this.minuteur = Executors.newSingleThreadScheduledExecutor(Executeurs.fabriqueThreads("resume-compacteur"));
+        this.minuteur.scheduleWithFixedDelay(this::compacter, periodeMillis, periodeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Sans effet si le compacteur tourne déjà ; la période vient de bank.resume.compactageMillis.
+    public static void demarrer() {
+        if (instance == null) {
+            synchronized (CompacteurResumes.class) {
+                if (instance == null) {
+                    instance = new CompacteurResumes(Long.getLong("bank.resume.compactageMillis", 1_000L));
+                }
+            }
+        }
+    }
+
+    // Arrête le minuteur puis replie une dernière fois ce qui reste.
+    public static void arreter() {
+        synchronized (CompacteurResumes.class) {
+            if (instance != null) {
+                instance.minuteur.shutdown();
+                try {
+                    instance.minuteur.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                instance.compacter();
+                instance = null;
+            }
+        }
+    }
+
+    private void compacter() {
+        try {
+            resumeDAO.compacter();
+        } catch (SQLException | RuntimeException e) {
+            // Un échec laisse les deltas en place : les lectures restent exactes, le prochain passage reprend.
+            System.err.println("Compactage des résumés en échec : " + e.getMessage());
+        }
+    }
+}
@@ -3,60 +3,144 @@ package dao;
 import entity.Compte;
 import entity.CompteCourant;
 import entity.CompteEpargne;
+import util.Montant;
 
+import java.math.BigDecimal;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
 
 public class CompteDAO {
+    public static final String COLONNES = "id, code, solde, id_client, type_compte, decouvert, taux_interet, version";
+    private static final int COLONNE_VERSION = 8;
+    private static final int TAILLE_PAGE_INACTIFS = 1_000;
+    private static final String ESPACE_CURSEUR = "compte";
+    private static final CacheComptes CACHE = creerCache();
+
+    public record EmpreinteComptes(long nombre, long sommeVersions, int idMax) {}
+
+    public record CompteInactif(Compte compte, LocalDateTime derniereActivite) {}
+
     private Connection getConnection() throws SQLException {
         return DatabaseConnection.getInstance().getConnection();
     }
 
-    public void saveCompteCourant(CompteCourant compte) throws SQLException {
+    public int saveCompteCourant(CompteCourant compte) throws SQLException {
         String sql = "INSERT INTO compte (code, solde, id_client, type_compte, decouvert) VALUES (?, ?, ?, 'COURANT', ?)";
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, compte.getCode());
-            stmt.setDouble(2, compte.getSolde());
+            stmt.setBigDecimal(2, Montant.versDecimal(compte.getSolde()));
             stmt.setInt(3, compte.getIdClient());
-            stmt.setDouble(4, compte.getDecouvert());
+            stmt.setBigDecimal(4, Montant.versDecimal(compte.getDecouvert()));
             stmt.executeUpdate();
+
+            ResultSet rs = stmt.getGeneratedKeys();
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+            throw new SQLException("Échec de la création du compte, aucun ID généré");
         }
     }
 
-    public void saveCompteEpargne(CompteEpargne compte) throws SQLException {
+    public int saveCompteEpargne(CompteEpargne compte) throws SQLException {
         String sql = "INSERT INTO compte (code, solde, id_client, type_compte, taux_interet) VALUES (?, ?, ?, 'EPARGNE', ?)";
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, compte.getCode());
-            stmt.setDouble(2, compte.getSolde());
+            stmt.setBigDecimal(2, Montant.versDecimal(compte.getSolde()));
             stmt.setInt(3, compte.getIdClient());
             stmt.setDouble(4, compte.getTauxInteret());
             stmt.executeUpdate();
+
+            ResultSet rs = stmt.getGeneratedKeys();
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+            throw new SQLException("Échec de la création du compte, aucun ID généré");
         }
     }
 
     public Optional<Compte> findByCode(String code) throws SQLException {
-        String sql = "SELECT * FROM compte WHERE code = ?";
+        String sql = "SELECT " + COLONNES + " FROM compte WHERE code = ?";
+
+        CacheComptes.Ticket ticket = null;
+        if (CACHE != null && !TransactionManager.transactionActive()) {
+            Compte enCache = CACHE.lire(code);
+            if (enCache != null) {
+                return Optional.of(enCache);
+            }
+            ticket = CACHE.ticket(code);
+        }
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, code);
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                return Optional.of(mapResultSetToCompte(rs));
+                Compte compte = mapResultSetToCompte(rs);
+                if (ticket != null) {
+                    CACHE.remplir(ticket, compte, rs.getLong(COLONNE_VERSION));
+                }
+                return Optional.of(compte);
             }
             return Optional.empty();
         }
     }
 
+    public Map<Integer, Compte> findByIds(Collection<Integer> ids) throws SQLException {
+        String sql = "SELECT " + COLONNES + " FROM compte WHERE id = ANY(?)";
+        Map<Integer, Compte> comptes = new HashMap<>();
+        if (ids.isEmpty()) {
+            return comptes;
+        }
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Compte compte = mapResultSetToCompte(rs);
+                comptes.put(compte.getId(), compte);
+            }
+        }
+        return comptes;
+    }
+
+    public Map<Integer, List<Compte>> findByClientIds(Collection<Integer> clientIds) throws SQLException {
+        String sql = "SELECT " + COLONNES + " FROM compte WHERE id_client = ANY(?) ORDER BY id_client, id";
+        Map<Integer, List<Compte>> comptesParClient = new HashMap<>();
+        for (Integer clientId : clientIds) {
+            comptesParClient.put(clientId, new ArrayList<>());
+        }
+        if (comptesParClient.isEmpty()) {
+            return comptesParClient;
+        }
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", comptesParClient.keySet().toArray()));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Compte compte = mapResultSetToCompte(rs);
+                comptesParClient.get(compte.getIdClient()).add(compte);
+            }
+        }
+        return comptesParClient;
+    }
+
     public List<Compte> findByClientId(int clientId) throws SQLException {
-        String sql = "SELECT * FROM compte WHERE id_client = ?";
+        String sql = "SELECT " + COLONNES + " FROM compte WHERE id_client = ?";
         List<Compte> comptes = new ArrayList<>();
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, clientId);
             ResultSet rs = stmt.executeQuery();
 
@@ -67,11 +151,34 @@ public class CompteDAO {
         return comptes;
     }
 
+    public Page<Compte> findPage(String curseur, int taille) throws SQLException {
+        String sql = "SELECT " + COLONNES + " FROM compte WHERE id > ? ORDER BY id LIMIT ?";
+        Curseur.taille(taille, Page.TAILLE_MAX);
+        List<Compte> comptes = new ArrayList<>(taille + 1);
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, curseur == null ? Integer.MIN_VALUE : Curseur.lireId(ESPACE_CURSEUR, curseur));
+            stmt.setInt(2, taille + 1);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                comptes.add(mapResultSetToCompte(rs));
+            }
+        }
+        if (comptes.size() <= taille) {
+            return new Page<>(comptes, null);
+        }
+        comptes.remove(taille);
+        return new Page<>(comptes, Curseur.versJeton(ESPACE_CURSEUR, comptes.get(taille - 1).getId()));
+    }
+
     public List<Compte> findAll() throws SQLException {
-        String sql = "SELECT * FROM compte";
+        String sql = "SELECT " + COLONNES + " FROM compte";
         List<Compte> comptes = new ArrayList<>();
 
-        try (Statement stmt = getConnection().createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
@@ -81,37 +188,177 @@ public class CompteDAO {
         return comptes;
     }
 
-    public void updateSolde(String code, double nouveauSolde) throws SQLException {
-        String sql = "UPDATE compte SET solde = ? WHERE code = ?";
+    // Les mois archivés comptent par transaction_archive_compte.derniere_date : un compte actif dans un
+    // mois archivé postérieur au seuil n'est pas inactif, et sa dernière activité peut y être.
+    public List<CompteInactif> findInactifs(LocalDateTime seuil, int apresIdCompte, int limite) throws SQLException {
+        String sql = "SELECT " + COLONNES + ", GREATEST(" +
+                "(SELECT MAX(t.date) FROM transaction t WHERE t.id_compte = co.id), " +
+                "(SELECT MAX(a.derniere_date) FROM transaction_archive_compte a WHERE a.id_compte = co.id)) AS derniere_activite " +
+                "FROM compte co WHERE co.id > ? " +
+                "AND NOT EXISTS (SELECT 1 FROM transaction t WHERE t.id_compte = co.id AND t.date >= ?) " +
+                "AND NOT EXISTS (SELECT 1 FROM transaction_archive_compte a WHERE a.id_compte = co.id AND a.derniere_date >= ?) " +
+                "ORDER BY co.id LIMIT ?";
+        List<CompteInactif> inactifs = new ArrayList<>();
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
-            stmt.setDouble(1, nouveauSolde);
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, apresIdCompte);
+            stmt.setTimestamp(2, Timestamp.valueOf(seuil));
+            stmt.setTimestamp(3, Timestamp.valueOf(seuil));
+            stmt.setInt(4, limite);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                inactifs.add(new CompteInactif(
+                        mapResultSetToCompte(rs),
+                        rs.getObject(COLONNE_VERSION + 1, LocalDateTime.class)
+                ));
+            }
+        }
+        return inactifs;
+    }
+
+    public void forEachInactif(LocalDateTime seuil, Consumer<CompteInactif> traitement) throws SQLException {
+        int dernierId = 0;
+        List<CompteInactif> page;
+        do {
+            page = findInactifs(seuil, dernierId, TAILLE_PAGE_INACTIFS);
+            for (CompteInactif inactif : page) {
+                traitement.accept(inactif);
+                dernierId = inactif.compte().getId();
+            }
+        } while (page.size() == TAILLE_PAGE_INACTIFS);
+    }
+
+    public void updateSolde(String code, long nouveauSolde) throws SQLException {
+        String sql = "UPDATE compte SET solde = ?, version = version + 1 WHERE code = ? RETURNING " + COLONNES;
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBigDecimal(1, Montant.versDecimal(nouveauSolde));
             stmt.setString(2, code);
-            stmt.executeUpdate();
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                publierEnCache(mapResultSetToCompte(rs), rs.getLong(COLONNE_VERSION));
+            }
+        }
+    }
+
+    public Optional<MouvementSolde> applyDelta(String code, long delta) throws SQLException {
+        String sql = delta >= 0
+                ? "UPDATE compte SET solde = solde + ?, version = version + 1 WHERE code = ? RETURNING " + COLONNES
+                : "UPDATE compte SET solde = solde + ?, version = version + 1 WHERE code = ? " +
+                  "AND solde + ? >= CASE WHEN type_compte = 'COURANT' THEN -COALESCE(decouvert, 0) ELSE 0 END " +
+                  "RETURNING " + COLONNES;
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            BigDecimal montant = Montant.versDecimal(delta);
+            stmt.setBigDecimal(1, montant);
+            stmt.setString(2, code);
+            if (delta < 0) {
+                stmt.setBigDecimal(3, montant);
+            }
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                Compte compte = mapResultSetToCompte(rs);
+                publierEnCache(compte, rs.getLong(COLONNE_VERSION));
+                return Optional.of(new MouvementSolde(code, compte.getId(), compte.getIdClient(), compte.getSolde()));
+            }
+            return Optional.empty();
+        }
+    }
+
+    // Deltas déjà autorisés ailleurs (registre en mémoire) : aucun contrôle de découvert ici.
+    // Les identifiants doivent être distincts, UPDATE ... FROM n'appliquant qu'une ligne source par compte.
+    public void applyDeltas(int[] ids, long[] deltas) throws SQLException {
+        String sql = "UPDATE compte SET solde = solde + d.delta, version = version + 1 " +
+                "FROM unnest(?::integer[], ?::numeric[]) AS d(id_compte, delta) " +
+                "WHERE id = d.id_compte RETURNING " + COLONNES;
+        Integer[] identifiants = new Integer[ids.length];
+        BigDecimal[] montants = new BigDecimal[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            identifiants[i] = ids[i];
+            montants[i] = Montant.versDecimal(deltas[i]);
+        }
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", identifiants));
+            stmt.setArray(2, conn.createArrayOf("numeric", montants));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                publierEnCache(mapResultSetToCompte(rs), rs.getLong(COLONNE_VERSION));
+            }
+        }
+    }
+
+    public void forEachCompte(Consumer<Compte> traitement) throws SQLException {
+        String curseur = null;
+        do {
+            Page<Compte> page = findPage(curseur, Page.TAILLE_MAX);
+            page.elements().forEach(traitement);
+            curseur = page.curseurSuivant();
+        } while (curseur != null);
+    }
+
+    public EmpreinteComptes empreinte() throws SQLException {
+        String sql = "SELECT COUNT(*), COALESCE(SUM(version), 0), COALESCE(MAX(id), 0) FROM compte";
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return new EmpreinteComptes(rs.getLong(1), rs.getLong(2), rs.getInt(3));
         }
     }
 
     public void delete(String code) throws SQLException {
         String sql = "DELETE FROM compte WHERE code = ?";
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, code);
             stmt.executeUpdate();
         }
+        if (CACHE != null) {
+            TransactionManager.apresCommit(() -> CACHE.invalider(code));
+        }
+    }
+
+    public static CacheMetrics getCacheMetrics() {
+        return CACHE != null ? CACHE.metriques() : new CacheMetrics(false, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    private static CacheComptes creerCache() {
+        boolean actif = Boolean.parseBoolean(System.getProperty("bank.cache.comptes.actif", "true"));
+        int capacite = Integer.getInteger("bank.cache.comptes.capacite", 10_000);
+        return actif && capacite > 0 ? new CacheComptes(capacite) : null;
+    }
+
+    private void publierEnCache(Compte compte, long version) {
+        if (CACHE != null) {
+            TransactionManager.apresCommit(() -> CACHE.ecrire(compte, version));
+        }
     }
 
-    private Compte mapResultSetToCompte(ResultSet rs) throws SQLException {
-        String code = rs.getString("code");
-        double solde = rs.getDouble("solde");
-        int idClient = rs.getInt("id_client");
-        String typeCompte = rs.getString("type_compte");
+    // Lecture positionnelle : le ResultSet doit suivre l'ordre de COLONNES.
+    public static Compte mapResultSetToCompte(ResultSet rs) throws SQLException {
+        int id = rs.getInt(1);
+        String code = rs.getString(2);
+        long solde = Montant.depuisDecimal(rs.getBigDecimal(3));
+        int idClient = rs.getInt(4);
+        String typeCompte = rs.getString(5);
 
         if ("COURANT".equals(typeCompte)) {
-            double decouvert = rs.getDouble("decouvert");
-            return new CompteCourant(code, solde, idClient, decouvert);
+            long decouvert = Montant.depuisDecimal(rs.getBigDecimal(6));
+            return new CompteCourant(id, code, solde, idClient, decouvert);
         } else if ("EPARGNE".equals(typeCompte)) {
-            double tauxInteret = rs.getDouble("taux_interet");
-            return new CompteEpargne(code, solde, idClient, tauxInteret);
+            double tauxInteret = rs.getDouble(7);
+            return new CompteEpargne(id, code, solde, idClient, tauxInteret);
         }
 
         throw new SQLException("Type de compte inconnu : " + typeCompte);
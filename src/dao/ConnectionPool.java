@@ -0,0 +1,238 @@
+package dao;
+
+import util.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionPool {
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int tailleMax;
+    private final long timeoutAttenteMillis;
+    private final long delaiSansValidationMillis;
+    private final int timeoutValidationSecondes;
+    private final int tailleCacheInstructions;
+
+    private final Semaphore permis;
+    private final ConcurrentLinkedDeque<ConnexionLibre> libres = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger actives = new AtomicInteger();
+    private final LatencyHistogram tempsAttente = new LatencyHistogram();
+    private final LatencyHistogram latenceEmprunt = new LatencyHistogram();
+    private final LongAdder instructionsSucces = new LongAdder();
+    private final LongAdder instructionsEchecs = new LongAdder();
+    private final LongAdder instructionsEvictions = new LongAdder();
+    private volatile boolean ferme;
+
+    public ConnectionPool(String url, String username, String password, int tailleMax,
+                          long timeoutAttenteMillis, long delaiSansValidationMillis, int timeoutValidationSecondes,
+                          int tailleCacheInstructions) {
+        if (tailleMax <= 0) {
+            throw new IllegalArgumentException("La taille du pool doit être positive");
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.tailleMax = tailleMax;
+        this.timeoutAttenteMillis = timeoutAttenteMillis;
+        this.delaiSansValidationMillis = delaiSansValidationMillis;
+        this.timeoutValidationSecondes = timeoutValidationSecondes;
+        this.tailleCacheInstructions = tailleCacheInstructions;
+        this.permis = new Semaphore(tailleMax, true);
+    }
+
+    public Connection emprunter() throws SQLException {
+        if (ferme) {
+            throw new SQLException("Le pool de connexions est fermé");
+        }
+
+        long debut = System.nanoTime();
+        try {
+            if (!permis.tryAcquire(timeoutAttenteMillis, TimeUnit.MILLISECONDS)) {
+                tempsAttente.enregistrer(System.nanoTime() - debut);
+                throw new SQLTimeoutException("Aucune connexion disponible après " + timeoutAttenteMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attente d'une connexion interrompue", e);
+        }
+        tempsAttente.enregistrer(System.nanoTime() - debut);
+
+        try {
+            Physique physique = obtenirConnexionValide();
+            actives.incrementAndGet();
+            latenceEmprunt.enregistrer(System.nanoTime() - debut);
+            return envelopper(physique);
+        } catch (SQLException | RuntimeException e) {
+            permis.release();
+            throw e;
+        }
+    }
+
+    public PoolMetrics metriques() {
+        return new PoolMetrics(
+                tailleMax,
+                actives.get(),
+                libres.size(),
+                permis.getQueueLength(),
+                tempsAttente,
+                latenceEmprunt,
+                instructionsSucces.sum(),
+                instructionsEchecs.sum(),
+                instructionsEvictions.sum()
+        );
+    }
+
+    public void fermer() {
+        ferme = true;
+        ConnexionLibre libre;
+        while ((libre = libres.pollFirst()) != null) {
+            fermerPhysique(libre.physique());
+        }
+    }
+
+    private Physique obtenirConnexionValide() throws SQLException {
+        ConnexionLibre libre;
+        while ((libre = libres.pollFirst()) != null) {
+            if (estValide(libre)) {
+                return libre.physique();
+            }
+            fermerPhysique(libre.physique());
+        }
+
+        Connection connexion = DriverManager.getConnection(url, username, password);
+        CacheInstructions instructions = tailleCacheInstructions > 0
+                ? new CacheInstructions(connexion, tailleCacheInstructions,
+                        instructionsSucces, instructionsEchecs, instructionsEvictions)
+                : null;
+        return new Physique(connexion, instructions);
+    }
+
+    // Une connexion restituée récemment est considérée valide sans aller-retour réseau.
+    private boolean estValide(ConnexionLibre libre) {
+        try {
+            Connection connexion = libre.physique().connexion();
+            if (connexion.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - libre.restitueeA() < delaiSansValidationMillis) {
+                return true;
+            }
+            return connexion.isValid(timeoutValidationSecondes);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void restituer(Physique physique) {
+        actives.decrementAndGet();
+        try {
+            Connection connexion = physique.connexion();
+            if (ferme || connexion.isClosed()) {
+                fermerPhysique(physique);
+                return;
+            }
+            if (!connexion.getAutoCommit()) {
+                connexion.rollback();
+                connexion.setAutoCommit(true);
+            }
+            libres.offerFirst(new ConnexionLibre(physique, System.currentTimeMillis()));
+        } catch (SQLException e) {
+            fermerPhysique(physique);
+        } finally {
+            permis.release();
+        }
+    }
+
+    private void fermerPhysique(Physique physique) {
+        if (physique.instructions() != null) {
+            physique.instructions().vider();
+        }
+        try {
+            physique.connexion().close();
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture d'une connexion : " + e.getMessage());
+        }
+    }
+
+    private Connection envelopper(Physique physique) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnexionEmpruntee(physique)
+        );
+    }
+
+    private record Physique(Connection connexion, CacheInstructions instructions) {}
+
+    private record ConnexionLibre(Physique physique, long restitueeA) {}
+
+    private final class ConnexionEmpruntee implements InvocationHandler {
+        private final Physique physique;
+        private boolean restituee;
+
+        private ConnexionEmpruntee(Physique physique) {
+            this.physique = physique;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!restituee) {
+                        restituee = true;
+                        restituer(physique);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return restituee || physique.connexion().isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "ConnexionEmpruntee[" + physique.connexion() + "]";
+                }
+                default -> {
+                    if (restituee) {
+                        throw new SQLException("Connexion déjà restituée au pool");
+                    }
+                }
+            }
+
+            if (physique.instructions() != null && "prepareStatement".equals(method.getName())) {
+                Class<?>[] parametres = method.getParameterTypes();
+                if (parametres.length == 1) {
+                    return physique.instructions().preparer((Connection) proxy, (String) args[0],
+                            Statement.NO_GENERATED_KEYS);
+                }
+                if (parametres.length == 2 && parametres[1] == int.class) {
+                    return physique.instructions().preparer((Connection) proxy, (String) args[0], (Integer) args[1]);
+                }
+            }
+
+            try {
+                return method.invoke(physique.connexion(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package dao;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Jeton opaque de pagination par clé : la dernière clé vue, préfixée de son espace
+// pour qu'un curseur de clients ne soit pas rejoué sur des transactions.
+final class Curseur {
+    record Position(LocalDateTime date, int id) {}
+
+    private static final char SEPARATEUR = '|';
+
+    private Curseur() {
+    }
+
+    static String versJeton(String espace, int id) {
+        return encoder(espace + SEPARATEUR + id);
+    }
+
+    static String versJeton(String espace, LocalDateTime date, int id) {
+        return encoder(espace + SEPARATEUR + date + SEPARATEUR + id);
+    }
+
+    static int lireId(String espace, String jeton) {
+        String[] parties = decoder(espace, jeton, 2);
+        return entier(parties[1]);
+    }
+
+    static Position lirePosition(String espace, String jeton) {
+        String[] parties = decoder(espace, jeton, 3);
+        try {
+            return new Position(LocalDateTime.parse(parties[1]), entier(parties[2]));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Curseur invalide");
+        }
+    }
+
+    static int taille(int taille, int tailleMax) {
+        if (taille < 1 || taille > tailleMax) {
+            throw new IllegalArgumentException("La taille de page doit être entre 1 et " + tailleMax);
+        }
+        return taille;
+    }
+
+    private static String encoder(String texte) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texte.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decoder(String espace, String jeton, int nombreParties) {
+        String[] parties;
+        try {
+            parties = new String(Base64.getUrlDecoder().decode(jeton), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARATEUR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide");
+        }
+        if (parties.length != nombreParties || !parties[0].equals(espace)) {
+            throw new IllegalArgumentException("Curseur invalide");
+        }
+        return parties;
+    }
+
+    private static int entier(String texte) {
+        try {
+            return Integer.parseInt(texte);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Curseur invalide");
+        }
+    }
+}
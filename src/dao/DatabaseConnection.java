@@ -1,21 +1,25 @@
-
 package dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:postgresql://localhost:5432/bankV2";
+    private static final String URL = "jdbc:postgresql://localhost:5432/bankV2?reWriteBatchedInserts=true";
     private static final String USERNAME = "postgres";
     private static final String PASSWORD = "123";
-    private static DatabaseConnection instance;
-    private Connection connection;
+    private static final int TAILLE_POOL = Integer.getInteger("bank.pool.taille", 10);
+    private static final long TIMEOUT_ATTENTE_MS = Long.getLong("bank.pool.timeoutAttenteMs", 5_000L);
+    private static final long DELAI_SANS_VALIDATION_MS = Long.getLong("bank.pool.delaiSansValidationMs", 500L);
+    private static final int TIMEOUT_VALIDATION_S = 2;
+    private static final int TAILLE_CACHE_INSTRUCTIONS = Integer.getInteger("bank.pool.cacheInstructions", 64);
+    private static volatile DatabaseConnection instance;
+    private final ConnectionPool pool;
 
     private DatabaseConnection() throws SQLException {
         try {
             Class.forName("org.postgresql.Driver");
-            this.connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+            this.pool = new ConnectionPool(URL, USERNAME, PASSWORD, TAILLE_POOL,
+                    TIMEOUT_ATTENTE_MS, DELAI_SANS_VALIDATION_MS, TIMEOUT_VALIDATION_S, TAILLE_CACHE_INSTRUCTIONS);
         } catch (ClassNotFoundException e) {
             System.err.println("Driver PostgreSQL non trouvé : " + e.getMessage());
             throw new SQLException("Impossible de charger le driver PostgreSQL", e);
@@ -23,19 +27,37 @@ public class DatabaseConnection {
     }
 
     public static DatabaseConnection getInstance() throws SQLException {
-        if (instance == null || instance.getConnection().isClosed()) {
-            instance = new DatabaseConnection();
+        DatabaseConnection courante = instance;
+        if (courante == null) {
+            synchronized (DatabaseConnection.class) {
+                courante = instance;
+                if (courante == null) {
+                    courante = new DatabaseConnection();
+                    instance = courante;
+                }
+            }
+        }
+        return courante;
+    }
+
+    public Connection getConnection() throws SQLException {
+        Connection transactionnelle = TransactionManager.connexionCourante();
+        if (transactionnelle != null) {
+            return transactionnelle;
         }
-        return instance;
+        return pool.emprunter();
     }
 
-    public Connection getConnection() {
-        return connection;
+    public PoolMetrics getMetrics() {
+        return pool.metriques();
     }
 
-    public void closeConnection() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+    public void closeConnection() {
+        synchronized (DatabaseConnection.class) {
+            if (instance == this) {
+                instance = null;
+            }
         }
+        pool.fermer();
     }
 }
@@ -0,0 +1,33 @@
+package dao;
+
+import java.sql.*;
+
+public class JournalDAO {
+
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
+    }
+
+    public long findSequenceExpediee() throws SQLException {
+        String sql = "SELECT sequence FROM journal_expedition";
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // À appeler dans la transaction qui insère le lot : le point de reprise avance avec les lignes.
+    // false si le point de reprise avait déjà atteint sequence.
+    public boolean updateSequenceExpediee(long sequence) throws SQLException {
+        String sql = "UPDATE journal_expedition SET sequence = ? WHERE sequence < ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, sequence);
+            stmt.setLong(2, sequence);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+}
@@ -0,0 +1,3 @@
+package dao;
+
+public record MouvementSolde(String code, int idCompte, int idClient, long nouveauSolde) {}
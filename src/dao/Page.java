@@ -0,0 +1,11 @@
+package dao;
+
+import java.util.List;
+
+public record Page<T>(List<T> elements, String curseurSuivant) {
+    public static final int TAILLE_MAX = 1_000;
+
+    public boolean aSuite() {
+        return curseurSuivant != null;
+    }
+}
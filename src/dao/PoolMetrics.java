@@ -0,0 +1,21 @@
+package dao;
+
+import util.LatencyHistogram;
+
+public record PoolMetrics(int tailleMax, int actives, int libres, int enAttente,
+                          LatencyHistogram tempsAttente, LatencyHistogram latenceEmprunt,
+                          long instructionsSucces, long instructionsEchecs, long instructionsEvictions) {
+
+    public double tauxSuccesInstructions() {
+        long total = instructionsSucces + instructionsEchecs;
+        return total == 0 ? 0.0 : (double) instructionsSucces / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pool[max=%d, actives=%d, libres=%d, en attente=%d]%n  attente : %s%n  emprunt : %s"
+                        + "%n  instructions : succès=%d, échecs=%d (%.1f%%), évictions=%d",
+                tailleMax, actives, libres, enAttente, tempsAttente.resume(), latenceEmprunt.resume(),
+                instructionsSucces, instructionsEchecs, tauxSuccesInstructions() * 100, instructionsEvictions);
+    }
+}
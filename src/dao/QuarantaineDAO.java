@@ -0,0 +1,47 @@
+package dao;
+
+import entity.Transaction;
+import util.Montant;
+
+import java.sql.*;
+
+public class QuarantaineDAO {
+
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
+    }
+
+    // reference : numéro de lot du registre ou séquence du journal. delta et transaction peuvent être
+    // null (écriture de journal sans mouvement de solde, ajustement de solde sans transaction).
+    public void save(String origine, long reference, int idCompte, Long delta, Transaction transaction, String erreur)
+            throws SQLException {
+        String sql = "INSERT INTO transaction_quarantaine (origine, reference, id_compte, delta, date, montant, type, lieu, erreur) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, origine);
+            stmt.setLong(2, reference);
+            stmt.setInt(3, idCompte);
+            stmt.setBigDecimal(4, delta != null ? Montant.versDecimal(delta) : null);
+            stmt.setTimestamp(5, transaction != null ? Timestamp.valueOf(transaction.date()) : null);
+            stmt.setBigDecimal(6, transaction != null ? Montant.versDecimal(transaction.montant()) : null);
+            stmt.setString(7, transaction != null ? transaction.type().name() : null);
+            stmt.setString(8, transaction != null ? transaction.lieu() : null);
+            stmt.setString(9, erreur != null ? erreur : "");
+            stmt.executeUpdate();
+        }
+    }
+
+    public long count(String origine) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM transaction_quarantaine WHERE origine = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, origine);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
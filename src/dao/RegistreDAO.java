@@ -0,0 +1,32 @@
+package dao;
+
+import java.sql.*;
+
+public class RegistreDAO {
+
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
+    }
+
+    public long findDernierLot() throws SQLException {
+        String sql = "SELECT lot FROM registre_persistance";
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // À appeler dans la transaction qui applique le lot ; false si ce lot a déjà été validé.
+    public boolean updateDernierLot(long lot) throws SQLException {
+        String sql = "UPDATE registre_persistance SET lot = ? WHERE lot < ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, lot);
+            stmt.setLong(2, lot);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+}
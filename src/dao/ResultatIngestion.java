@@ -0,0 +1,19 @@
+package dao;
+
+import java.sql.SQLException;
+import java.util.List;
+
+public record ResultatIngestion(long lignesInserees, long lignesRejetees, List<EchecLot> echecs, long dureeNanos) {
+
+    public record EchecLot(long premiereLigne, int taille, SQLException cause) {}
+
+    public double lignesParSeconde() {
+        return dureeNanos == 0 ? 0.0 : lignesInserees * 1_000_000_000.0 / dureeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d lignes insérées, %,d rejetées (%d lot(s) en échec) en %.2f s — %,.0f lignes/s",
+                lignesInserees, lignesRejetees, echecs.size(), dureeNanos / 1_000_000_000.0, lignesParSeconde());
+    }
+}
@@ -0,0 +1,115 @@
+package dao;
+
+import dao.StatistiqueDAO.StatistiqueType;
+import entity.TypeTransaction;
+import util.Montant;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ResumeDAO {
+
+    public record ResumeBanque(long nbClients, long nbComptes, long nbTransactions, long soldeTotal) {}
+
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
+    }
+
+    public ResumeBanque resumeBanque() throws SQLException {
+        String sql = "SELECT SUM(nb_clients) AS nb_clients, SUM(nb_comptes) AS nb_comptes, " +
+                "SUM(nb_transactions) AS nb_transactions, SUM(solde_total) AS solde_total FROM (" +
+                "SELECT nb_clients, nb_comptes, nb_transactions, solde_total FROM resume_banque " +
+                "UNION ALL SELECT nb_clients, nb_comptes, nb_transactions, solde_total FROM resume_banque_delta) r";
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return new ResumeBanque(
+                    rs.getLong("nb_clients"),
+                    rs.getLong("nb_comptes"),
+                    rs.getLong("nb_transactions"),
+                    Montant.depuisDecimal(rs.getBigDecimal("solde_total"))
+            );
+        }
+    }
+
+    public List<StatistiqueType> resumeParType(LocalDate debut, LocalDate finExclue) throws SQLException {
+        String sql = "SELECT type, SUM(nombre) AS nombre, SUM(volume) AS volume FROM (" +
+                "SELECT type, nombre, volume FROM resume_journalier WHERE jour >= ? AND jour < ? " +
+                "UNION ALL SELECT type, nombre, volume FROM resume_journalier_delta WHERE jour >= ? AND jour < ?) r " +
+                "GROUP BY type HAVING SUM(nombre) <> 0 ORDER BY type";
+        List<StatistiqueType> statistiques = new ArrayList<>();
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(debut));
+            stmt.setDate(2, Date.valueOf(finExclue));
+            stmt.setDate(3, Date.valueOf(debut));
+            stmt.setDate(4, Date.valueOf(finExclue));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                long nombre = rs.getLong("nombre");
+                long volume = Montant.depuisDecimal(rs.getBigDecimal("volume"));
+                statistiques.add(new StatistiqueType(
+                        TypeTransaction.depuisCode(rs.getString("type")),
+                        nombre,
+                        volume,
+                        Montant.moyenne(volume, nombre)
+                ));
+            }
+        }
+        return statistiques;
+    }
+
+    // Replie les deltas accumulés dans les tables de base ; appelé par CompacteurResumes, les lectures
+    // restent exactes entre deux compactages.
+    public void compacter() throws SQLException {
+        String sqlBanque = "WITH d AS (DELETE FROM resume_banque_delta RETURNING *) " +
+                "UPDATE resume_banque b SET " +
+                "nb_clients = b.nb_clients + s.nb_clients, nb_comptes = b.nb_comptes + s.nb_comptes, " +
+                "nb_transactions = b.nb_transactions + s.nb_transactions, solde_total = b.solde_total + s.solde_total " +
+                "FROM (SELECT COALESCE(SUM(nb_clients), 0) AS nb_clients, COALESCE(SUM(nb_comptes), 0) AS nb_comptes, " +
+                "COALESCE(SUM(nb_transactions), 0) AS nb_transactions, COALESCE(SUM(solde_total), 0) AS solde_total " +
+                "FROM d) s WHERE (SELECT COUNT(*) FROM d) > 0";
+        String sqlJournalier = "WITH d AS (DELETE FROM resume_journalier_delta RETURNING *) " +
+                "INSERT INTO resume_journalier AS r (jour, type, nombre, volume) " +
+                "SELECT jour, type, SUM(nombre), SUM(volume) FROM d GROUP BY jour, type ORDER BY jour, type " +
+                "ON CONFLICT (jour, type) DO UPDATE SET nombre = r.nombre + EXCLUDED.nombre, volume = r.volume + EXCLUDED.volume";
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sqlBanque);
+            stmt.executeUpdate(sqlJournalier);
+        }
+    }
+
+    // Recalcule les résumés à partir des tables sources, écritures bloquées le temps du calcul.
+    // Les mois archivés y restent comptés, d'après les agrégats gardés à l'archivage.
+    public void reconstruire() throws SQLException {
+        new TransactionManager().executer(() -> {
+            try (Connection conn = getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("LOCK TABLE client, compte, transaction, transaction_archive, transaction_archive_jour IN SHARE MODE");
+                stmt.execute("LOCK TABLE resume_banque, resume_banque_delta, resume_journalier, resume_journalier_delta " +
+                        "IN EXCLUSIVE MODE");
+                stmt.execute("DELETE FROM resume_journalier_delta");
+                stmt.execute("DELETE FROM resume_journalier");
+                stmt.execute("INSERT INTO resume_journalier (jour, type, nombre, volume) " +
+                        "SELECT jour, type, SUM(nombre), SUM(volume) FROM (" +
+                        "SELECT date::DATE AS jour, type, COUNT(*) AS nombre, SUM(montant) AS volume FROM transaction GROUP BY 1, 2 " +
+                        "UNION ALL SELECT jour, type, nombre, volume FROM transaction_archive_jour) r GROUP BY 1, 2");
+                stmt.execute("DELETE FROM resume_banque_delta");
+                stmt.execute("UPDATE resume_banque SET " +
+                        "nb_clients = (SELECT COUNT(*) FROM client), " +
+                        "nb_comptes = (SELECT COUNT(*) FROM compte), " +
+                        "nb_transactions = (SELECT COUNT(*) FROM transaction) + (SELECT COALESCE(SUM(nombre), 0) FROM transaction_archive), " +
+                        "solde_total = (SELECT COALESCE(SUM(solde), 0) FROM compte)");
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,437 @@
+package dao;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SchemaManager {
+    private static final String DDL_RESUMES = """
+            CREATE TABLE resume_banque (
+                id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+                nb_clients BIGINT NOT NULL DEFAULT 0,
+                nb_comptes BIGINT NOT NULL DEFAULT 0,
+                nb_transactions BIGINT NOT NULL DEFAULT 0,
+                solde_total NUMERIC(20, 2) NOT NULL DEFAULT 0
+            );
+            INSERT INTO resume_banque DEFAULT VALUES;
+
+            CREATE TABLE resume_banque_delta (
+                nb_clients BIGINT NOT NULL DEFAULT 0,
+                nb_comptes BIGINT NOT NULL DEFAULT 0,
+                nb_transactions BIGINT NOT NULL DEFAULT 0,
+                solde_total NUMERIC(20, 2) NOT NULL DEFAULT 0
+            );
+
+            CREATE TABLE resume_journalier (
+                jour DATE NOT NULL,
+                type type_transaction NOT NULL,
+                nombre BIGINT NOT NULL DEFAULT 0,
+                volume NUMERIC(20, 2) NOT NULL DEFAULT 0,
+                PRIMARY KEY (jour, type)
+            );
+
+            CREATE TABLE resume_journalier_delta (
+                jour DATE NOT NULL,
+                type type_transaction NOT NULL,
+                nombre BIGINT NOT NULL,
+                volume NUMERIC(20, 2) NOT NULL
+            );
+            """;
+
+    // Les déclencheurs n'ajoutent que des lignes delta (une par instruction) : aucun verrou
+    // partagé entre écrivains. CompacteurResumes replie ensuite périodiquement les deltas dans les tables de base.
+    private static final String DDL_DECLENCHEURS = """
+            CREATE OR REPLACE FUNCTION resume_transactions_ajoutees() RETURNS trigger
+            LANGUAGE plpgsql AS $$
+            BEGIN
+                INSERT INTO resume_banque_delta (nb_transactions) SELECT COUNT(*) FROM nouvelles;
+                INSERT INTO resume_journalier_delta (jour, type, nombre, volume)
+                SELECT date::DATE, type, COUNT(*), SUM(montant) FROM nouvelles GROUP BY 1, 2;
+                RETURN NULL;
+            END $$;
+
+            CREATE OR REPLACE FUNCTION resume_transactions_supprimees() RETURNS trigger
+            LANGUAGE plpgsql AS $$
+            BEGIN
+                INSERT INTO resume_banque_delta (nb_transactions) SELECT -COUNT(*) FROM anciennes;
+                INSERT INTO resume_journalier_delta (jour, type, nombre, volume)
+                SELECT date::DATE, type, -COUNT(*), -SUM(montant) FROM anciennes GROUP BY 1, 2;
+                RETURN NULL;
+            END $$;
+
+            CREATE OR REPLACE FUNCTION resume_comptes_ajoutes() RETURNS trigger
+            LANGUAGE plpgsql AS $$
+            BEGIN
+                INSERT INTO resume_banque_delta (nb_comptes, solde_total)
+                SELECT COUNT(*), COALESCE(SUM(solde), 0) FROM nouvelles;
+                RETURN NULL;
+            END $$;
+
+            CREATE OR REPLACE FUNCTION resume_comptes_modifies() RETURNS trigger
+            LANGUAGE plpgsql AS $$
+            BEGIN
+                INSERT INTO resume_banque_delta (solde_total)
+                SELECT delta FROM (
+                    SELECT (SELECT COALESCE(SUM(solde), 0) FROM nouvelles)
+                         - (SELECT COALESCE(SUM(solde), 0) FROM anciennes) AS delta
+                ) d WHERE delta <> 0;
+                RETURN NULL;
+            END $$;
+
+            CREATE OR REPLACE FUNCTION resume_comptes_supprimes() RETURNS trigger
+            LANGUAGE plpgsql AS $$
+            BEGIN
+                INSERT INTO resume_banque_delta (nb_comptes, solde_total)
+                SELECT -COUNT(*), -COALESCE(SUM(solde), 0) FROM anciennes;
+                RETURN NULL;
+            END $$;
+
+            CREATE OR REPLACE FUNCTION resume_clients_ajoutes() RETURNS trigger
+            LANGUAGE plpgsql AS $$
+            BEGIN
+                INSERT INTO resume_banque_delta (nb_clients) SELECT COUNT(*) FROM nouvelles;
+                RETURN NULL;
+            END $$;
+
+            CREATE OR REPLACE FUNCTION resume_clients_supprimes() RETURNS trigger
+            LANGUAGE plpgsql AS $$
+            BEGIN
+                INSERT INTO resume_banque_delta (nb_clients) SELECT -COUNT(*) FROM anciennes;
+                RETURN NULL;
+            END $$;
+
+            DROP TRIGGER IF EXISTS resume_transactions_ajoutees ON transaction;
+            CREATE TRIGGER resume_transactions_ajoutees AFTER INSERT ON transaction
+                REFERENCING NEW TABLE AS nouvelles
+                FOR EACH STATEMENT EXECUTE FUNCTION resume_transactions_ajoutees();
+
+            DROP TRIGGER IF EXISTS resume_transactions_supprimees ON transaction;
+            CREATE TRIGGER resume_transactions_supprimees AFTER DELETE ON transaction
+                REFERENCING OLD TABLE AS anciennes
+                FOR EACH STATEMENT EXECUTE FUNCTION resume_transactions_supprimees();
+
+            DROP TRIGGER IF EXISTS resume_comptes_ajoutes ON compte;
+            CREATE TRIGGER resume_comptes_ajoutes AFTER INSERT ON compte
+                REFERENCING NEW TABLE AS nouvelles
+                FOR EACH STATEMENT EXECUTE FUNCTION resume_comptes_ajoutes();
+
+            DROP TRIGGER IF EXISTS resume_comptes_modifies ON compte;
+            CREATE TRIGGER resume_comptes_modifies AFTER UPDATE ON compte
+                REFERENCING OLD TABLE AS anciennes NEW TABLE AS nouvelles
+                FOR EACH STATEMENT EXECUTE FUNCTION resume_comptes_modifies();
+
+            DROP TRIGGER IF EXISTS resume_comptes_supprimes ON compte;
+            CREATE TRIGGER resume_comptes_supprimes AFTER DELETE ON compte
+                REFERENCING OLD TABLE AS anciennes
+                FOR EACH STATEMENT EXECUTE FUNCTION resume_comptes_supprimes();
+
+            DROP TRIGGER IF EXISTS resume_clients_ajoutes ON client;
+            CREATE TRIGGER resume_clients_ajoutes AFTER INSERT ON client
+                REFERENCING NEW TABLE AS nouvelles
+                FOR EACH STATEMENT EXECUTE FUNCTION resume_clients_ajoutes();
+
+            DROP TRIGGER IF EXISTS resume_clients_supprimes ON client;
+            CREATE TRIGGER resume_clients_supprimes AFTER DELETE ON client
+                REFERENCING OLD TABLE AS anciennes
+                FOR EACH STATEMENT EXECUTE FUNCTION resume_clients_supprimes();
+            """;
+
+    private static final String DDL_JOURNAL = """
+            CREATE TABLE IF NOT EXISTS journal_expedition (
+                id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+                sequence BIGINT NOT NULL DEFAULT 0
+            );
+            INSERT INTO journal_expedition DEFAULT VALUES ON CONFLICT DO NOTHING;
+            """;
+
+    // Dernier lot du Persisteur validé en base : un lot rejoué après un commit ambigu est ignoré.
+    private static final String DDL_REGISTRE = """
+            CREATE TABLE IF NOT EXISTS registre_persistance (
+                id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+                lot BIGINT NOT NULL DEFAULT 0
+            );
+            INSERT INTO registre_persistance DEFAULT VALUES ON CONFLICT DO NOTHING;
+            """;
+
+    // Écritures que la base refuse définitivement (débordement, contrainte...), mises de côté par le
+    // Persisteur du registre ou l'expéditeur du journal plutôt que rejouées sans fin. Types larges :
+    // la ligne doit pouvoir y entrer même quand c'est sa valeur que la table transaction refuse.
+    private static final String DDL_QUARANTAINE = """
+            CREATE TABLE IF NOT EXISTS transaction_quarantaine (
+                id BIGSERIAL PRIMARY KEY,
+                origine TEXT NOT NULL,
+                reference BIGINT NOT NULL,
+                id_compte INTEGER NOT NULL,
+                delta NUMERIC,
+                date TIMESTAMP,
+                montant NUMERIC,
+                type TEXT,
+                lieu TEXT,
+                erreur TEXT NOT NULL,
+                mise_le TIMESTAMP NOT NULL DEFAULT now()
+            );
+            """;
+
+    private static final String DDL_ARCHIVE = """
+            CREATE TABLE IF NOT EXISTS transaction_archive (
+                mois DATE PRIMARY KEY,
+                fichier TEXT NOT NULL,
+                nombre BIGINT NOT NULL,
+                volume NUMERIC(20, 2) NOT NULL,
+                archive_le TIMESTAMP NOT NULL DEFAULT now()
+            );
+            ALTER TABLE transaction_archive ADD COLUMN IF NOT EXISTS id_min INTEGER;
+            ALTER TABLE transaction_archive ADD COLUMN IF NOT EXISTS id_max INTEGER;
+            ALTER TABLE transaction_archive ADD COLUMN IF NOT EXISTS montant_max NUMERIC(15, 2);
+            CREATE TABLE IF NOT EXISTS transaction_archive_jour (
+                jour DATE NOT NULL,
+                type type_transaction NOT NULL,
+                nombre BIGINT NOT NULL,
+                volume NUMERIC(20, 2) NOT NULL,
+                PRIMARY KEY (jour, type)
+            );
+            CREATE TABLE IF NOT EXISTS transaction_archive_compte (
+                id_compte INTEGER NOT NULL,
+                mois DATE NOT NULL,
+                nombre BIGINT NOT NULL,
+                volume NUMERIC(20, 2) NOT NULL,
+                PRIMARY KEY (id_compte, mois)
+            );
+            ALTER TABLE transaction_archive_compte ADD COLUMN IF NOT EXISTS derniere_date TIMESTAMP;
+            CREATE TABLE IF NOT EXISTS transaction_archive_lieu (
+                mois DATE NOT NULL,
+                lieu TEXT NOT NULL,
+                PRIMARY KEY (lieu, mois)
+            );
+            """;
+
+    // Même colonnes, dans le même ordre, que la table d'origine ; la clé primaire doit inclure
+    // la clé de partitionnement. Les index sont créés après la recopie, plus rapide sans eux.
+    private static final String DDL_TRANSACTION_PARTITIONNEE = """
+            ALTER TABLE transaction RENAME TO transaction_avant_partition;
+            ALTER INDEX transaction_pkey RENAME TO transaction_avant_partition_pkey;
+            ALTER INDEX IF EXISTS idx_transaction_compte_date_id RENAME TO transaction_avant_partition_compte;
+            ALTER INDEX IF EXISTS idx_transaction_date_id RENAME TO transaction_avant_partition_date;
+            CREATE TABLE transaction (
+                id INTEGER NOT NULL DEFAULT nextval('transaction_id_seq'),
+                date TIMESTAMP NOT NULL,
+                montant NUMERIC(15, 2) NOT NULL,
+                type type_transaction NOT NULL,
+                id_compte INTEGER NOT NULL,
+                lieu VARCHAR(100),
+                PRIMARY KEY (id, date)
+            ) PARTITION BY RANGE (date);
+            ALTER SEQUENCE transaction_id_seq OWNED BY transaction.id;
+            CREATE TABLE transaction_defaut PARTITION OF transaction DEFAULT;
+            """;
+
+    private static final String PREFIXE_PARTITION = "transaction_";
+    private static final String PARTITION_DEFAUT = "transaction_defaut";
+    private static final int MOIS_PARTITIONS_AVANCE = 3;
+
+    private static final String DDL_VERSION_COMPTE =
+            "ALTER TABLE compte ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0";
+
+    // (id_compte, date, id) et (date, id) servent la pagination par clé ; le premier remplace
+    // l'ancien index (id_compte, date), supprimé une fois le nouveau construit.
+    private static final String[] INDEX = {
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transaction_compte_date_id ON transaction (id_compte, date, id)",
+            "DROP INDEX CONCURRENTLY IF EXISTS idx_transaction_compte_date",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transaction_date_id ON transaction (date, id)",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_compte_client ON compte (id_client)"
+    };
+
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
+    }
+
+    public void initialiser() throws SQLException {
+        boolean resumesCrees = false;
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                if (!tableExiste(conn, "resume_banque")) {
+                    stmt.execute(DDL_RESUMES);
+                    resumesCrees = true;
+                }
+                stmt.execute(DDL_VERSION_COMPTE);
+                stmt.execute(DDL_JOURNAL);
+                stmt.execute(DDL_REGISTRE);
+                stmt.execute(DDL_QUARANTAINE);
+                stmt.execute(DDL_ARCHIVE);
+                stmt.execute(DDL_DECLENCHEURS);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        // Avant toute reconstruction : les résumés comptent les mois archivés via leurs agrégats.
+        new ArchiveTransactions().completerAgregats();
+        if (resumesCrees) {
+            new ResumeDAO().reconstruire();
+        }
+
+        boolean partitionnee = transactionsPartitionnees();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String index : INDEX) {
+                // Pas de CONCURRENTLY sur une table partitionnée : l'index parent est créé partition par partition.
+                stmt.execute(partitionnee && index.contains("transaction") ? index.replace(" CONCURRENTLY", "") : index);
+            }
+        }
+        if (partitionnee) {
+            preparerPartitions(YearMonth.now().plusMonths(MOIS_PARTITIONS_AVANCE));
+        }
+    }
+
+    public boolean transactionsPartitionnees() throws SQLException {
+        String sql = "SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass('transaction')";
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    // Recrée transaction partitionnée par mois et y recopie les lignes, en une seule transaction :
+    // les écrivains attendent la fin de la migration. Les déclencheurs de résumé ne sont posés
+    // qu'après la recopie, les résumés existants restant exacts.
+    public void partitionnerTransactions() throws SQLException {
+        if (transactionsPartitionnees()) {
+            return;
+        }
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("LOCK TABLE transaction IN EXCLUSIVE MODE");
+                YearMonth premier = YearMonth.now();
+                try (ResultSet rs = stmt.executeQuery("SELECT MIN(date) FROM transaction")) {
+                    if (rs.next() && rs.getTimestamp(1) != null) {
+                        premier = YearMonth.from(rs.getTimestamp(1).toLocalDateTime());
+                    }
+                }
+
+                stmt.execute(DDL_TRANSACTION_PARTITIONNEE);
+                for (YearMonth mois = premier; !mois.isAfter(YearMonth.now().plusMonths(MOIS_PARTITIONS_AVANCE)); mois = mois.plusMonths(1)) {
+                    stmt.execute(ddlPartition(mois));
+                }
+                stmt.execute("INSERT INTO transaction (id, date, montant, type, id_compte, lieu) " +
+                        "SELECT id, date, montant, type, id_compte, lieu FROM transaction_avant_partition");
+                stmt.execute("DROP TABLE transaction_avant_partition");
+                stmt.execute("CREATE INDEX idx_transaction_compte_date_id ON transaction (id_compte, date, id)");
+                stmt.execute("CREATE INDEX idx_transaction_date_id ON transaction (date, id)");
+                stmt.execute(DDL_DECLENCHEURS);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Crée les partitions mensuelles manquantes entre la plus récente existante et jusqua.
+    // PostgreSQL refuse d'attacher un mois dont la partition par défaut a déjà reçu des lignes :
+    // la partition par défaut est alors détachée, ses lignes du mois déplacées, puis rattachée.
+    public void preparerPartitions(YearMonth jusqua) throws SQLException {
+        List<YearMonth> existantes = partitionsTransactions();
+        YearMonth mois = existantes.isEmpty() ? YearMonth.now() : existantes.get(existantes.size() - 1).plusMonths(1);
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                for (; !mois.isAfter(jusqua); mois = mois.plusMonths(1)) {
+                    if (lignesParDefaut(conn, mois)) {
+                        stmt.execute("ALTER TABLE transaction DETACH PARTITION " + PARTITION_DEFAUT);
+                        stmt.execute(ddlPartition(mois));
+                        deplacerLignesParDefaut(conn, mois);
+                        stmt.execute("ALTER TABLE transaction ATTACH PARTITION " + PARTITION_DEFAUT + " DEFAULT");
+                    } else {
+                        stmt.execute(ddlPartition(mois));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Mois couverts par une partition attachée, du plus ancien au plus récent.
+    public List<YearMonth> partitionsTransactions() throws SQLException {
+        String sql = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass('transaction') ORDER BY c.relname";
+        List<YearMonth> mois = new ArrayList<>();
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                YearMonth partition = moisPartition(rs.getString(1));
+                if (partition != null) {
+                    mois.add(partition);
+                }
+            }
+        }
+        return mois;
+    }
+
+    public static String nomPartition(YearMonth mois) {
+        return String.format("%s%04d_%02d", PREFIXE_PARTITION, mois.getYear(), mois.getMonthValue());
+    }
+
+    private static YearMonth moisPartition(String nom) {
+        String suffixe = nom.substring(PREFIXE_PARTITION.length());
+        if (!suffixe.matches("\\d{4}_\\d{2}")) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(suffixe.substring(0, 4)), Integer.parseInt(suffixe.substring(5)));
+    }
+
+    private boolean lignesParDefaut(Connection conn, YearMonth mois) throws SQLException {
+        String sql = "SELECT EXISTS (SELECT 1 FROM " + PARTITION_DEFAUT + " WHERE date >= ? AND date < ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(mois.atDay(1)));
+            stmt.setDate(2, Date.valueOf(mois.plusMonths(1).atDay(1)));
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    // Partition par défaut détachée : ni le DELETE ni l'INSERT direct dans la partition ne
+    // déclenchent les résumés de transaction, les lignes changent seulement de partition.
+    private void deplacerLignesParDefaut(Connection conn, YearMonth mois) throws SQLException {
+        String sql = "WITH d AS (DELETE FROM " + PARTITION_DEFAUT + " WHERE date >= ? AND date < ? RETURNING *) " +
+                "INSERT INTO " + nomPartition(mois) + " SELECT * FROM d";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(mois.atDay(1)));
+            stmt.setDate(2, Date.valueOf(mois.plusMonths(1).atDay(1)));
+            stmt.executeUpdate();
+        }
+    }
+
+    private static String ddlPartition(YearMonth mois) {
+        LocalDate debut = mois.atDay(1);
+        return "CREATE TABLE IF NOT EXISTS " + nomPartition(mois) + " PARTITION OF transaction " +
+                "FOR VALUES FROM ('" + debut + "') TO ('" + debut.plusMonths(1) + "')";
+    }
+
+    private boolean tableExiste(Connection conn, String table) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            stmt.setString(1, table);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+}
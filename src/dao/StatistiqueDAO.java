@@ -0,0 +1,200 @@
+package dao;
+
+import dao.ArchiveTransactions.MoisArchive;
+import entity.TypeTransaction;
+import util.Montant;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StatistiqueDAO {
+    private static final TypeTransaction[] TYPES = TypeTransaction.values();
+
+    private final ArchiveTransactions archives = new ArchiveTransactions();
+
+    public record StatistiqueType(TypeTransaction type, long nombre, long total, long moyenne) {}
+
+    public record StatistiqueMois(int annee, int mois, long nombre, long total, long moyenne) {
+        public String cle() {
+            return annee + "-" + String.format("%02d", mois);
+        }
+    }
+
+    public record StatistiqueCompte(long nombre, long total, long moyenne) {}
+
+    public record ClassementClient(int idClient, String nom, long soldeTotal) {}
+
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
+    }
+
+    // Les mois archivés sont comptés d'après leurs agrégats (transaction_archive_jour, transaction_archive).
+    public List<StatistiqueType> statistiquesParType() throws SQLException {
+        String sql = "SELECT type, SUM(nombre) AS nombre, SUM(total) AS total FROM (" +
+                "SELECT type, COUNT(*) AS nombre, SUM(montant) AS total FROM transaction GROUP BY type " +
+                "UNION ALL SELECT type, SUM(nombre), SUM(volume) FROM transaction_archive_jour GROUP BY type) s " +
+                "GROUP BY type ORDER BY type";
+        List<StatistiqueType> statistiques = new ArrayList<>();
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                statistiques.add(mapResultSetToStatistiqueType(rs));
+            }
+        }
+        return statistiques;
+    }
+
+    // Jours archivés entièrement dans [debut, fin] : agrégats journaliers ; jours archivés coupés par
+    // une borne : relus depuis le fichier de leur mois.
+    public List<StatistiqueType> statistiquesParType(LocalDateTime debut, LocalDateTime fin) throws SQLException {
+        String sql = "SELECT type, SUM(nombre) AS nombre, SUM(total) AS total FROM (" +
+                "SELECT type, COUNT(*) AS nombre, SUM(montant) AS total FROM transaction WHERE date BETWEEN ? AND ? GROUP BY type " +
+                "UNION ALL SELECT type, nombre, volume FROM transaction_archive_jour WHERE jour BETWEEN ? AND ?) s " +
+                "GROUP BY type";
+        LocalDate premierJourEntier = debut.minusNanos(1).toLocalDate().plusDays(1);
+        LocalDate dernierJourEntier = fin.plusNanos(1).toLocalDate().minusDays(1);
+        long[] nombres = new long[TYPES.length];
+        long[] totaux = new long[TYPES.length];
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(debut));
+            stmt.setTimestamp(2, Timestamp.valueOf(fin));
+            stmt.setDate(3, Date.valueOf(premierJourEntier));
+            stmt.setDate(4, Date.valueOf(dernierJourEntier));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                int type = TypeTransaction.depuisCode(rs.getString("type")).ordinal();
+                nombres[type] += rs.getLong("nombre");
+                totaux[type] = Montant.additionner(totaux[type], Montant.depuisDecimal(rs.getBigDecimal("total")));
+            }
+        }
+
+        List<YearMonth> moisDesBornes = List.of(YearMonth.from(debut), YearMonth.from(fin));
+        for (MoisArchive archive : archives.moisArchives()) {
+            if (!moisDesBornes.contains(archive.mois())) {
+                continue;
+            }
+            archives.lire(archive, transaction -> {
+                LocalDate jour = transaction.date().toLocalDate();
+                boolean jourEntier = !jour.isBefore(premierJourEntier) && !jour.isAfter(dernierJourEntier);
+                if (!jourEntier && !transaction.date().isBefore(debut) && !transaction.date().isAfter(fin)) {
+                    int type = transaction.type().ordinal();
+                    nombres[type]++;
+                    totaux[type] = Montant.additionner(totaux[type], transaction.montant());
+                }
+            });
+        }
+
+        List<StatistiqueType> statistiques = new ArrayList<>();
+        for (TypeTransaction type : TYPES) {
+            long nombre = nombres[type.ordinal()];
+            if (nombre > 0) {
+                statistiques.add(new StatistiqueType(type, nombre, totaux[type.ordinal()],
+                        Montant.moyenne(totaux[type.ordinal()], nombre)));
+            }
+        }
+        return statistiques;
+    }
+
+    public List<StatistiqueMois> statistiquesParMois() throws SQLException {
+        String sql = "SELECT mois, SUM(nombre) AS nombre, SUM(total) AS total FROM (" +
+                "SELECT date_trunc('month', date) AS mois, COUNT(*) AS nombre, SUM(montant) AS total FROM transaction GROUP BY 1 " +
+                "UNION ALL SELECT mois::TIMESTAMP, nombre, volume FROM transaction_archive) s " +
+                "GROUP BY 1 ORDER BY 1";
+        List<StatistiqueMois> statistiques = new ArrayList<>();
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                LocalDateTime mois = rs.getTimestamp("mois").toLocalDateTime();
+                long nombre = rs.getLong("nombre");
+                long total = Montant.depuisDecimal(rs.getBigDecimal("total"));
+                statistiques.add(new StatistiqueMois(
+                        mois.getYear(),
+                        mois.getMonthValue(),
+                        nombre,
+                        total,
+                        Montant.moyenne(total, nombre)
+                ));
+            }
+        }
+        return statistiques;
+    }
+
+    public StatistiqueCompte statistiquesCompte(int compteId) throws SQLException {
+        String sql = "SELECT SUM(nombre) AS nombre, SUM(total) AS total FROM (" +
+                "SELECT COUNT(*) AS nombre, COALESCE(SUM(montant), 0) AS total FROM transaction WHERE id_compte = ? " +
+                "UNION ALL SELECT nombre, volume FROM transaction_archive_compte WHERE id_compte = ?) s";
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, compteId);
+            stmt.setInt(2, compteId);
+            ResultSet rs = stmt.executeQuery();
+
+            rs.next();
+            long nombre = rs.getLong("nombre");
+            long total = Montant.depuisDecimal(rs.getBigDecimal("total"));
+            return new StatistiqueCompte(nombre, total, Montant.moyenne(total, nombre));
+        }
+    }
+
+    // Le classement est d'abord calculé sur compte seul ; les clients sans compte (solde 0)
+    // ne sont réintégrés que si le K-ième total n'est pas strictement positif.
+    public List<ClassementClient> topClientsParSolde(int k) throws SQLException {
+        String sqlRapide = "SELECT c.id, c.nom, s.solde_total FROM (" +
+                "SELECT id_client, SUM(solde) AS solde_total FROM compte GROUP BY id_client " +
+                "ORDER BY solde_total DESC, id_client LIMIT ?) s " +
+                "JOIN client c ON c.id = s.id_client ORDER BY s.solde_total DESC, c.id";
+        String sqlComplet = "SELECT c.id, c.nom, COALESCE(s.solde_total, 0) AS solde_total FROM client c " +
+                "LEFT JOIN (SELECT id_client, SUM(solde) AS solde_total FROM compte GROUP BY id_client) s " +
+                "ON s.id_client = c.id ORDER BY solde_total DESC, c.id LIMIT ?";
+
+        List<ClassementClient> classement = classementClients(sqlRapide, k);
+        if (classement.size() == k && classement.get(k - 1).soldeTotal() > 0) {
+            return classement;
+        }
+        return classementClients(sqlComplet, k);
+    }
+
+    private List<ClassementClient> classementClients(String sql, int k) throws SQLException {
+        List<ClassementClient> classement = new ArrayList<>(k);
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, k);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                classement.add(new ClassementClient(
+                        rs.getInt("id"),
+                        rs.getString("nom"),
+                        Montant.depuisDecimal(rs.getBigDecimal("solde_total"))
+                ));
+            }
+        }
+        return classement;
+    }
+
+    private StatistiqueType mapResultSetToStatistiqueType(ResultSet rs) throws SQLException {
+        long nombre = rs.getLong("nombre");
+        long total = Montant.depuisDecimal(rs.getBigDecimal("total"));
+        return new StatistiqueType(
+                TypeTransaction.depuisCode(rs.getString("type")),
+                nombre,
+                total,
+                Montant.moyenne(total, nombre)
+        );
+    }
+}
@@ -1,36 +1,209 @@
 package dao;
 
+import dao.ArchiveTransactions.MoisArchive;
 import entity.Transaction;
 import entity.TypeTransaction;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import util.Montant;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+// Les lectures d'historique couvrent aussi les mois archivés : leurs lignes, relues depuis les
+// fichiers, sont fusionnées dans l'ordre de la requête. Seules les écritures (delete compris)
+// s'en tiennent aux lignes en base.
 public class TransactionDAO {
     private Connection getConnection() throws SQLException {
         return DatabaseConnection.getInstance().getConnection();
     }
 
-    public void save(Transaction transaction) throws SQLException {
-        String sql = "INSERT INTO transaction (date, montant, type, lieu, id_compte) VALUES (?, ?, ?::type_transaction, ?, ?)";
+    private static final String SQL_INSERT =
+            "INSERT INTO transaction (date, montant, type, lieu, id_compte) VALUES (?, ?, ?::type_transaction, ?, ?)";
+    private static final String SQL_INSERT_UNNEST =
+            "INSERT INTO transaction (date, montant, type, lieu, id_compte) " +
+            "SELECT d, m, t::type_transaction, l, c " +
+            "FROM unnest(?::timestamp[], ?::numeric[], ?::text[], ?::text[], ?::integer[]) WITH ORDINALITY AS u(d, m, t, l, c, n) " +
+            "ORDER BY n RETURNING id";
+    private static final String SQL_COPY =
+            "COPY transaction (date, montant, type, lieu, id_compte) FROM STDIN WITH (FORMAT csv)";
+    public static final String COLONNES = "id, date, montant, type, lieu, id_compte";
+    public static final int TAILLE_LOT_PAR_DEFAUT = 5_000;
+    private static final int TAILLE_FETCH = 1_000;
+    private static final String ESPACE_CURSEUR = "transaction";
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
-            stmt.setTimestamp(1, Timestamp.valueOf(transaction.date()));
-            stmt.setDouble(2, transaction.montant());
-            stmt.setString(3, transaction.type().name());
-            stmt.setString(4, transaction.lieu());
-            stmt.setInt(5, transaction.idCompte());
+    private static final Comparator<Transaction> CHRONOLOGIQUE =
+            Comparator.comparing(Transaction::date).thenComparingInt(Transaction::id);
+    private static final Comparator<Transaction> ANTICHRONOLOGIQUE = CHRONOLOGIQUE.reversed();
+    private static final Comparator<Transaction> PAR_DATE_DECROISSANTE =
+            Comparator.comparing(Transaction::date).reversed();
+    private static final Comparator<Transaction> PAR_MONTANT_DECROISSANT =
+            Comparator.comparingLong(Transaction::montant).reversed();
+
+    private final ArchiveTransactions archives = new ArchiveTransactions();
+
+    public int save(Transaction transaction) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            lierParametres(stmt, transaction);
             stmt.executeUpdate();
+
+            ResultSet rs = stmt.getGeneratedKeys();
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+            throw new SQLException("Échec de l'enregistrement de la transaction, aucun ID généré");
+        }
+    }
+
+    public void saveBatch(Collection<Transaction> transactions) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERT)) {
+            for (Transaction transaction : transactions) {
+                lierParametres(stmt, transaction);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Une seule instruction pour tout le lot (un seul passage des déclencheurs de résumé).
+    // Les lignes sont insérées dans l'ordre fourni et la séquence est croissante au sein de
+    // l'instruction : les identifiants triés correspondent donc aux transactions, dans l'ordre.
+    public int[] saveBatchWithIds(List<Transaction> transactions) throws SQLException {
+        int taille = transactions.size();
+        Timestamp[] dates = new Timestamp[taille];
+        BigDecimal[] montants = new BigDecimal[taille];
+        String[] types = new String[taille];
+        String[] lieux = new String[taille];
+        Integer[] comptes = new Integer[taille];
+        for (int i = 0; i < taille; i++) {
+            Transaction transaction = transactions.get(i);
+            dates[i] = Timestamp.valueOf(transaction.date());
+            montants[i] = Montant.versDecimal(transaction.montant());
+            types[i] = transaction.type().name();
+            lieux[i] = transaction.lieu();
+            comptes[i] = transaction.idCompte();
+        }
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_UNNEST)) {
+            stmt.setArray(1, conn.createArrayOf("timestamp", dates));
+            stmt.setArray(2, conn.createArrayOf("numeric", montants));
+            stmt.setArray(3, conn.createArrayOf("text", types));
+            stmt.setArray(4, conn.createArrayOf("text", lieux));
+            stmt.setArray(5, conn.createArrayOf("integer", comptes));
+            ResultSet rs = stmt.executeQuery();
+
+            int[] ids = new int[taille];
+            int i = 0;
+            while (rs.next()) {
+                ids[i++] = rs.getInt(1);
+            }
+            if (i != taille) {
+                throw new SQLException("Identifiants générés incomplets : " + i + " sur " + taille);
+            }
+            Arrays.sort(ids);
+            return ids;
+        }
+    }
+
+    public ResultatIngestion saveAll(Iterable<Transaction> transactions) throws SQLException {
+        return saveAll(transactions, TAILLE_LOT_PAR_DEFAUT);
+    }
+
+    public ResultatIngestion saveAll(Iterable<Transaction> transactions, int tailleLot) throws SQLException {
+        return ingerer(transactions, tailleLot, (conn, lot) -> {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT)) {
+                for (Transaction transaction : lot) {
+                    lierParametres(stmt, transaction);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        });
+    }
+
+    public ResultatIngestion copyAll(Iterable<Transaction> transactions) throws SQLException {
+        return copyAll(transactions, TAILLE_LOT_PAR_DEFAUT);
+    }
+
+    public ResultatIngestion copyAll(Iterable<Transaction> transactions, int tailleLot) throws SQLException {
+        return ingerer(transactions, tailleLot, (conn, lot) -> {
+            CopyIn copie = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(SQL_COPY);
+            try {
+                StringBuilder ligne = new StringBuilder(128);
+                for (Transaction transaction : lot) {
+                    ligne.setLength(0);
+                    ecrireLigneCsv(ligne, transaction);
+                    byte[] octets = ligne.toString().getBytes(StandardCharsets.UTF_8);
+                    copie.writeToCopy(octets, 0, octets.length);
+                }
+                copie.endCopy();
+            } finally {
+                if (copie.isActive()) {
+                    copie.cancelCopy();
+                }
+            }
+        });
+    }
+
+    public Map<Integer, Transaction> findByIds(Collection<Integer> ids) throws SQLException {
+        String sql = "SELECT " + COLONNES + " FROM transaction WHERE id = ANY(?)";
+        Map<Integer, Transaction> transactions = new HashMap<>();
+        if (ids.isEmpty()) {
+            return transactions;
+        }
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Transaction transaction = mapResultSetToTransaction(rs);
+                transactions.put(transaction.id(), transaction);
+            }
         }
+
+        // Les ids absents de la base sont cherchés dans les seuls mois archivés dont les bornes les couvrent.
+        Set<Integer> manquants = new HashSet<>(ids);
+        manquants.removeAll(transactions.keySet());
+        if (!manquants.isEmpty()) {
+            for (MoisArchive archive : archives.moisArchives()) {
+                if (manquants.stream().anyMatch(archive::contient)) {
+                    archives.lire(archive, transaction -> {
+                        if (manquants.contains(transaction.id())) {
+                            transactions.put(transaction.id(), transaction);
+                        }
+                    });
+                }
+            }
+        }
+        return transactions;
     }
 
+    // Partitions en base seulement : l'historique complet passe par findPageByCompteId, qui ne relit
+    // les archives qu'une fois la base épuisée, ou par findByCompteId(compteId, true).
     public List<Transaction> findByCompteId(int compteId) throws SQLException {
-        String sql = "SELECT * FROM transaction WHERE id_compte = ? ORDER BY date DESC";
+        return findByCompteId(compteId, false);
+    }
+
+    // avecArchives : relit aussi, en entier, chaque mois archivé où le compte apparaît.
+    public List<Transaction> findByCompteId(int compteId, boolean avecArchives) throws SQLException {
+        String sql = "SELECT " + COLONNES + " FROM transaction WHERE id_compte = ? ORDER BY date DESC";
         List<Transaction> transactions = new ArrayList<>();
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, compteId);
             ResultSet rs = stmt.executeQuery();
 
@@ -38,28 +211,93 @@ public class TransactionDAO {
                 transactions.add(mapResultSetToTransaction(rs));
             }
         }
-        return transactions;
+        if (!avecArchives) {
+            return transactions;
+        }
+        return avecArchives(transactions, decroissants(archives.moisDuCompte(compteId), archive -> true),
+                transaction -> transaction.idCompte() == compteId, PAR_DATE_DECROISSANTE);
+    }
+
+    public Page<Transaction> findPageByCompteId(int compteId, String curseur, int taille) throws SQLException {
+        String sqlPremiere = "SELECT " + COLONNES + " FROM transaction WHERE id_compte = ? " +
+                "ORDER BY date DESC, id DESC LIMIT ?";
+        // date <= ? reprend la borne de (date, id) < (?, ?) sous une forme qui élague les partitions plus récentes.
+        String sqlSuivante = "SELECT " + COLONNES + " FROM transaction WHERE id_compte = ? AND date <= ? AND (date, id) < (?, ?) " +
+                "ORDER BY date DESC, id DESC LIMIT ?";
+        Curseur.taille(taille, Page.TAILLE_MAX);
+        Curseur.Position position = curseur == null ? null : Curseur.lirePosition(ESPACE_CURSEUR, curseur);
+        List<Transaction> transactions;
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(curseur == null ? sqlPremiere : sqlSuivante)) {
+            int index = 1;
+            stmt.setInt(index++, compteId);
+            if (position != null) {
+                Timestamp date = Timestamp.valueOf(position.date());
+                stmt.setTimestamp(index++, date);
+                stmt.setTimestamp(index++, date);
+                stmt.setInt(index++, position.id());
+            }
+            stmt.setInt(index, taille + 1);
+            transactions = lireLignes(stmt, taille + 1);
+        }
+        return pageAvecArchives(transactions, decroissants(archives.moisDuCompte(compteId), archive -> avantCurseur(archive, position)),
+                transaction -> transaction.idCompte() == compteId && avantCurseur(transaction, position), taille);
+    }
+
+    public Page<Transaction> findPage(String curseur, int taille) throws SQLException {
+        String sqlPremiere = "SELECT " + COLONNES + " FROM transaction ORDER BY date DESC, id DESC LIMIT ?";
+        String sqlSuivante = "SELECT " + COLONNES + " FROM transaction WHERE date <= ? AND (date, id) < (?, ?) " +
+                "ORDER BY date DESC, id DESC LIMIT ?";
+        Curseur.taille(taille, Page.TAILLE_MAX);
+        Curseur.Position position = curseur == null ? null : Curseur.lirePosition(ESPACE_CURSEUR, curseur);
+        List<Transaction> transactions;
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(curseur == null ? sqlPremiere : sqlSuivante)) {
+            int index = 1;
+            if (position != null) {
+                Timestamp date = Timestamp.valueOf(position.date());
+                stmt.setTimestamp(index++, date);
+                stmt.setTimestamp(index++, date);
+                stmt.setInt(index++, position.id());
+            }
+            stmt.setInt(index, taille + 1);
+            transactions = lireLignes(stmt, taille + 1);
+        }
+        return pageAvecArchives(transactions, moisArchivesDecroissants(archive -> avantCurseur(archive, position)),
+                transaction -> avantCurseur(transaction, position), taille);
     }
 
+    // Sans filtre, aucun mois archivé ne peut être écarté : les archives ne sont relues que sur demande.
     public List<Transaction> findAll() throws SQLException {
-        String sql = "SELECT * FROM transaction ORDER BY date DESC";
+        return findAll(false);
+    }
+
+    public List<Transaction> findAll(boolean avecArchives) throws SQLException {
+        String sql = "SELECT " + COLONNES + " FROM transaction ORDER BY date DESC";
         List<Transaction> transactions = new ArrayList<>();
 
-        try (Statement stmt = getConnection().createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
                 transactions.add(mapResultSetToTransaction(rs));
             }
         }
-        return transactions;
+        if (!avecArchives) {
+            return transactions;
+        }
+        return avecArchives(transactions, moisArchivesDecroissants(archive -> true), transaction -> true, PAR_DATE_DECROISSANTE);
     }
 
     public List<Transaction> findByType(TypeTransaction type) throws SQLException {
-        String sql = "SELECT * FROM transaction WHERE type = ?::type_transaction ORDER BY date DESC";
+        String sql = "SELECT " + COLONNES + " FROM transaction WHERE type = ?::type_transaction ORDER BY date DESC";
         List<Transaction> transactions = new ArrayList<>();
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, type.name());
             ResultSet rs = stmt.executeQuery();
 
@@ -67,14 +305,16 @@ public class TransactionDAO {
                 transactions.add(mapResultSetToTransaction(rs));
             }
         }
-        return transactions;
+        return avecArchives(transactions, decroissants(archives.moisDuType(type), archive -> true),
+                transaction -> transaction.type() == type, PAR_DATE_DECROISSANTE);
     }
 
     public List<Transaction> findByDateRange(LocalDateTime debut, LocalDateTime fin) throws SQLException {
-        String sql = "SELECT * FROM transaction WHERE date BETWEEN ? AND ? ORDER BY date DESC";
+        String sql = "SELECT " + COLONNES + " FROM transaction WHERE date BETWEEN ? AND ? ORDER BY date DESC";
         List<Transaction> transactions = new ArrayList<>();
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setTimestamp(1, Timestamp.valueOf(debut));
             stmt.setTimestamp(2, Timestamp.valueOf(fin));
             ResultSet rs = stmt.executeQuery();
@@ -83,29 +323,52 @@ public class TransactionDAO {
                 transactions.add(mapResultSetToTransaction(rs));
             }
         }
-        return transactions;
+        return avecArchives(transactions, moisArchivesDecroissants(archive -> entre(archive, debut, fin)),
+                transaction -> !transaction.date().isBefore(debut) && !transaction.date().isAfter(fin), PAR_DATE_DECROISSANTE);
     }
 
-    public List<Transaction> findByMontantGreaterThan(double montant) throws SQLException {
-        String sql = "SELECT * FROM transaction WHERE montant > ? ORDER BY montant DESC";
+    // Historique récent d'un compte : la borne sur date limite le parcours aux partitions concernées.
+    public List<Transaction> findByCompteIdSince(int compteId, LocalDateTime depuis) throws SQLException {
+        String sql = "SELECT " + COLONNES + " FROM transaction WHERE id_compte = ? AND date >= ? ORDER BY date DESC, id DESC";
         List<Transaction> transactions = new ArrayList<>();
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
-            stmt.setDouble(1, montant);
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, compteId);
+            stmt.setTimestamp(2, Timestamp.valueOf(depuis));
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
                 transactions.add(mapResultSetToTransaction(rs));
             }
         }
-        return transactions;
+        return avecArchives(transactions, moisArchivesDecroissants(archive -> !archive.mois().isBefore(YearMonth.from(depuis))),
+                transaction -> transaction.idCompte() == compteId && !transaction.date().isBefore(depuis), ANTICHRONOLOGIQUE);
+    }
+
+    public List<Transaction> findByMontantGreaterThan(long montant) throws SQLException {
+        String sql = "SELECT " + COLONNES + " FROM transaction WHERE montant > ? ORDER BY montant DESC";
+        List<Transaction> transactions = new ArrayList<>();
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBigDecimal(1, Montant.versDecimal(montant));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                transactions.add(mapResultSetToTransaction(rs));
+            }
+        }
+        return avecArchives(transactions, decroissants(archives.moisAuDessusDe(montant), archive -> true),
+                transaction -> transaction.montant() > montant, PAR_MONTANT_DECROISSANT);
     }
 
     public List<Transaction> findByLieu(String lieu) throws SQLException {
-        String sql = "SELECT * FROM transaction WHERE lieu = ? ORDER BY date DESC";
+        String sql = "SELECT " + COLONNES + " FROM transaction WHERE lieu = ? ORDER BY date DESC";
         List<Transaction> transactions = new ArrayList<>();
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, lieu);
             ResultSet rs = stmt.executeQuery();
 
@@ -113,25 +376,426 @@ public class TransactionDAO {
                 transactions.add(mapResultSetToTransaction(rs));
             }
         }
-        return transactions;
+        return avecArchives(transactions, decroissants(archives.moisDuLieu(lieu), archive -> true),
+                transaction -> Objects.equals(transaction.lieu(), lieu), PAR_DATE_DECROISSANTE);
+    }
+
+    // Le catalogue des archives est lu avant d'ouvrir le curseur, qui ne peut donc pas rester ouvert sur une erreur.
+    public Stream<Transaction> streamAll() throws SQLException {
+        return streamAll(false);
+    }
+
+    public Stream<Transaction> streamAll(boolean avecArchives) throws SQLException {
+        List<MoisArchive> mois = avecArchives ? moisArchivesDecroissants(archive -> true) : List.of();
+        return fusionner(stream("SELECT " + COLONNES + " FROM transaction ORDER BY date DESC", stmt -> {}),
+                mois, transaction -> true, PAR_DATE_DECROISSANTE);
+    }
+
+    public Stream<Transaction> streamChronologique() throws SQLException {
+        return streamChronologique(false);
+    }
+
+    public Stream<Transaction> streamChronologique(boolean avecArchives) throws SQLException {
+        List<MoisArchive> mois = avecArchives ? archives.moisArchives() : List.of();
+        return fusionner(stream("SELECT " + COLONNES + " FROM transaction ORDER BY date, id", stmt -> {}),
+                mois, transaction -> true, CHRONOLOGIQUE);
+    }
+
+    public Stream<Transaction> streamByCompteId(int compteId) throws SQLException {
+        List<MoisArchive> mois = decroissants(archives.moisDuCompte(compteId), archive -> true);
+        return fusionner(stream("SELECT " + COLONNES + " FROM transaction WHERE id_compte = ? ORDER BY date DESC",
+                stmt -> stmt.setInt(1, compteId)), mois, transaction -> transaction.idCompte() == compteId, PAR_DATE_DECROISSANTE);
+    }
+
+    public Stream<Transaction> streamByType(TypeTransaction type) throws SQLException {
+        List<MoisArchive> mois = decroissants(archives.moisDuType(type), archive -> true);
+        return fusionner(stream("SELECT " + COLONNES + " FROM transaction WHERE type = ?::type_transaction ORDER BY date DESC",
+                stmt -> stmt.setString(1, type.name())), mois, transaction -> transaction.type() == type, PAR_DATE_DECROISSANTE);
+    }
+
+    public Stream<Transaction> streamByDateRange(LocalDateTime debut, LocalDateTime fin) throws SQLException {
+        List<MoisArchive> mois = moisArchivesDecroissants(archive -> entre(archive, debut, fin));
+        return fusionner(stream("SELECT " + COLONNES + " FROM transaction WHERE date BETWEEN ? AND ? ORDER BY date DESC", stmt -> {
+            stmt.setTimestamp(1, Timestamp.valueOf(debut));
+            stmt.setTimestamp(2, Timestamp.valueOf(fin));
+        }), mois, transaction -> !transaction.date().isBefore(debut) && !transaction.date().isAfter(fin), PAR_DATE_DECROISSANTE);
+    }
+
+    public Stream<Transaction> streamByMontantGreaterThan(long montant) throws SQLException {
+        List<MoisArchive> mois = decroissants(archives.moisAuDessusDe(montant), archive -> true);
+        return fusionner(stream("SELECT " + COLONNES + " FROM transaction WHERE montant > ? ORDER BY montant DESC",
+                stmt -> stmt.setBigDecimal(1, Montant.versDecimal(montant))), mois,
+                transaction -> transaction.montant() > montant, PAR_MONTANT_DECROISSANT);
+    }
+
+    public Stream<Transaction> streamByLieu(String lieu) throws SQLException {
+        List<MoisArchive> mois = decroissants(archives.moisDuLieu(lieu), archive -> true);
+        return fusionner(stream("SELECT " + COLONNES + " FROM transaction WHERE lieu = ? ORDER BY date DESC",
+                stmt -> stmt.setString(1, lieu)), mois, transaction -> Objects.equals(transaction.lieu(), lieu), PAR_DATE_DECROISSANTE);
+    }
+
+    @FunctionalInterface
+    public interface LecteurColonnes {
+        void lire(int id, long dateMillis, long montant, TypeTransaction type, int idCompte, String lieu);
+    }
+
+    // Bornes de l'instantané d'une lecture : toute transaction d'identifiant inférieur à xmin était
+    // terminée, toute transaction d'identifiant supérieur ou égal à xmax n'avait pas commencé.
+    public record InstantaneLecture(long lignes, long xmin, long xmax) {}
+
+    // Lignes d'id supérieur à apresId, plus celles de idsEnAttente, par id croissant et sans
+    // objet Transaction intermédiaire ; la date arrive en millisecondes depuis l'époque (heure locale
+    // lue comme UTC), le montant en centimes. La lecture se fait dans un seul instantané, dont les
+    // bornes sont retournées avec le nombre de lignes lues.
+    public InstantaneLecture scanSince(int apresId, int[] idsEnAttente, LecteurColonnes lecteur) throws SQLException {
+        String sqlInstantane = "SELECT pg_snapshot_xmin(s)::text::bigint, pg_snapshot_xmax(s)::text::bigint " +
+                "FROM pg_current_snapshot() s";
+        String sql = "SELECT id, floor(extract(epoch FROM date) * 1000)::bigint, (montant * " + Montant.CENTIMES_PAR_UNITE +
+                ")::bigint, type::text, id_compte, lieu FROM transaction WHERE id > ? OR id = ANY(?) ORDER BY id";
+        Integer[] enAttente = new Integer[idsEnAttente.length];
+        for (int i = 0; i < idsEnAttente.length; i++) {
+            enAttente[i] = idsEnAttente[i];
+        }
+
+        try (Connection conn = getConnection()) {
+            boolean autoCommitInitial = conn.getAutoCommit();
+            int isolationInitiale = conn.getTransactionIsolation();
+            if (autoCommitInitial) {
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            }
+            long lues = 0;
+            try (Statement instantane = conn.createStatement();
+                 ResultSet bornes = instantane.executeQuery(sqlInstantane);
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                bornes.next();
+                long xmin = bornes.getLong(1);
+                long xmax = bornes.getLong(2);
+                stmt.setFetchSize(TAILLE_FETCH * 10);
+                stmt.setInt(1, apresId);
+                stmt.setArray(2, conn.createArrayOf("integer", enAttente));
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    lecteur.lire(rs.getInt(1), rs.getLong(2), rs.getLong(3),
+                            TypeTransaction.depuisCode(rs.getString(4)), rs.getInt(5), rs.getString(6));
+                    lues++;
+                }
+                return new InstantaneLecture(lues, xmin, xmax);
+            } finally {
+                if (autoCommitInitial) {
+                    conn.commit();
+                    conn.setAutoCommit(true);
+                    conn.setTransactionIsolation(isolationInitiale);
+                }
+            }
+        }
+    }
+
+    public long count() throws SQLException {
+        String sql = "SELECT (SELECT COUNT(*) FROM transaction) + (SELECT COALESCE(SUM(nombre), 0) FROM transaction_archive)";
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
     }
 
+    // Les mois archivés sont en lecture seule : seule une ligne encore en base peut être supprimée.
     public void delete(int id) throws SQLException {
         String sql = "DELETE FROM transaction WHERE id = ?";
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             stmt.executeUpdate();
         }
     }
 
-    private Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
-        LocalDateTime date = rs.getTimestamp("date").toLocalDateTime();
-        double montant = rs.getDouble("montant");
-        TypeTransaction type = TypeTransaction.valueOf(rs.getString("type"));
-        String lieu = rs.getString("lieu");
-        int idCompte = rs.getInt("id_compte");
+    @FunctionalInterface
+    private interface EcritureLot {
+        void ecrire(Connection conn, List<Transaction> lot) throws SQLException;
+    }
+
+    // Chaque lot est validé séparément : un lot en erreur est annulé sans perdre les précédents.
+    // Dans une transaction englobante, la validation est laissée à l'appelant.
+    private ResultatIngestion ingerer(Iterable<Transaction> transactions, int tailleLot, EcritureLot ecriture)
+            throws SQLException {
+        if (tailleLot <= 0) {
+            throw new IllegalArgumentException("La taille de lot doit être positive");
+        }
+
+        long debut = System.nanoTime();
+        long inserees = 0;
+        long rejetees = 0;
+        long position = 0;
+        List<ResultatIngestion.EchecLot> echecs = new ArrayList<>();
+        List<Transaction> lot = new ArrayList<>(tailleLot);
+        Iterator<Transaction> iterateur = transactions.iterator();
+
+        try (Connection conn = getConnection()) {
+            boolean transactionEnglobante = !conn.getAutoCommit();
+            if (!transactionEnglobante) {
+                conn.setAutoCommit(false);
+            }
+
+            while (iterateur.hasNext()) {
+                lot.add(iterateur.next());
+                if (lot.size() < tailleLot && iterateur.hasNext()) {
+                    continue;
+                }
+
+                try {
+                    ecriture.ecrire(conn, lot);
+                    if (!transactionEnglobante) {
+                        conn.commit();
+                    }
+                    inserees += lot.size();
+                } catch (SQLException e) {
+                    if (transactionEnglobante) {
+                        throw e;
+                    }
+                    conn.rollback();
+                    rejetees += lot.size();
+                    echecs.add(new ResultatIngestion.EchecLot(position, lot.size(), e));
+                }
+                position += lot.size();
+                lot.clear();
+            }
+
+            if (!transactionEnglobante) {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        return new ResultatIngestion(inserees, rejetees, echecs, System.nanoTime() - debut);
+    }
+
+    @FunctionalInterface
+    private interface Parametres {
+        void lier(PreparedStatement stmt) throws SQLException;
+    }
+
+    // Curseur côté serveur : PostgreSQL ne respecte le fetch size qu'hors autocommit.
+    // Les ressources sont libérées à la fermeture du flux ou dès la dernière ligne lue.
+    private Stream<Transaction> stream(String sql, Parametres parametres) throws SQLException {
+        Connection conn = getConnection();
+        PreparedStatement stmt = null;
+        try {
+            boolean autoCommitInitial = conn.getAutoCommit();
+            if (autoCommitInitial) {
+                conn.setAutoCommit(false);
+            }
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(TAILLE_FETCH);
+            parametres.lier(stmt);
+            ResultSet rs = stmt.executeQuery();
+
+            PreparedStatement stmtOuvert = stmt;
+            Runnable fermeture = new Runnable() {
+                private boolean fermee;
+
+                @Override
+                public void run() {
+                    if (fermee) {
+                        return;
+                    }
+                    fermee = true;
+                    try (conn) {
+                        rs.close();
+                        stmtOuvert.close();
+                        if (autoCommitInitial) {
+                            conn.commit();
+                            conn.setAutoCommit(true);
+                        }
+                    } catch (SQLException e) {
+                        throw new UncheckedSQLException(e);
+                    }
+                }
+            };
+
+            Spliterator<Transaction> lignes = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Transaction> action) {
+                    try {
+                        if (!rs.next()) {
+                            fermeture.run();
+                            return false;
+                        }
+                        action.accept(mapResultSetToTransaction(rs));
+                        return true;
+                    } catch (SQLException e) {
+                        try {
+                            fermeture.run();
+                        } catch (UncheckedSQLException echecFermeture) {
+                            e.addSuppressed(echecFermeture.getCause());
+                        }
+                        throw new UncheckedSQLException(e);
+                    }
+                }
+            };
+
+            return StreamSupport.stream(lignes, false).onClose(fermeture);
+        } catch (SQLException | RuntimeException e) {
+            if (stmt != null) {
+                stmt.close();
+            }
+            conn.close();
+            throw e;
+        }
+    }
+
+    // Une ligne de plus que la page est lue pour savoir s'il existe une suite sans requête COUNT.
+    private List<Transaction> lireLignes(PreparedStatement stmt, int capacite) throws SQLException {
+        List<Transaction> transactions = new ArrayList<>(capacite);
+        ResultSet rs = stmt.executeQuery();
+        while (rs.next()) {
+            transactions.add(mapResultSetToTransaction(rs));
+        }
+        return transactions;
+    }
+
+    // Les lignes archivées ne sont lues que si elles peuvent entrer dans la page : page en base
+    // incomplète, ou ligne de contrôle antérieure à la fin du mois archivé le plus récent.
+    private Page<Transaction> pageAvecArchives(List<Transaction> transactions, List<MoisArchive> mois,
+                                               Predicate<Transaction> filtre, int taille) {
+        if (!mois.isEmpty() && (transactions.size() <= taille
+                || transactions.get(taille).date().isBefore(mois.get(0).mois().plusMonths(1).atDay(1).atStartOfDay()))) {
+            archives.stream(mois, filtre, true).limit(taille + 1).forEach(transactions::add);
+            transactions.sort(ANTICHRONOLOGIQUE);
+        }
+        if (transactions.size() <= taille) {
+            return new Page<>(transactions, null);
+        }
+        transactions.subList(taille, transactions.size()).clear();
+        Transaction derniere = transactions.get(taille - 1);
+        return new Page<>(transactions, Curseur.versJeton(ESPACE_CURSEUR, derniere.date(), derniere.id()));
+    }
+
+    // Ajoute les lignes archivées retenues puis trie : les deux suites déjà ordonnées sont fusionnées
+    // par le tri, stable, qui garde l'ordre de la base entre lignes égales.
+    private List<Transaction> avecArchives(List<Transaction> transactions, List<MoisArchive> mois,
+                                           Predicate<Transaction> filtre, Comparator<Transaction> ordre) {
+        if (!mois.isEmpty()) {
+            try (Stream<Transaction> archivees = archives.stream(mois, filtre, true)) {
+                archivees.forEach(transactions::add);
+            }
+            transactions.sort(ordre);
+        }
+        return transactions;
+    }
+
+    // Fusion paresseuse du flux en base et des mois archivés, tous deux triés selon ordre ; hors tri
+    // par date, les lignes archivées retenues sont triées en mémoire. Fermer le résultat ferme le flux en base.
+    private Stream<Transaction> fusionner(Stream<Transaction> enBase, List<MoisArchive> mois,
+                                          Predicate<Transaction> filtre, Comparator<Transaction> ordre) {
+        if (mois.isEmpty()) {
+            return enBase;
+        }
+        boolean parDate = ordre == CHRONOLOGIQUE || ordre == PAR_DATE_DECROISSANTE;
+        Stream<Transaction> archivees = archives.stream(mois, filtre, ordre != CHRONOLOGIQUE);
+        Iterator<Transaction> premier = enBase.iterator();
+        Iterator<Transaction> second = (parDate ? archivees : archivees.sorted(ordre)).iterator();
+        Iterator<Transaction> fusion = new Iterator<>() {
+            private Transaction suivantePremier;
+            private Transaction suivanteSecond;
+            // Le curseur en base ne doit plus être avancé une fois épuisé : il est alors fermé.
+            private boolean premierEpuise;
+            private boolean secondEpuise;
+
+            @Override
+            public boolean hasNext() {
+                if (suivantePremier == null && !premierEpuise) {
+                    premierEpuise = !premier.hasNext();
+                    suivantePremier = premierEpuise ? null : premier.next();
+                }
+                if (suivanteSecond == null && !secondEpuise) {
+                    secondEpuise = !second.hasNext();
+                    suivanteSecond = secondEpuise ? null : second.next();
+                }
+                return suivantePremier != null || suivanteSecond != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Transaction suivante;
+                if (suivanteSecond == null || (suivantePremier != null && ordre.compare(suivantePremier, suivanteSecond) <= 0)) {
+                    suivante = suivantePremier;
+                    suivantePremier = null;
+                } else {
+                    suivante = suivanteSecond;
+                    suivanteSecond = null;
+                }
+                return suivante;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(fusion, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(enBase::close);
+    }
+
+    // Mois archivés retenus, du plus récent au plus ancien comme les requêtes par date décroissante.
+    private List<MoisArchive> moisArchivesDecroissants(Predicate<MoisArchive> retenu) throws SQLException {
+        return decroissants(archives.moisArchives(), retenu);
+    }
+
+    private static List<MoisArchive> decroissants(List<MoisArchive> mois, Predicate<MoisArchive> retenu) {
+        List<MoisArchive> retenus = new ArrayList<>();
+        for (MoisArchive archive : mois) {
+            if (retenu.test(archive)) {
+                retenus.add(0, archive);
+            }
+        }
+        return retenus;
+    }
+
+    private static boolean entre(MoisArchive archive, LocalDateTime debut, LocalDateTime fin) {
+        return !archive.mois().isBefore(YearMonth.from(debut)) && !archive.mois().isAfter(YearMonth.from(fin));
+    }
+
+    private static boolean avantCurseur(MoisArchive archive, Curseur.Position position) {
+        return position == null || !archive.mois().isAfter(YearMonth.from(position.date()));
+    }
+
+    // Strictement après le curseur dans l'ordre (date, id) décroissant des pages.
+    private static boolean avantCurseur(Transaction transaction, Curseur.Position position) {
+        if (position == null) {
+            return true;
+        }
+        int comparaison = transaction.date().compareTo(position.date());
+        return comparaison < 0 || (comparaison == 0 && transaction.id() < position.id());
+    }
+
+    private void lierParametres(PreparedStatement stmt, Transaction transaction) throws SQLException {
+        stmt.setTimestamp(1, Timestamp.valueOf(transaction.date()));
+        stmt.setBigDecimal(2, Montant.versDecimal(transaction.montant()));
+        stmt.setString(3, transaction.type().name());
+        stmt.setString(4, transaction.lieu());
+        stmt.setInt(5, transaction.idCompte());
+    }
+
+    private void ecrireLigneCsv(StringBuilder ligne, Transaction transaction) {
+        ligne.append(transaction.date()).append(',');
+        Montant.ecrire(ligne, transaction.montant()).append(',')
+                .append(transaction.type().name()).append(',');
+        if (transaction.lieu() != null) {
+            ligne.append('"').append(transaction.lieu().replace("\"", "\"\"")).append('"');
+        }
+        ligne.append(',').append(transaction.idCompte()).append('\n');
+    }
+
+    // Lecture positionnelle : le ResultSet doit suivre l'ordre de COLONNES.
+    public static Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
+        int id = rs.getInt(1);
+        LocalDateTime date = rs.getObject(2, LocalDateTime.class);
+        long montant = Montant.depuisDecimal(rs.getBigDecimal(3));
+        TypeTransaction type = TypeTransaction.depuisCode(rs.getString(4));
+        String lieu = rs.getString(5);
+        int idCompte = rs.getInt(6);
 
-        return new Transaction(date, montant, type, lieu, idCompte);
+        return new Transaction(id, date, montant, type, lieu, idCompte);
     }
 }
\ No newline at end of file
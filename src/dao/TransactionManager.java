@@ -0,0 +1,166 @@
+package dao;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TransactionManager {
+    private static final ThreadLocal<Connection> CONNEXION_COURANTE = new ThreadLocal<>();
+    private static final ThreadLocal<List<Runnable>> APRES_COMMIT = new ThreadLocal<>();
+    private static final String ECHEC_SERIALISATION = "40001";
+    private static final String INTERBLOCAGE = "40P01";
+
+    private final int isolation;
+    private final int maxTentatives;
+    private final long attenteBaseMillis;
+    private final long attenteMaxMillis;
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder rollbacks = new LongAdder();
+    private final LongAdder reessais = new LongAdder();
+    private final LongAdder interblocages = new LongAdder();
+
+    public TransactionManager() {
+        this(Connection.TRANSACTION_READ_COMMITTED, 5, 5, 200);
+    }
+
+    public TransactionManager(int isolation, int maxTentatives, long attenteBaseMillis, long attenteMaxMillis) {
+        this.isolation = isolation;
+        this.maxTentatives = maxTentatives;
+        this.attenteBaseMillis = attenteBaseMillis;
+        this.attenteMaxMillis = attenteMaxMillis;
+    }
+
+    @FunctionalInterface
+    public interface Travail<T> {
+        T executer() throws SQLException;
+    }
+
+    public <T> T executer(Travail<T> travail) throws SQLException {
+        if (CONNEXION_COURANTE.get() != null) {
+            return travail.executer();
+        }
+
+        int tentative = 1;
+        while (true) {
+            try {
+                return executerUneFois(travail);
+            } catch (SQLException e) {
+                if (INTERBLOCAGE.equals(e.getSQLState())) {
+                    interblocages.increment();
+                }
+                if (!estReessayable(e) || tentative >= maxTentatives) {
+                    throw e;
+                }
+                reessais.increment();
+                patienter(tentative++);
+            }
+        }
+    }
+
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    public long getRollbacks() {
+        return rollbacks.sum();
+    }
+
+    public long getReessais() {
+        return reessais.sum();
+    }
+
+    public long getInterblocages() {
+        return interblocages.sum();
+    }
+
+    static boolean transactionActive() {
+        return CONNEXION_COURANTE.get() != null;
+    }
+
+    static void apresCommit(Runnable action) {
+        List<Runnable> actions = APRES_COMMIT.get();
+        if (actions == null) {
+            action.run();
+        } else {
+            actions.add(action);
+        }
+    }
+
+    static Connection connexionCourante() {
+        Connection liee = CONNEXION_COURANTE.get();
+        if (liee == null) {
+            return null;
+        }
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        return null;
+                    }
+                    try {
+                        return method.invoke(liee, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+        );
+    }
+
+    private <T> T executerUneFois(Travail<T> travail) throws SQLException {
+        List<Runnable> actionsApresCommit = new ArrayList<>();
+        T resultat;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(isolation);
+            CONNEXION_COURANTE.set(conn);
+            APRES_COMMIT.set(actionsApresCommit);
+            try {
+                resultat = travail.executer();
+                conn.commit();
+                commits.increment();
+            } catch (SQLException | RuntimeException | Error e) {
+                rollbacks.increment();
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEchoue) {
+                    e.addSuppressed(rollbackEchoue);
+                }
+                throw e;
+            } finally {
+                CONNEXION_COURANTE.remove();
+                APRES_COMMIT.remove();
+            }
+        }
+        actionsApresCommit.forEach(Runnable::run);
+        return resultat;
+    }
+
+    // Erreur liée aux données ou à la requête elle-même (classes 22, 23 et 42) : rejouée telle quelle,
+    // elle échouera toujours. Le reste (connexion, ressources, arrêt du serveur, pool) peut passer plus tard.
+    public static boolean estDefinitive(SQLException e) {
+        String etat = e.getSQLState();
+        return etat != null && (etat.startsWith("22") || etat.startsWith("23") || etat.startsWith("42"));
+    }
+
+    private boolean estReessayable(SQLException e) {
+        String etat = e.getSQLState();
+        return ECHEC_SERIALISATION.equals(etat) || INTERBLOCAGE.equals(etat);
+    }
+
+    // Recul exponentiel avec gigue pour désynchroniser les transactions en conflit.
+    private void patienter(int tentative) throws SQLException {
+        long plafond = Math.min(attenteMaxMillis, attenteBaseMillis << Math.min(tentative, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(plafond / 2, plafond + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Nouvelle tentative interrompue", e);
+        }
+    }
+}
@@ -1,3 +1,7 @@
 package entity;
 
-public record Client(String nom, String email) {}
\ No newline at end of file
+public record Client(int id, String nom, String email) {
+    public Client(String nom, String email) {
+        this(0, nom, email);
+    }
+}
\ No newline at end of file
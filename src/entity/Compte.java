@@ -1,21 +1,27 @@
 package entity;
 
 public sealed abstract class Compte permits CompteCourant, CompteEpargne {
+    int id;
     String code;
-    double solde;
+    long solde;
     int idClient;
 
-    Compte(String code, double solde, int idClient) {
+    Compte(int id, String code, long solde, int idClient) {
+        this.id = id;
         this.code = code;
         this.solde = solde;
         this.idClient = idClient;
     }
 
+    public int getId() {
+        return id;
+    }
+
     public String getCode() {
         return code;
     }
 
-    public double getSolde() {
+    public long getSolde() {
         return solde;
     }
 
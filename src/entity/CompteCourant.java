@@ -1,14 +1,18 @@
 package entity;
 
 public final class CompteCourant extends Compte {
-    double decouvert;
+    long decouvert;
 
-    public CompteCourant(String code, double solde, int idClient, double decouvert){
-        super(code, solde, idClient);
+    public CompteCourant(String code, long solde, int idClient, long decouvert){
+        this(0, code, solde, idClient, decouvert);
+    }
+
+    public CompteCourant(int id, String code, long solde, int idClient, long decouvert){
+        super(id, code, solde, idClient);
         this.decouvert = decouvert;
     }
 
-    public double getDecouvert() {
+    public long getDecouvert() {
         return decouvert;
     }
 }
\ No newline at end of file
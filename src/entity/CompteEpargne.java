@@ -3,8 +3,12 @@ package entity;
 public final class CompteEpargne extends Compte {
     private double tauxInteret;
 
-    public CompteEpargne(String code, double solde, int idClient, double tauxInteret){
-        super(code, solde, idClient);
+    public CompteEpargne(String code, long solde, int idClient, double tauxInteret){
+        this(0, code, solde, idClient, tauxInteret);
+    }
+
+    public CompteEpargne(int id, String code, long solde, int idClient, double tauxInteret){
+        super(id, code, solde, idClient);
         this.tauxInteret = tauxInteret;
     }
 
@@ -2,4 +2,15 @@ package entity;
 
 import java.time.LocalDateTime;
 
-public record Transaction(LocalDateTime date, double montant, TypeTransaction type, String lieu, int idCompte) {}
+public record Transaction(int id, LocalDateTime date, long montant, TypeTransaction type, String lieu, int idCompte) {
+    // Lieu retenu quand l'opération est saisie sans lieu : il ne dit rien de l'endroit réel.
+    public static final String LIEU_PAR_DEFAUT = "Agence";
+
+    public Transaction(LocalDateTime date, long montant, TypeTransaction type, String lieu, int idCompte) {
+        this(0, date, montant, type, lieu, idCompte);
+    }
+
+    public Transaction avecId(int id) {
+        return new Transaction(id, date, montant, type, lieu, idCompte);
+    }
+}
\ No newline at end of file
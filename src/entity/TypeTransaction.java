@@ -1,5 +1,14 @@
 package entity;
 
 public enum TypeTransaction {
-    VERSEMENT, RETRAIT, VIREMENT
-}
\ No newline at end of file
+    VERSEMENT, RETRAIT, VIREMENT;
+
+    public static TypeTransaction depuisCode(String code) {
+        return switch (code) {
+            case "VERSEMENT" -> VERSEMENT;
+            case "RETRAIT" -> RETRAIT;
+            case "VIREMENT" -> VIREMENT;
+            default -> throw new IllegalArgumentException("Type de transaction inconnu : " + code);
+        };
+    }
+}
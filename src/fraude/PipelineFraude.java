@@ -0,0 +1,118 @@
+package fraude;
+
+import entity.Transaction;
+import util.LatencyHistogram;
+
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class PipelineFraude {
+    public static final long FENETRE_FREQUENCE_SECONDES = 60;
+
+    public record MetriqueRegle(String nom, long signalements, LatencyHistogram duree) {
+        @Override
+        public String toString() {
+            return String.format("%s : %d signalement(s) | %s", nom, signalements, duree.resume());
+        }
+    }
+
+    private final List<RegleFraude> regles;
+    private final List<Consumer<Transaction>> signaleurs = new ArrayList<>();
+    private final LatencyHistogram[] durees;
+    private final LongAdder[] signalements;
+    private final long horizonSecondes;
+
+    private final Set<Transaction> signaleesRecentes = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ArrayDeque<Transaction> ordreSignalement = new ArrayDeque<>();
+    private final LongAdder analysees = new LongAdder();
+    private final LongAdder signalees = new LongAdder();
+    private Consumer<Transaction> sortie;
+
+    public PipelineFraude(List<RegleFraude> regles) {
+        if (regles.isEmpty()) {
+            throw new IllegalArgumentException("Au moins une règle est requise");
+        }
+        this.regles = List.copyOf(regles);
+        this.durees = new LatencyHistogram[regles.size()];
+        this.signalements = new LongAdder[regles.size()];
+
+        long horizon = 0;
+        for (int i = 0; i < regles.size(); i++) {
+            int index = i;
+            durees[i] = new LatencyHistogram();
+            signalements[i] = new LongAdder();
+            signaleurs.add(t -> signaler(index, t));
+            horizon = Math.max(horizon, regles.get(i).horizonSecondes());
+        }
+        this.horizonSecondes = horizon;
+    }
+
+    public static PipelineFraude standard(long seuilMontant, String paysHabituel, long fenetreSecondes) {
+        List<RegleFraude> regles = new ArrayList<>();
+        regles.add(new RegleMontant(seuilMontant));
+        if (paysHabituel != null) {
+            regles.add(new RegleLieu(paysHabituel));
+        }
+        regles.add(new RegleVelocite(fenetreSecondes));
+        return new PipelineFraude(regles);
+    }
+
+    public long analyser(Stream<Transaction> flux, Consumer<Transaction> sortie) {
+        long avant = analysees.sum();
+        flux.forEachOrdered(t -> evaluer(t, sortie));
+        return analysees.sum() - avant;
+    }
+
+    public synchronized void evaluer(Transaction transaction, Consumer<Transaction> sortie) {
+        this.sortie = sortie;
+        try {
+            for (int i = 0; i < regles.size(); i++) {
+                long debut = System.nanoTime();
+                regles.get(i).evaluer(transaction, signaleurs.get(i));
+                durees[i].enregistrer(System.nanoTime() - debut);
+            }
+            analysees.increment();
+            oublierSignalementsExpires(transaction);
+        } finally {
+            this.sortie = null;
+        }
+    }
+
+    public List<MetriqueRegle> metriques() {
+        List<MetriqueRegle> metriques = new ArrayList<>();
+        for (int i = 0; i < regles.size(); i++) {
+            metriques.add(new MetriqueRegle(regles.get(i).nom(), signalements[i].sum(), durees[i]));
+        }
+        return metriques;
+    }
+
+    public long getTransactionsAnalysees() {
+        return analysees.sum();
+    }
+
+    public long getTransactionsSignalees() {
+        return signalees.sum();
+    }
+
+    private void signaler(int regle, Transaction transaction) {
+        signalements[regle].increment();
+        if (signaleesRecentes.add(transaction)) {
+            ordreSignalement.addLast(transaction);
+            signalees.increment();
+            sortie.accept(transaction);
+        }
+    }
+
+    private void oublierSignalementsExpires(Transaction courante) {
+        while (!ordreSignalement.isEmpty()) {
+            Transaction plusAncienne = ordreSignalement.peekFirst();
+            if (Math.abs(ChronoUnit.SECONDS.between(plusAncienne.date(), courante.date())) < horizonSecondes) {
+                break;
+            }
+            signaleesRecentes.remove(ordreSignalement.removeFirst());
+        }
+    }
+}
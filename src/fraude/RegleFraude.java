@@ -0,0 +1,15 @@
+package fraude;
+
+import entity.Transaction;
+
+import java.util.function.Consumer;
+
+public interface RegleFraude {
+    String nom();
+
+    void evaluer(Transaction transaction, Consumer<Transaction> signaler);
+
+    default long horizonSecondes() {
+        return 0;
+    }
+}
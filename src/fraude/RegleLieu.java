@@ -0,0 +1,25 @@
+package fraude;
+
+import entity.Transaction;
+
+import java.util.function.Consumer;
+
+public class RegleLieu implements RegleFraude {
+    private final String paysHabituel;
+
+    public RegleLieu(String paysHabituel) {
+        this.paysHabituel = paysHabituel;
+    }
+
+    @Override
+    public String nom() {
+        return "Lieu hors " + paysHabituel;
+    }
+
+    @Override
+    public void evaluer(Transaction transaction, Consumer<Transaction> signaler) {
+        if (transaction.lieu() == null || !transaction.lieu().contains(paysHabituel)) {
+            signaler.accept(transaction);
+        }
+    }
+}
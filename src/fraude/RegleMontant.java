@@ -0,0 +1,26 @@
+package fraude;
+
+import entity.Transaction;
+import util.Montant;
+
+import java.util.function.Consumer;
+
+public class RegleMontant implements RegleFraude {
+    private final long seuil;
+
+    public RegleMontant(long seuil) {
+        this.seuil = seuil;
+    }
+
+    @Override
+    public String nom() {
+        return "Montant > " + Montant.texte(seuil);
+    }
+
+    @Override
+    public void evaluer(Transaction transaction, Consumer<Transaction> signaler) {
+        if (transaction.montant() > seuil) {
+            signaler.accept(transaction);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package fraude;
+
+import entity.Transaction;
+
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class RegleVelocite implements RegleFraude {
+    private final long fenetreSecondes;
+    private final LinkedHashMap<Integer, Transaction> derniereParCompte = new LinkedHashMap<>();
+
+    public RegleVelocite(long fenetreSecondes) {
+        if (fenetreSecondes <= 0) {
+            throw new IllegalArgumentException("La fenêtre doit être positive");
+        }
+        this.fenetreSecondes = fenetreSecondes;
+    }
+
+    @Override
+    public String nom() {
+        return "Fréquence < " + fenetreSecondes + "s";
+    }
+
+    @Override
+    public long horizonSecondes() {
+        return fenetreSecondes;
+    }
+
+    @Override
+    public void evaluer(Transaction transaction, Consumer<Transaction> signaler) {
+        Transaction precedente = derniereParCompte.remove(transaction.idCompte());
+        if (precedente != null && dansLaFenetre(precedente, transaction)) {
+            signaler.accept(precedente);
+            signaler.accept(transaction);
+        }
+        derniereParCompte.put(transaction.idCompte(), transaction);
+        expirer(transaction);
+    }
+
+    public int comptesSuivis() {
+        return derniereParCompte.size();
+    }
+
+    private void expirer(Transaction courante) {
+        Iterator<Map.Entry<Integer, Transaction>> it = derniereParCompte.entrySet().iterator();
+        while (it.hasNext()) {
+            if (dansLaFenetre(it.next().getValue(), courante)) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private boolean dansLaFenetre(Transaction precedente, Transaction courante) {
+        return Math.abs(ChronoUnit.SECONDS.between(precedente.date(), courante.date())) < fenetreSecondes;
+    }
+}
@@ -0,0 +1,143 @@
+package fraude;
+
+import entity.Transaction;
+import util.Montant;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sort l'évaluation des règles du chemin d'écriture : les écrivains déposent la transaction dans
+// une file bornée et un thread unique la passe au pipeline, seul à toucher l'état des règles.
+// La file pleine ralentit les écrivains plutôt que de laisser passer une transaction sans analyse.
+// Une seule instance est partagée par tous les services : un thread d'évaluation par processus,
+// et une vélocité mesurée sur toutes les opérations, quel que soit le service qui les a écrites.
+public final class SurveillanceAsynchrone {
+    private static final int ALERTES_CONSERVEES = 100;
+    private static final long ATTENTE_ARRET_MILLIS = 5_000;
+    private static volatile SurveillanceAsynchrone instance;
+
+    private final PipelineFraude pipeline;
+    private final BlockingQueue<Transaction> file;
+    private final Deque<Transaction> alertesRecentes = new ArrayDeque<>();
+    private final LongAdder echecs = new LongAdder();
+    private final Thread evaluateur;
+    private volatile boolean actif = true;
+
+    public SurveillanceAsynchrone(PipelineFraude pipeline, int capacite) {
+        this.pipeline = pipeline;
+        this.file = new ArrayBlockingQueue<>(capacite);
+        this.evaluateur = new Thread(this::evaluer, "fraude-surveillance");
+        this.evaluateur.setDaemon(true);
+        this.evaluateur.start();
+    }
+
+    public static SurveillanceAsynchrone actif() {
+        SurveillanceAsynchrone courante = instance;
+        if (courante == null) {
+            synchronized (SurveillanceAsynchrone.class) {
+                courante = instance;
+                if (courante == null) {
+                    courante = new SurveillanceAsynchrone(PipelineFraude.standard(
+                            Montant.parser(System.getProperty("bank.fraude.seuil", "10000")),
+                            System.getProperty("bank.fraude.pays", "Maroc"),
+                            PipelineFraude.FENETRE_FREQUENCE_SECONDES),
+                            Integer.getInteger("bank.fraude.file", 8_192));
+                    instance = courante;
+                }
+            }
+        }
+        return courante;
+    }
+
+    public static void fermerActif() {
+        synchronized (SurveillanceAsynchrone.class) {
+            if (instance != null) {
+                instance.fermer();
+                instance = null;
+            }
+        }
+    }
+
+    // Après fermer, l'opération déjà écrite n'est plus analysée : elle n'est pas refusée pour autant.
+    public void soumettre(Transaction transaction) {
+        if (!actif) {
+            return;
+        }
+        boolean interrompu = false;
+        while (true) {
+            try {
+                file.put(transaction);
+                break;
+            } catch (InterruptedException e) {
+                interrompu = true;
+            }
+        }
+        if (interrompu) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Laisse l'évaluateur vider la file, dans la limite de ATTENTE_ARRET_MILLIS.
+    public void fermer() {
+        actif = false;
+        try {
+            evaluateur.join(ATTENTE_ARRET_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        evaluateur.interrupt();
+    }
+
+    public PipelineFraude pipeline() {
+        return pipeline;
+    }
+
+    public List<Transaction> alertesRecentes() {
+        synchronized (alertesRecentes) {
+            return new ArrayList<>(alertesRecentes);
+        }
+    }
+
+    public int enAttente() {
+        return file.size();
+    }
+
+    public long getEchecs() {
+        return echecs.sum();
+    }
+
+    private void evaluer() {
+        while (actif || !file.isEmpty()) {
+            Transaction transaction;
+            try {
+                transaction = file.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (transaction == null) {
+                continue;
+            }
+            try {
+                pipeline.evaluer(transaction, this::alerter);
+            } catch (RuntimeException e) {
+                echecs.increment();
+                System.err.println("Évaluation de fraude en échec : " + e.getMessage());
+            }
+        }
+    }
+
+    private void alerter(Transaction transaction) {
+        synchronized (alertesRecentes) {
+            if (alertesRecentes.size() == ALERTES_CONSERVEES) {
+                alertesRecentes.removeFirst();
+            }
+            alertesRecentes.addLast(transaction);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package journal;
+
+import dao.JournalDAO;
+import dao.QuarantaineDAO;
+import dao.TransactionDAO;
+import dao.TransactionManager;
+import entity.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Journal local des transactions, en ajout seul : une transaction est durable dès que son
+// enregistrement est forcé sur disque, un seul force couvrant tous les ajouts en attente.
+// L'expéditeur recopie ensuite les enregistrements durables dans la table transaction et avance
+// journal_expedition dans la même transaction SQL : la reprise après arrêt brutal ne rejoue
+// que ce qui n'a pas été expédié, sans doublon.
+// Un enregistrement que la base refuse définitivement est isolé ligne à ligne et mis en quarantaine.
+// Un force en échec ou un enregistrement illisible met le journal en défaillance : ajouter échoue
+// alors au lieu d'attendre une durabilité qui ne viendra plus, et les métriques le signalent.
+public final class Journal {
+    private static final int ENREGISTREMENTS_PAR_SEGMENT = Integer.getInteger("bank.journal.enregistrementsParSegment", 1 << 17);
+    private static final long ATTENTE_REESSAI_MILLIS = 500;
+    private static final long ATTENTE_ARRET_MILLIS = 30_000;
+    static final String ORIGINE_QUARANTAINE = "journal";
+    private static volatile Journal instance;
+
+    public record MetriquesJournal(long sequenceEcrite, long sequenceDurable, long sequenceExpediee,
+                                   int segments, long synchronisations, long lotsExpedies, long echecsExpedition,
+                                   long quarantaines, String defaillance) {}
+
+    private final Path repertoire;
+    private final int enregistrementsParSegment;
+    private final int tailleLot;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Set<Segment> aForcer = new LinkedHashSet<>();
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final Condition ecriture = verrou.newCondition();
+    private final Condition durabilite = verrou.newCondition();
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final JournalDAO journalDAO = new JournalDAO();
+    private final QuarantaineDAO quarantaineDAO = new QuarantaineDAO();
+    private final TransactionManager transactionManager = new TransactionManager();
+    private final LongAdder synchronisations = new LongAdder();
+    private final LongAdder lotsExpedies = new LongAdder();
+    private final LongAdder echecsExpedition = new LongAdder();
+    private final LongAdder quarantaines = new LongAdder();
+    private final Thread synchroniseur;
+    private final Thread expediteur;
+    private volatile Segment courant;
+    private volatile long sequenceEcrite;
+    private volatile long sequenceDurable;
+    private volatile long sequenceExpediee;
+    private volatile boolean actif = true;
+    private volatile String defaillance;
+
+    private Journal(Path repertoire, int enregistrementsParSegment, int tailleLot) {
+        this.repertoire = repertoire;
+        this.enregistrementsParSegment = enregistrementsParSegment;
+        this.tailleLot = tailleLot;
+        this.synchroniseur = new Thread(this::synchroniser, "journal-synchro");
+        this.expediteur = new Thread(this::expedier, "journal-expediteur");
+        this.synchroniseur.setDaemon(true);
+        this.expediteur.setDaemon(true);
+    }
+
+    // null tant que bank.journal.actif n'est pas positionné : les transactions vont alors directement en base.
+    public static Journal actif() {
+        if (!Boolean.getBoolean("bank.journal.actif")) {
+            return null;
+        }
+        Journal courant = instance;
+        if (courant == null) {
+            synchronized (Journal.class) {
+                courant = instance;
+                if (courant == null) {
+                    try {
+                        courant = ouvrir(Path.of(System.getProperty("bank.journal.repertoire", "journal")),
+                                ENREGISTREMENTS_PAR_SEGMENT);
+                    } catch (SQLException | IOException e) {
+                        throw new IllegalStateException("Ouverture du journal impossible : " + e.getMessage(), e);
+                    }
+                    instance = courant;
+                }
+            }
+        }
+        return courant;
+    }
+
+    public static void fermerActif() {
+        synchronized (Journal.class) {
+            if (instance != null) {
+                instance.fermer();
+                instance = null;
+            }
+        }
+    }
+
+    // Relit les segments présents jusqu'au premier enregistrement invalide, puis reprend l'écriture
+    // à la suite ; l'expéditeur repart du point enregistré en base et rejoue le reste.
+    public static Journal ouvrir(Path repertoire, int enregistrementsParSegment) throws IOException, SQLException {
+        Files.createDirectories(repertoire);
+        Journal journal = new Journal(repertoire, enregistrementsParSegment, TransactionDAO.TAILLE_LOT_PAR_DEFAUT);
+        long expediee = new JournalDAO().findSequenceExpediee();
+
+        List<Path> fichiers;
+        try (Stream<Path> contenu = Files.list(repertoire)) {
+            fichiers = contenu.filter(Segment::estSegment).sorted().toList();
+        }
+        long derniere = 0;
+        boolean finAtteinte = false;
+        for (Path fichier : fichiers) {
+            Segment segment = Segment.ouvrir(fichier);
+            if (finAtteinte || (derniere > 0 && segment.premiereSequence() != derniere + 1)) {
+                // Au-delà d'une fin de journal : rien de ce segment n'a pu être acquitté.
+                System.err.println("Segment de journal ignoré après la fin du journal : " + fichier);
+                segment.close();
+                Files.move(fichier, fichier.resolveSibling(fichier.getFileName() + ".ignore"));
+                continue;
+            }
+            journal.segments.put(segment.premiereSequence(), segment);
+            derniere = segment.derniereSequenceValide();
+            finAtteinte = derniere < segment.derniereSequence();
+            if (finAtteinte) {
+                // Effacé et forcé avant toute nouvelle écriture à la suite.
+                segment.effacerApres(derniere);
+                segment.forcer();
+            }
+        }
+
+        long prochaine = Math.max(derniere, expediee) + 1;
+        Map.Entry<Long, Segment> dernier = journal.segments.lastEntry();
+        if (dernier != null && dernier.getValue().contient(prochaine) && prochaine == derniere + 1) {
+            journal.courant = dernier.getValue();
+        } else {
+            journal.courant = journal.nouveauSegment(prochaine);
+        }
+        journal.sequenceEcrite = prochaine - 1;
+        journal.sequenceDurable = prochaine - 1;
+        journal.sequenceExpediee = Math.min(expediee, prochaine - 1);
+        journal.purger(journal.sequenceExpediee);
+        journal.synchroniseur.start();
+        journal.expediteur.start();
+        return journal;
+    }
+
+    // Rend la main une fois l'enregistrement sur disque ; retourne sa séquence.
+    public long ajouter(Transaction transaction) {
+        long sequence = ecrire(transaction);
+        verrou.lock();
+        try {
+            while (sequenceDurable < sequence && defaillance == null) {
+                durabilite.awaitUninterruptibly();
+            }
+            if (sequenceDurable < sequence) {
+                throw new IllegalStateException("Journal en défaillance : " + defaillance);
+            }
+        } finally {
+            verrou.unlock();
+        }
+        return sequence;
+    }
+
+    public boolean attendreExpedition(long delaiMillis) throws InterruptedException {
+        long cible = sequenceEcrite;
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delaiMillis);
+        while (sequenceExpediee < cible) {
+            if (System.nanoTime() > limite || defaillance != null) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    public MetriquesJournal metriques() {
+        return new MetriquesJournal(sequenceEcrite, sequenceDurable, sequenceExpediee, segments.size(),
+                synchronisations.sum(), lotsExpedies.sum(), echecsExpedition.sum(), quarantaines.sum(), defaillance);
+    }
+
+    public boolean enDefaillance() {
+        return defaillance != null;
+    }
+
+    // Laisse l'expéditeur vider le journal s'il le peut ; ce qui reste sera rejoué au prochain démarrage.
+    // Arrêté, l'expéditeur abandonne au premier échec : une base injoignable ne bloque pas la fermeture.
+    public void fermer() {
+        try {
+            attendreExpedition(ATTENTE_ARRET_MILLIS);
+            actif = false;
+            verrou.lock();
+            try {
+                ecriture.signalAll();
+            } finally {
+                verrou.unlock();
+            }
+            synchroniseur.join();
+            expediteur.join(ATTENTE_ARRET_MILLIS);
+            if (expediteur.isAlive()) {
+                System.err.println("Expéditeur du journal toujours actif à la fermeture ; la suite sera rejouée au démarrage");
+                return;
+            }
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Fermeture du journal incomplète : " + e.getMessage());
+        }
+    }
+
+    private long ecrire(Transaction transaction) {
+        verrou.lock();
+        try {
+            if (!actif) {
+                throw new IllegalStateException("Journal fermé");
+            }
+            if (defaillance != null) {
+                throw new IllegalStateException("Journal en défaillance : " + defaillance);
+            }
+            long sequence = sequenceEcrite + 1;
+            if (!courant.contient(sequence)) {
+                courant = nouveauSegment(sequence);
+            }
+            courant.ecrire(sequence, transaction);
+            aForcer.add(courant);
+            sequenceEcrite = sequence;
+            ecriture.signal();
+            return sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Création d'un segment de journal impossible", e);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private Segment nouveauSegment(long premiereSequence) throws IOException {
+        Segment segment = Segment.creer(repertoire, premiereSequence, enregistrementsParSegment);
+        segments.put(premiereSequence, segment);
+        return segment;
+    }
+
+    private void synchroniser() {
+        List<Segment> lot = new ArrayList<>();
+        while (true) {
+            long cible;
+            verrou.lock();
+            try {
+                while (sequenceEcrite == sequenceDurable && actif) {
+                    ecriture.awaitUninterruptibly();
+                }
+                if (sequenceEcrite == sequenceDurable) {
+                    return;
+                }
+                cible = sequenceEcrite;
+                lot.addAll(aForcer);
+                aForcer.clear();
+            } finally {
+                verrou.unlock();
+            }
+
+            try {
+                for (Segment segment : lot) {
+                    segment.forcer();
+                }
+            } catch (RuntimeException | Error e) {
+                // Rien ne garantit plus la durabilité des enregistrements en attente : aucun n'est acquitté.
+                defaillir("force du journal en échec : " + e, e);
+                return;
+            }
+            lot.clear();
+            synchronisations.increment();
+
+            verrou.lock();
+            try {
+                sequenceDurable = cible;
+                durabilite.signalAll();
+            } finally {
+                verrou.unlock();
+            }
+        }
+    }
+
+    private void expedier() {
+        try {
+            expedierLots();
+        } catch (RuntimeException | Error e) {
+            defaillir("expéditeur du journal arrêté : " + e, e);
+        }
+    }
+
+    private void expedierLots() {
+        List<Transaction> lot = new ArrayList<>(tailleLot);
+        while ((actif || sequenceExpediee < sequenceDurable) && defaillance == null) {
+            long debut = sequenceExpediee + 1;
+            long fin = Math.min(sequenceDurable, sequenceExpediee + tailleLot);
+            if (fin < debut) {
+                dormir(2);
+                continue;
+            }
+            for (long sequence = debut; sequence <= fin; sequence++) {
+                Transaction transaction = segments.floorEntry(sequence).getValue().lire(sequence);
+                if (transaction == null) {
+                    // Durable mais illisible : le contenu est perdu, rien ne peut en être mis de côté.
+                    defaillir("enregistrement de journal illisible à la séquence " + sequence, null);
+                    return;
+                }
+                lot.add(transaction);
+            }
+            try {
+                transactionManager.executer(() -> {
+                    // Lot déjà inséré par un commit qui a abouti sans que le client le sache.
+                    if (journalDAO.updateSequenceExpediee(fin)) {
+                        transactionDAO.saveBatch(lot);
+                    }
+                    return null;
+                });
+                avancer(fin);
+                lotsExpedies.increment();
+            } catch (SQLException e) {
+                echecsExpedition.increment();
+                System.err.println("Expédition du journal en échec [" + e.getSQLState() + "] : " + e.getMessage());
+                if (TransactionManager.estDefinitive(e)) {
+                    expedierUnParUn(debut, lot);
+                } else if (!actif) {
+                    return;
+                } else {
+                    dormir(ATTENTE_REESSAI_MILLIS);
+                }
+            } catch (RuntimeException e) {
+                echecsExpedition.increment();
+                System.err.println("Expédition du journal en échec : " + e);
+                expedierUnParUn(debut, lot);
+            }
+            lot.clear();
+        }
+    }
+
+    // Lot refusé définitivement : chaque enregistrement part seul, ceux que la base refuse encore vont
+    // en quarantaine. Une erreur passagère rend la main, la boucle reprend au point atteint.
+    private void expedierUnParUn(long debut, List<Transaction> lot) {
+        for (int i = 0; i < lot.size(); i++) {
+            long sequence = debut + i;
+            Transaction transaction = lot.get(i);
+            try {
+                transactionManager.executer(() -> {
+                    if (journalDAO.updateSequenceExpediee(sequence)) {
+                        transactionDAO.saveBatch(List.of(transaction));
+                    }
+                    return null;
+                });
+            } catch (SQLException e) {
+                if (!TransactionManager.estDefinitive(e)) {
+                    echecsExpedition.increment();
+                    System.err.println("Expédition du journal en échec [" + e.getSQLState() + "] : " + e.getMessage());
+                    if (actif) {
+                        dormir(ATTENTE_REESSAI_MILLIS);
+                    }
+                    return;
+                }
+                if (!mettreEnQuarantaine(sequence, transaction, e)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                if (!mettreEnQuarantaine(sequence, transaction, e)) {
+                    return;
+                }
+            }
+            avancer(sequence);
+        }
+    }
+
+    // false si la quarantaine elle-même a échoué : passagère, l'enregistrement sera retenté ;
+    // définitive, le journal est mis en défaillance plutôt que de perdre l'enregistrement.
+    private boolean mettreEnQuarantaine(long sequence, Transaction transaction, Exception refus) {
+        try {
+            transactionManager.executer(() -> {
+                if (journalDAO.updateSequenceExpediee(sequence)) {
+                    quarantaineDAO.save(ORIGINE_QUARANTAINE, sequence, transaction.idCompte(), null, transaction, refus.toString());
+                }
+                return null;
+            });
+            quarantaines.increment();
+            System.err.println("Enregistrement de journal mis en quarantaine (séquence " + sequence + ") : " + refus);
+            return true;
+        } catch (SQLException e) {
+            echecsExpedition.increment();
+            System.err.println("Mise en quarantaine du journal en échec [" + e.getSQLState() + "] : " + e.getMessage());
+            if (TransactionManager.estDefinitive(e)) {
+                defaillir("séquence " + sequence + " refusée même en quarantaine : " + e.getMessage(), e);
+            } else if (actif) {
+                dormir(ATTENTE_REESSAI_MILLIS);
+            }
+            return false;
+        } catch (RuntimeException e) {
+            defaillir("séquence " + sequence + " refusée même en quarantaine : " + e, e);
+            return false;
+        }
+    }
+
+    private void avancer(long sequence) {
+        sequenceExpediee = sequence;
+        try {
+            purger(sequence);
+        } catch (IOException e) {
+            System.err.println("Suppression d'un segment expédié impossible : " + e.getMessage());
+        }
+    }
+
+    // La première défaillance est retenue ; les écrivains en attente de durabilité sont réveillés.
+    private void defaillir(String message, Throwable cause) {
+        verrou.lock();
+        try {
+            if (defaillance == null) {
+                defaillance = message;
+                System.err.println("Journal en défaillance : " + message);
+                if (cause != null) {
+                    cause.printStackTrace();
+                }
+            }
+            durabilite.signalAll();
+            ecriture.signalAll();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    // Supprime les segments entièrement expédiés, sauf celui en cours d'écriture.
+    private void purger(long expediee) throws IOException {
+        for (Segment segment : segments.values()) {
+            if (segment.derniereSequence() > expediee || segment == courant) {
+                return;
+            }
+            segments.remove(segment.premiereSequence());
+            segment.supprimer();
+        }
+    }
+
+    private static void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
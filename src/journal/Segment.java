@@ -0,0 +1,175 @@
+package journal;
+
+import entity.Transaction;
+import entity.TypeTransaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+// Fichier de taille fixe projeté en mémoire, découpé en emplacements de TAILLE_ENREGISTREMENT octets.
+// L'emplacement i porte la séquence premiereSequence + i ; un emplacement dont le CRC ou la séquence
+// ne correspond pas marque la fin du journal (fichier neuf rempli de zéros ou écriture déchirée).
+//
+// Enregistrement : crc int | sequence long | secondes long | nanos int | montant long | type byte
+//                  | idCompte int | longueur lieu short | lieu UTF-8
+final class Segment implements Closeable {
+    static final int TAILLE_ENREGISTREMENT = 512;
+    private static final int TAILLE_ENTETE = 39;
+    private static final int LIEU_MAX = TAILLE_ENREGISTREMENT - TAILLE_ENTETE;
+    private static final String EXTENSION = ".journal";
+    private static final TypeTransaction[] TYPES = TypeTransaction.values();
+    private static final byte[] VIDE = new byte[TAILLE_ENREGISTREMENT];
+
+    private final Path fichier;
+    private final long premiereSequence;
+    private final int capacite;
+    private final FileChannel canal;
+    private final MappedByteBuffer tampon;
+
+    private Segment(Path fichier, long premiereSequence, int capacite) throws IOException {
+        this.fichier = fichier;
+        this.premiereSequence = premiereSequence;
+        this.capacite = capacite;
+        this.canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.tampon = canal.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacite * TAILLE_ENREGISTREMENT);
+    }
+
+    static Segment creer(Path repertoire, long premiereSequence, int capacite) throws IOException {
+        return new Segment(repertoire.resolve(String.format("%020d%s", premiereSequence, EXTENSION)), premiereSequence, capacite);
+    }
+
+    static Segment ouvrir(Path fichier) throws IOException {
+        String nom = fichier.getFileName().toString();
+        long premiereSequence = Long.parseLong(nom.substring(0, nom.length() - EXTENSION.length()));
+        return new Segment(fichier, premiereSequence, (int) (Files.size(fichier) / TAILLE_ENREGISTREMENT));
+    }
+
+    static boolean estSegment(Path fichier) {
+        return fichier.getFileName().toString().endsWith(EXTENSION);
+    }
+
+    long premiereSequence() {
+        return premiereSequence;
+    }
+
+    long derniereSequence() {
+        return premiereSequence + capacite - 1;
+    }
+
+    boolean contient(long sequence) {
+        return sequence >= premiereSequence && sequence <= derniereSequence();
+    }
+
+    void ecrire(long sequence, Transaction transaction) {
+        byte[] lieu = transaction.lieu() != null ? transaction.lieu().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (lieu.length > LIEU_MAX) {
+            throw new IllegalArgumentException("Lieu trop long pour le journal : " + lieu.length + " octets");
+        }
+        LocalDateTime date = transaction.date();
+        ByteBuffer enregistrement = ByteBuffer.allocate(TAILLE_ENTETE + lieu.length);
+        enregistrement.putInt(0)
+                .putLong(sequence)
+                .putLong(date.toEpochSecond(ZoneOffset.UTC))
+                .putInt(date.getNano())
+                .putLong(transaction.montant())
+                .put((byte) transaction.type().ordinal())
+                .putInt(transaction.idCompte())
+                .putShort((short) lieu.length)
+                .put(lieu);
+        byte[] octets = enregistrement.array();
+        enregistrement.putInt(0, crc(octets, octets.length));
+        tampon.put(decalage(sequence), octets);
+    }
+
+    // null si l'emplacement ne contient pas un enregistrement valide pour cette séquence.
+    Transaction lire(long sequence) {
+        int decalage = decalage(sequence);
+        if (tampon.getLong(decalage + 4) != sequence) {
+            return null;
+        }
+        int longueurLieu = tampon.getShort(decalage + TAILLE_ENTETE - 2);
+        if (longueurLieu < 0 || longueurLieu > LIEU_MAX) {
+            return null;
+        }
+        byte[] octets = new byte[TAILLE_ENTETE + longueurLieu];
+        tampon.get(decalage, octets);
+        ByteBuffer enregistrement = ByteBuffer.wrap(octets);
+        if (enregistrement.getInt(0) != crc(octets, octets.length)) {
+            return null;
+        }
+        enregistrement.position(12);
+        LocalDateTime date = LocalDateTime.ofEpochSecond(enregistrement.getLong(), enregistrement.getInt(), ZoneOffset.UTC);
+        long montant = enregistrement.getLong();
+        TypeTransaction type = TYPES[enregistrement.get()];
+        int idCompte = enregistrement.getInt();
+        String lieu = new String(octets, TAILLE_ENTETE, longueurLieu, StandardCharsets.UTF_8);
+        return new Transaction(date, montant, type, lieu, idCompte);
+    }
+
+    // Dernière séquence valide en partant du début, premiereSequence - 1 si le segment est vide.
+    long derniereSequenceValide() {
+        long sequence = premiereSequence;
+        while (sequence <= derniereSequence() && lire(sequence) != null) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    // Remet à zéro les emplacements qui suivent derniereValide : un enregistrement intact mais jamais
+    // acquitté, écrit après un emplacement déchiré, serait sinon rejoué après un second arrêt brutal.
+    void effacerApres(long derniereValide) {
+        for (long sequence = derniereValide + 1; sequence <= derniereSequence(); sequence++) {
+            int decalage = decalage(sequence);
+            if (!estVide(decalage)) {
+                tampon.put(decalage, VIDE);
+            }
+        }
+    }
+
+    void forcer() {
+        tampon.force();
+    }
+
+    void supprimer() throws IOException {
+        close();
+        Files.deleteIfExists(fichier);
+    }
+
+    Path fichier() {
+        return fichier;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    private boolean estVide(int decalage) {
+        for (int i = 0; i < TAILLE_ENREGISTREMENT; i += Long.BYTES) {
+            if (tampon.getLong(decalage + i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int decalage(long sequence) {
+        return (int) (sequence - premiereSequence) * TAILLE_ENREGISTREMENT;
+    }
+
+    private static int crc(byte[] octets, int longueur) {
+        CRC32C crc = new CRC32C();
+        crc.update(octets, 4, longueur - 4);
+        return (int) crc.getValue();
+    }
+}
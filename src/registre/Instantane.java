@@ -0,0 +1,87 @@
+package registre;
+
+import dao.CompteDAO.EmpreinteComptes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Instantané binaire du registre : en-tête, empreinte de la table compte au moment de l'écriture,
+// une entrée de taille quasi fixe par compte, puis le CRC32 de l'ensemble.
+final class Instantane {
+    private static final int MAGIQUE = 0x42565247;
+    private static final int VERSION = 1;
+
+    private Instantane() {
+    }
+
+    static void ecrire(Path fichier, TableComptes table, EmpreinteComptes empreinte) throws IOException {
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        int taille = table.taille();
+
+        try (BufferedOutputStream tampon = new BufferedOutputStream(Files.newOutputStream(temporaire), 1 << 16)) {
+            DataOutputStream donnees = new DataOutputStream(new CheckedOutputStream(tampon, crc));
+            donnees.writeInt(MAGIQUE);
+            donnees.writeInt(VERSION);
+            donnees.writeLong(empreinte.nombre());
+            donnees.writeLong(empreinte.sommeVersions());
+            donnees.writeInt(empreinte.idMax());
+            donnees.writeInt(table.comptes());
+            for (int position = 0; position < taille; position++) {
+                byte type = table.type(position);
+                if (type == TableComptes.SUPPRIME) {
+                    continue;
+                }
+                donnees.writeInt(table.id(position));
+                donnees.writeInt(table.idClient(position));
+                donnees.writeByte(type);
+                donnees.writeLong(table.solde(position));
+                donnees.writeLong(table.decouvert(position));
+                donnees.writeUTF(table.code(position));
+            }
+            donnees.flush();
+            new DataOutputStream(tampon).writeLong(crc.getValue());
+        }
+        Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // null si le fichier est absent, corrompu ou si la base a changé depuis son écriture.
+    static TableComptes lire(Path fichier, EmpreinteComptes attendue) throws IOException {
+        CRC32 crc = new CRC32();
+        try (BufferedInputStream tampon = new BufferedInputStream(Files.newInputStream(fichier), 1 << 16)) {
+            DataInputStream donnees = new DataInputStream(new CheckedInputStream(tampon, crc));
+            if (donnees.readInt() != MAGIQUE || donnees.readInt() != VERSION) {
+                return null;
+            }
+            EmpreinteComptes empreinte = new EmpreinteComptes(donnees.readLong(), donnees.readLong(), donnees.readInt());
+            if (!empreinte.equals(attendue)) {
+                return null;
+            }
+            int nombre = donnees.readInt();
+            TableComptes table = new TableComptes(nombre);
+            for (int i = 0; i < nombre; i++) {
+                int id = donnees.readInt();
+                int idClient = donnees.readInt();
+                byte type = donnees.readByte();
+                long solde = donnees.readLong();
+                long decouvert = donnees.readLong();
+                table.ajouter(id, idClient, type, solde, decouvert, donnees.readUTF());
+            }
+            long attenduCrc = crc.getValue();
+            return new DataInputStream(tampon).readLong() == attenduCrc ? table : null;
+        } catch (NoSuchFileException | EOFException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package registre;
+
+import dao.CompteDAO;
+import dao.QuarantaineDAO;
+import dao.RegistreDAO;
+import dao.TransactionDAO;
+import dao.TransactionManager;
+import entity.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Rejoue les écritures du registre dans compte/transaction par lots : les deltas d'un lot sont
+// cumulés par compte et appliqués avec les transactions dans une seule transaction SQL.
+// Un lot refusé pour une raison passagère (base injoignable...) est retenté tel quel ; la file
+// bornée freine alors les partitions. Un refus définitif (débordement de colonne, contrainte)
+// fait couper le lot en deux jusqu'à isoler l'écriture fautive, mise en quarantaine : le reste
+// passe et le thread, seul à vider la file, ne reste jamais bloqué sur elle.
+// Chaque lot porte un numéro avancé dans la même transaction : un lot dont le commit a abouti
+// sans que le client le sache n'est pas appliqué une seconde fois au réessai.
+final class Persisteur implements Runnable {
+    record Mouvement(int idCompte, long delta, Transaction transaction) {}
+
+    // Unité de persistance : tous ses mouvements (les deux jambes d'un virement) partent dans le même lot.
+    record Ecriture(List<Mouvement> mouvements) {
+        Ecriture(int idCompte, long delta, Transaction transaction) {
+            this(List.of(new Mouvement(idCompte, delta, transaction)));
+        }
+    }
+
+    static final String ORIGINE_QUARANTAINE = "registre";
+    private static final long ATTENTE_REESSAI_MILLIS = 500;
+
+    private final BlockingQueue<Ecriture> file;
+    private final int tailleLot;
+    private final CompteDAO compteDAO = new CompteDAO();
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final RegistreDAO registreDAO = new RegistreDAO();
+    private final QuarantaineDAO quarantaineDAO = new QuarantaineDAO();
+    private final TransactionManager transactionManager = new TransactionManager();
+    private final AtomicLong publiees = new AtomicLong();
+    private final AtomicLong persistees = new AtomicLong();
+    private final LongAdder lots = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final LongAdder quarantaines = new LongAdder();
+    private final Thread thread;
+    private volatile boolean actif = true;
+    private long dernierLot;
+
+    Persisteur(int capacite, int tailleLot) throws SQLException {
+        this.file = new LinkedBlockingQueue<>(capacite);
+        this.tailleLot = tailleLot;
+        this.dernierLot = registreDAO.findDernierLot();
+        this.thread = new Thread(this, "registre-persisteur");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void publier(Ecriture ecriture) {
+        try {
+            file.put(ecriture);
+            publiees.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Publication interrompue", e);
+        }
+    }
+
+    @Override
+    public void run() {
+        List<Ecriture> lot = new ArrayList<>(tailleLot);
+        while (actif || !file.isEmpty()) {
+            try {
+                Ecriture premiere = file.poll(100, TimeUnit.MILLISECONDS);
+                if (premiere == null) {
+                    continue;
+                }
+                lot.add(premiere);
+                file.drainTo(lot, tailleLot - 1);
+                persister(lot);
+                persistees.addAndGet(lot.size());
+                lots.increment();
+                lot.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Coupe le lot là où un cumul par compte sortirait des bornes d'un long.
+    private void persister(List<Ecriture> lot) throws InterruptedException {
+        Map<Integer, Long> deltas = new HashMap<>();
+        int debut = 0;
+        for (int i = 0; i < lot.size(); i++) {
+            if (!cumuler(deltas, lot.get(i))) {
+                persisterOuIsoler(lot.subList(debut, i));
+                deltas.clear();
+                debut = i;
+                cumuler(deltas, lot.get(i));
+            }
+        }
+        persisterOuIsoler(lot.subList(debut, lot.size()));
+    }
+
+    private void persisterOuIsoler(List<Ecriture> lot) throws InterruptedException {
+        if (lot.isEmpty()) {
+            return;
+        }
+        Exception refus = persisterLot(lot);
+        if (refus == null) {
+            return;
+        }
+        if (lot.size() > 1) {
+            int milieu = lot.size() / 2;
+            persisterOuIsoler(lot.subList(0, milieu));
+            persisterOuIsoler(lot.subList(milieu, lot.size()));
+            return;
+        }
+        mettreEnQuarantaine(lot.get(0), refus);
+    }
+
+    // null une fois le lot validé (ou déjà validé) ; l'erreur si la base le refuse définitivement.
+    // Les erreurs passagères sont retentées ici, sans limite : la base finira par revenir.
+    private Exception persisterLot(List<Ecriture> lot) throws InterruptedException {
+        Map<Integer, Long> deltas = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>(lot.size());
+        for (Ecriture ecriture : lot) {
+            cumuler(deltas, ecriture);
+            for (Mouvement mouvement : ecriture.mouvements()) {
+                if (mouvement.transaction() != null) {
+                    transactions.add(mouvement.transaction());
+                }
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        int[] ids = new int[deltas.size()];
+        long[] montants = new long[deltas.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Long> delta : deltas.entrySet()) {
+            ids[i] = delta.getKey();
+            montants[i++] = delta.getValue();
+        }
+
+        long numero = dernierLot + 1;
+        while (true) {
+            try {
+                transactionManager.executer(() -> {
+                    if (!registreDAO.updateDernierLot(numero)) {
+                        return null;
+                    }
+                    if (ids.length > 0) {
+                        compteDAO.applyDeltas(ids, montants);
+                    }
+                    if (!transactions.isEmpty()) {
+                        transactionDAO.saveBatch(transactions);
+                    }
+                    return null;
+                });
+                dernierLot = numero;
+                return null;
+            } catch (SQLException e) {
+                echecs.increment();
+                System.err.println("Persistance du registre en échec [" + e.getSQLState() + "] : " + e.getMessage());
+                if (TransactionManager.estDefinitive(e)) {
+                    return e;
+                }
+                Thread.sleep(ATTENTE_REESSAI_MILLIS);
+            } catch (RuntimeException e) {
+                // Erreur imprévue sur le contenu du lot : traitée comme un refus définitif.
+                echecs.increment();
+                System.err.println("Persistance du registre en échec : " + e);
+                return e;
+            }
+        }
+    }
+
+    // La mise en quarantaine consomme un numéro de lot, comme un lot appliqué : un réessai après
+    // commit ambigu ne l'enregistre pas deux fois.
+    private void mettreEnQuarantaine(Ecriture ecriture, Exception refus) throws InterruptedException {
+        long numero = dernierLot + 1;
+        while (true) {
+            try {
+                transactionManager.executer(() -> {
+                    if (registreDAO.updateDernierLot(numero)) {
+                        for (Mouvement mouvement : ecriture.mouvements()) {
+                            quarantaineDAO.save(ORIGINE_QUARANTAINE, numero, mouvement.idCompte(), mouvement.delta(),
+                                    mouvement.transaction(), refus.toString());
+                        }
+                    }
+                    return null;
+                });
+                dernierLot = numero;
+                quarantaines.increment();
+                System.err.println("Écriture du registre mise en quarantaine (lot " + numero + ") : " + refus);
+                return;
+            } catch (SQLException e) {
+                echecs.increment();
+                System.err.println("Mise en quarantaine en échec [" + e.getSQLState() + "] : " + e.getMessage());
+                if (TransactionManager.estDefinitive(e)) {
+                    abandonner(ecriture, e);
+                    return;
+                }
+                Thread.sleep(ATTENTE_REESSAI_MILLIS);
+            } catch (RuntimeException e) {
+                echecs.increment();
+                abandonner(ecriture, e);
+                return;
+            }
+        }
+    }
+
+    // Dernier recours, la quarantaine elle-même refusant l'écriture : elle ne subsiste que dans ce message.
+    private void abandonner(Ecriture ecriture, Exception e) {
+        quarantaines.increment();
+        System.err.println("Écriture du registre abandonnée, non enregistrable même en quarantaine : "
+                + ecriture + " (" + e + ")");
+    }
+
+    // false, sans rien cumuler, si un des cumuls par compte sortirait des bornes d'un long.
+    private static boolean cumuler(Map<Integer, Long> deltas, Ecriture ecriture) {
+        for (Mouvement mouvement : ecriture.mouvements()) {
+            long cumul = deltas.getOrDefault(mouvement.idCompte(), 0L);
+            long somme = cumul + mouvement.delta();
+            if (((cumul ^ somme) & (mouvement.delta() ^ somme)) < 0) {
+                return false;
+            }
+        }
+        for (Mouvement mouvement : ecriture.mouvements()) {
+            deltas.merge(mouvement.idCompte(), mouvement.delta(), Long::sum);
+        }
+        return true;
+    }
+
+    boolean attendre(long delaiMillis) throws InterruptedException {
+        long cible = publiees.get();
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delaiMillis);
+        while (persistees.get() < cible) {
+            if (System.nanoTime() > limite) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    void arreter(long delaiMillis) throws InterruptedException {
+        actif = false;
+        thread.join(delaiMillis);
+    }
+
+    long enAttente() {
+        return publiees.get() - persistees.get();
+    }
+
+    long persistees() {
+        return persistees.get();
+    }
+
+    long lots() {
+        return lots.sum();
+    }
+
+    long echecs() {
+        return echecs.sum();
+    }
+
+    long quarantaines() {
+        return quarantaines.sum();
+    }
+}
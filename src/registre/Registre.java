@@ -0,0 +1,308 @@
+package registre;
+
+import dao.CompteDAO;
+import dao.MouvementSolde;
+import dao.TransactionDAO;
+import entity.Compte;
+import entity.CompteCourant;
+import entity.CompteEpargne;
+import entity.Transaction;
+import entity.TypeTransaction;
+import registre.Persisteur.Ecriture;
+import registre.Persisteur.Mouvement;
+import util.Executeurs;
+import util.Montant;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Registre des soldes faisant autorité en mémoire : chaque compte appartient à une partition
+// mono-thread qui contrôle et applique ses mouvements sans verrou ni aller-retour base.
+// La base devient un journal durable alimenté de façon asynchrone par le Persisteur.
+public final class Registre {
+    private static final int CAPACITE_FILE = Integer.getInteger("bank.registre.file", 1 << 20);
+    private static final long DELAI_ARRET_MILLIS = 30_000;
+    private static volatile Registre instance;
+
+    public record MetriquesRegistre(int comptes, int partitions, long enAttente, long persistees, long lots, long echecs,
+                                    long quarantaines) {}
+
+    private final TableComptes table;
+    private final Path instantane;
+    private final ExecutorService[] partitions;
+    private final Persisteur persisteur;
+    private final CompteDAO compteDAO = new CompteDAO();
+
+    private Registre(TableComptes table, Path instantane, int nombrePartitions) throws SQLException {
+        this.table = table;
+        this.instantane = instantane;
+        this.partitions = new ExecutorService[nombrePartitions];
+        for (int i = 0; i < nombrePartitions; i++) {
+            partitions[i] = Executors.newSingleThreadExecutor(Executeurs.fabriqueThreads("registre-" + i));
+        }
+        this.persisteur = new Persisteur(CAPACITE_FILE, TransactionDAO.TAILLE_LOT_PAR_DEFAUT);
+    }
+
+    // null tant que bank.registre.actif n'est pas positionné : les services restent alors sur la base.
+    public static Registre actif() {
+        if (!Boolean.getBoolean("bank.registre.actif")) {
+            return null;
+        }
+        Registre courant = instance;
+        if (courant == null) {
+            synchronized (Registre.class) {
+                courant = instance;
+                if (courant == null) {
+                    try {
+                        courant = demarrer(Path.of(System.getProperty("bank.registre.instantane", "registre.bin")),
+                                Integer.getInteger("bank.registre.partitions", Runtime.getRuntime().availableProcessors()));
+                    } catch (SQLException | IOException e) {
+                        throw new IllegalStateException("Démarrage du registre impossible : " + e.getMessage(), e);
+                    }
+                    instance = courant;
+                }
+            }
+        }
+        return courant;
+    }
+
+    public static void arreterActif() {
+        synchronized (Registre.class) {
+            if (instance != null) {
+                instance.arreter();
+                instance = null;
+            }
+        }
+    }
+
+    // Recharge l'instantané s'il correspond encore à la table compte, sinon relit tous les comptes.
+    public static Registre demarrer(Path instantane, int partitions) throws SQLException, IOException {
+        CompteDAO compteDAO = new CompteDAO();
+        TableComptes table = Instantane.lire(instantane, compteDAO.empreinte());
+        if (table == null) {
+            TableComptes chargee = new TableComptes(1 << 16);
+            compteDAO.forEachCompte(chargee::ajouter);
+            Instantane.ecrire(instantane, chargee, compteDAO.empreinte());
+            table = chargee;
+        }
+        return new Registre(table, instantane, Math.max(1, partitions));
+    }
+
+    public MouvementSolde verser(String code, long montant, String lieu) throws SQLException {
+        verifierMontant(montant);
+        int position = localiser(code);
+        return executer(position, () -> appliquer(position, montant,
+                new Transaction(LocalDateTime.now(), montant, TypeTransaction.VERSEMENT, lieu, table.id(position))));
+    }
+
+    public MouvementSolde retirer(String code, long montant, String lieu) throws SQLException {
+        verifierMontant(montant);
+        int position = localiser(code);
+        return executer(position, () -> appliquer(position, -montant,
+                new Transaction(LocalDateTime.now(), montant, TypeTransaction.RETRAIT, lieu, table.id(position))));
+    }
+
+    // Débit sur la partition source puis crédit sur la partition destination : aucune des deux
+    // n'attend l'autre, un virement ne peut donc pas s'interbloquer. Les deux jambes ne sont publiées
+    // qu'une fois le crédit fait, en une seule écriture : le Persisteur les valide dans le même lot,
+    // la base ne voit jamais le débit sans le crédit. La destination est contrôlée avant le débit ;
+    // si le crédit échoue malgré tout, la source est recréditée en mémoire, rien n'ayant été publié.
+    // Retourne les deux jambes, débit puis crédit.
+    public List<Transaction> virer(String codeSource, String codeDest, long montant) throws SQLException {
+        verifierMontant(montant);
+        if (codeSource.equals(codeDest)) {
+            throw new IllegalArgumentException("Les comptes source et destination doivent être différents");
+        }
+        int source = localiser(codeSource);
+        int dest = localiser(codeDest);
+        verifierCredit(dest, montant);
+        LocalDateTime maintenant = LocalDateTime.now();
+        Transaction debit = new Transaction(maintenant, montant, TypeTransaction.VIREMENT,
+                "Virement vers " + codeDest, table.id(source));
+        Transaction credit = new Transaction(maintenant, montant, TypeTransaction.VIREMENT,
+                "Virement de " + codeSource, table.id(dest));
+        executer(source, () -> modifier(source, -montant));
+        try {
+            executer(dest, () -> {
+                MouvementSolde mouvement = modifier(dest, montant);
+                persisteur.publier(new Ecriture(List.of(
+                        new Mouvement(debit.idCompte(), -montant, debit),
+                        new Mouvement(credit.idCompte(), montant, credit))));
+                return mouvement;
+            });
+            return List.of(debit, credit);
+        } catch (RuntimeException e) {
+            try {
+                executer(source, () -> modifier(source, montant));
+            } catch (RuntimeException annulation) {
+                e.addSuppressed(annulation);
+            }
+            throw e;
+        }
+    }
+
+    public long solde(String code) throws SQLException {
+        return table.solde(localiser(code));
+    }
+
+    public void fixerSolde(String code, long nouveauSolde) throws SQLException {
+        int position = localiser(code);
+        executer(position, () -> {
+            verifierPlancher(position, nouveauSolde);
+            verifierColonne(nouveauSolde);
+            long delta = Math.subtractExact(nouveauSolde, table.solde(position));
+            table.ecrireSolde(position, nouveauSolde);
+            persisteur.publier(new Ecriture(table.id(position), delta, null));
+            return null;
+        });
+    }
+
+    // Retire le compte du registre et attend que ses écritures aient atteint la base,
+    // avant que l'appelant ne supprime la ligne.
+    public void oublier(String code) {
+        int position = table.localiser(code);
+        if (position < 0) {
+            return;
+        }
+        executer(position, () -> {
+            table.supprimer(code);
+            return null;
+        });
+        attendrePersistance();
+    }
+
+    // Le compte avec le solde du registre, qui peut précéder celui de la base.
+    public Compte superposer(Compte compte) {
+        int position = table.localiser(compte.getCode());
+        if (position < 0) {
+            return compte;
+        }
+        long solde = table.solde(position);
+        return compte instanceof CompteCourant courant
+                ? new CompteCourant(compte.getId(), compte.getCode(), solde, compte.getIdClient(), courant.getDecouvert())
+                : new CompteEpargne(compte.getId(), compte.getCode(), solde, compte.getIdClient(),
+                        ((CompteEpargne) compte).getTauxInteret());
+    }
+
+    public boolean attendrePersistance() {
+        try {
+            return persisteur.attendre(DELAI_ARRET_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public MetriquesRegistre metriques() {
+        return new MetriquesRegistre(table.comptes(), partitions.length, persisteur.enAttente(),
+                persisteur.persistees(), persisteur.lots(), persisteur.echecs(), persisteur.quarantaines());
+    }
+
+    public void arreter() {
+        try {
+            for (ExecutorService partition : partitions) {
+                partition.shutdown();
+            }
+            for (ExecutorService partition : partitions) {
+                partition.awaitTermination(DELAI_ARRET_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            if (!persisteur.attendre(DELAI_ARRET_MILLIS)) {
+                System.err.println("Registre arrêté avec " + persisteur.enAttente() + " écritures non persistées");
+                return;
+            }
+            persisteur.arreter(DELAI_ARRET_MILLIS);
+            Instantane.ecrire(instantane, table, compteDAO.empreinte());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException | IOException e) {
+            System.err.println("Instantané du registre non écrit : " + e.getMessage());
+        }
+    }
+
+    private MouvementSolde appliquer(int position, long delta, Transaction transaction) {
+        MouvementSolde mouvement = modifier(position, delta);
+        persisteur.publier(new Ecriture(transaction.idCompte(), delta, transaction));
+        return mouvement;
+    }
+
+    // Solde modifié en mémoire seulement : la publication revient à l'appelant. Un solde que la
+    // colonne NUMERIC(15, 2) refuserait est rejeté ici, avant d'être acquitté.
+    private MouvementSolde modifier(int position, long delta) {
+        long nouveauSolde = Math.addExact(table.solde(position), delta);
+        if (delta < 0) {
+            verifierPlancher(position, nouveauSolde);
+        }
+        verifierColonne(nouveauSolde);
+        table.ecrireSolde(position, nouveauSolde);
+        return new MouvementSolde(table.code(position), table.id(position), table.idClient(position), nouveauSolde);
+    }
+
+    // Lu hors de la partition destination : l'état peut encore changer avant le crédit.
+    private void verifierCredit(int position, long montant) {
+        if (table.type(position) == TableComptes.SUPPRIME) {
+            throw new IllegalArgumentException("Compte introuvable");
+        }
+        verifierColonne(Math.addExact(table.solde(position), montant));
+    }
+
+    private static void verifierColonne(long solde) {
+        if (!Montant.tientEnColonne(solde)) {
+            throw new IllegalArgumentException("Opération refusée : solde hors des limites autorisées");
+        }
+    }
+
+    private void verifierPlancher(int position, long nouveauSolde) {
+        if (nouveauSolde >= table.plancher(position)) {
+            return;
+        }
+        if (table.type(position) == TableComptes.COURANT) {
+            throw new IllegalArgumentException("Opération refusée : dépassement du découvert autorisé");
+        }
+        throw new IllegalArgumentException("Opération refusée : solde insuffisant");
+    }
+
+    private static void verifierMontant(long montant) {
+        if (montant <= 0) {
+            throw new IllegalArgumentException("Le montant doit être positif");
+        }
+        if (!Montant.tientEnColonne(montant)) {
+            throw new IllegalArgumentException("Le montant dépasse la limite autorisée");
+        }
+    }
+
+    // Les comptes absents (créés après le démarrage) sont chargés à la première utilisation.
+    private int localiser(String code) throws SQLException {
+        int position = table.localiser(code);
+        if (position >= 0) {
+            return position;
+        }
+        Compte compte = compteDAO.findByCode(code)
+                .orElseThrow(() -> new IllegalArgumentException("Compte introuvable"));
+        return table.ajouter(compte);
+    }
+
+    private <T> T executer(int position, Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                if (table.type(position) == TableComptes.SUPPRIME) {
+                    throw new IllegalArgumentException("Compte introuvable");
+                }
+                return operation.get();
+            }, partitions[position % partitions.length]).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package registre;
+
+import entity.Compte;
+import entity.CompteCourant;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Comptes résidents en colonnes primitives découpées en blocs : l'ajout ne recopie jamais les soldes.
+// Chaque solde n'est écrit que par la partition propriétaire du compte ; les autres threads
+// le lisent en acquire et voient toujours une valeur publiée.
+final class TableComptes {
+    static final byte COURANT = 0;
+    static final byte EPARGNE = 1;
+    static final byte SUPPRIME = -1;
+
+    private static final int BITS_BLOC = 16;
+    private static final int TAILLE_BLOC = 1 << BITS_BLOC;
+    private static final int MASQUE_BLOC = TAILLE_BLOC - 1;
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final ConcurrentHashMap<String, Integer> index;
+    private volatile long[][] soldes = new long[0][];
+    private volatile long[][] decouverts = new long[0][];
+    private volatile byte[][] types = new byte[0][];
+    private volatile int[][] ids = new int[0][];
+    private volatile int[][] idsClients = new int[0][];
+    private volatile String[][] codes = new String[0][];
+    private int taille;
+
+    TableComptes(int capaciteInitiale) {
+        this.index = new ConcurrentHashMap<>(Math.max(16, capaciteInitiale));
+    }
+
+    int localiser(String code) {
+        Integer position = index.get(code);
+        return position != null ? position : -1;
+    }
+
+    synchronized int ajouter(int id, int idClient, byte type, long solde, long decouvert, String code) {
+        Integer existante = index.get(code);
+        if (existante != null) {
+            return existante;
+        }
+        int position = taille;
+        int bloc = position >>> BITS_BLOC;
+        if (bloc == soldes.length) {
+            agrandir();
+        }
+        int decalage = position & MASQUE_BLOC;
+        ids[bloc][decalage] = id;
+        idsClients[bloc][decalage] = idClient;
+        types[bloc][decalage] = type;
+        decouverts[bloc][decalage] = decouvert;
+        codes[bloc][decalage] = code;
+        LONGS.setRelease(soldes[bloc], decalage, solde);
+        taille++;
+        index.put(code, position);
+        return position;
+    }
+
+    int ajouter(Compte compte) {
+        return compte instanceof CompteCourant courant
+                ? ajouter(compte.getId(), compte.getIdClient(), COURANT, compte.getSolde(), courant.getDecouvert(), compte.getCode())
+                : ajouter(compte.getId(), compte.getIdClient(), EPARGNE, compte.getSolde(), 0, compte.getCode());
+    }
+
+    synchronized void supprimer(String code) {
+        Integer position = index.remove(code);
+        if (position != null) {
+            types[position >>> BITS_BLOC][position & MASQUE_BLOC] = SUPPRIME;
+        }
+    }
+
+    long solde(int position) {
+        return (long) LONGS.getAcquire(soldes[position >>> BITS_BLOC], position & MASQUE_BLOC);
+    }
+
+    void ecrireSolde(int position, long solde) {
+        LONGS.setRelease(soldes[position >>> BITS_BLOC], position & MASQUE_BLOC, solde);
+    }
+
+    // Solde minimal autorisé : -découvert pour un compte courant, 0 pour un compte épargne.
+    long plancher(int position) {
+        int bloc = position >>> BITS_BLOC;
+        int decalage = position & MASQUE_BLOC;
+        return types[bloc][decalage] == COURANT ? -decouverts[bloc][decalage] : 0;
+    }
+
+    long decouvert(int position) {
+        return decouverts[position >>> BITS_BLOC][position & MASQUE_BLOC];
+    }
+
+    byte type(int position) {
+        return types[position >>> BITS_BLOC][position & MASQUE_BLOC];
+    }
+
+    int id(int position) {
+        return ids[position >>> BITS_BLOC][position & MASQUE_BLOC];
+    }
+
+    int idClient(int position) {
+        return idsClients[position >>> BITS_BLOC][position & MASQUE_BLOC];
+    }
+
+    String code(int position) {
+        return codes[position >>> BITS_BLOC][position & MASQUE_BLOC];
+    }
+
+    synchronized int taille() {
+        return taille;
+    }
+
+    int comptes() {
+        return index.size();
+    }
+
+    private void agrandir() {
+        int blocs = soldes.length + 1;
+        long[][] nouveauxSoldes = Arrays.copyOf(soldes, blocs);
+        long[][] nouveauxDecouverts = Arrays.copyOf(decouverts, blocs);
+        byte[][] nouveauxTypes = Arrays.copyOf(types, blocs);
+        int[][] nouveauxIds = Arrays.copyOf(ids, blocs);
+        int[][] nouveauxIdsClients = Arrays.copyOf(idsClients, blocs);
+        String[][] nouveauxCodes = Arrays.copyOf(codes, blocs);
+        nouveauxSoldes[blocs - 1] = new long[TAILLE_BLOC];
+        nouveauxDecouverts[blocs - 1] = new long[TAILLE_BLOC];
+        nouveauxTypes[blocs - 1] = new byte[TAILLE_BLOC];
+        nouveauxIds[blocs - 1] = new int[TAILLE_BLOC];
+        nouveauxIdsClients[blocs - 1] = new int[TAILLE_BLOC];
+        nouveauxCodes[blocs - 1] = new String[TAILLE_BLOC];
+        decouverts = nouveauxDecouverts;
+        types = nouveauxTypes;
+        ids = nouveauxIds;
+        idsClients = nouveauxIdsClients;
+        codes = nouveauxCodes;
+        soldes = nouveauxSoldes;
+    }
+}
@@ -1,13 +1,15 @@
 package service;
 
+import dao.ChargeurComptes;
 import dao.ClientDAO;
 import dao.CompteDAO;
+import dao.Page;
 import entity.Client;
 import entity.Compte;
+import util.Montant;
 
 import java.sql.SQLException;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 public class ClientService {
     private final ClientDAO clientDAO;
@@ -76,39 +78,75 @@ public class ClientService {
         return clientDAO.findAll();
     }
 
-    public double calculerSoldeTotal(int clientId) throws SQLException {
-        List<Compte> comptes = compteDAO.findByClientId(clientId);
-        return comptes.stream()
-                .mapToDouble(Compte::getSolde)
-                .sum();
+    public Page<Client> listerClients(String curseur, int taille) throws SQLException {
+        return clientDAO.findPage(curseur, taille);
+    }
+
+    public long calculerSoldeTotal(int clientId) throws SQLException {
+        return calculerSoldeTotal(compteDAO.findByClientId(clientId));
+    }
+
+    public long calculerSoldeTotal(int clientId, ChargeurComptes chargeur) throws SQLException {
+        return calculerSoldeTotal(chargeur.comptesDuClient(clientId));
     }
 
     public int compterComptes(int clientId) throws SQLException {
         return compteDAO.findByClientId(clientId).size();
     }
 
+    public int compterComptes(int clientId, ChargeurComptes chargeur) throws SQLException {
+        return chargeur.comptesDuClient(clientId).size();
+    }
+
     public String genererRapportClient(int clientId) throws SQLException {
+        return genererRapportClient(clientId, new ChargeurComptes(compteDAO));
+    }
+
+    public String genererRapportClient(int clientId, ChargeurComptes chargeur) throws SQLException {
         Optional<Client> clientOpt = clientDAO.findById(clientId);
         if (clientOpt.isEmpty()) {
             return "Client introuvable";
         }
+        return formaterRapportClient(clientOpt.get(), chargeur.comptesDuClient(clientId));
+    }
+
+    public Map<Integer, String> genererRapportsClients(Collection<Integer> clientIds) throws SQLException {
+        Map<Integer, Client> clients = clientDAO.findByIds(clientIds);
+        Map<Integer, List<Compte>> comptesParClient = new ChargeurComptes(compteDAO).charger(clients.keySet());
+
+        Map<Integer, String> rapports = new LinkedHashMap<>();
+        for (Integer clientId : clientIds) {
+            Client client = clients.get(clientId);
+            rapports.put(clientId, client != null
+                    ? formaterRapportClient(client, comptesParClient.get(clientId))
+                    : "Client introuvable");
+        }
+        return rapports;
+    }
+
+    private long calculerSoldeTotal(List<Compte> comptes) {
+        long total = 0;
+        for (Compte compte : comptes) {
+            total = Montant.additionner(total, compte.getSolde());
+        }
+        return total;
+    }
 
-        Client client = clientOpt.get();
-        List<Compte> comptes = compteDAO.findByClientId(clientId);
-        double soldeTotal = calculerSoldeTotal(clientId);
+    private String formaterRapportClient(Client client, List<Compte> comptes) {
+        long soldeTotal = calculerSoldeTotal(comptes);
 
         StringBuilder rapport = new StringBuilder();
         rapport.append("=== Rapport Client ===\n");
         rapport.append("Nom: ").append(client.nom()).append("\n");
         rapport.append("Email: ").append(client.email()).append("\n");
         rapport.append("Nombre de comptes: ").append(comptes.size()).append("\n");
-        rapport.append("Solde total: ").append(String.format("%.2f", soldeTotal)).append(" MAD\n");
+        rapport.append("Solde total: ");
+        Montant.ecrire(rapport, soldeTotal).append(" MAD\n");
         rapport.append("\nDétail des comptes:\n");
 
         comptes.forEach(compte -> {
-            rapport.append("  - Code: ").append(compte.getCode())
-                    .append(", Solde: ").append(String.format("%.2f", compte.getSolde()))
-                    .append(" MAD\n");
+            rapport.append("  - Code: ").append(compte.getCode()).append(", Solde: ");
+            Montant.ecrire(rapport, compte.getSolde()).append(" MAD\n");
         });
 
         return rapport.toString();
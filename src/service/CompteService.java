@@ -2,9 +2,13 @@ package service;
 
 import dao.CompteDAO;
 import dao.ClientDAO;
+import dao.MouvementSolde;
+import dao.Page;
 import entity.Compte;
 import entity.CompteCourant;
 import entity.CompteEpargne;
+import registre.Registre;
+import util.Montant;
 
 import java.sql.SQLException;
 import java.util.Comparator;
@@ -15,13 +19,15 @@ import java.util.UUID;
 public class CompteService {
     private final CompteDAO compteDAO;
     private final ClientDAO clientDAO;
+    private final Registre registre;
 
     public CompteService() {
         this.compteDAO = new CompteDAO();
         this.clientDAO = new ClientDAO();
+        this.registre = Registre.actif();
     }
 
-    public void creerCompteCourant(int idClient, double soldeInitial, double decouvert) throws SQLException {
+    public void creerCompteCourant(int idClient, long soldeInitial, long decouvert) throws SQLException {
         if (clientDAO.findById(idClient).isEmpty()) {
             throw new IllegalArgumentException("Client introuvable avec l'ID : " + idClient);
         }
@@ -37,7 +43,7 @@ public class CompteService {
         compteDAO.saveCompteCourant(compte);
     }
 
-    public void creerCompteEpargne(int idClient, double soldeInitial, double tauxInteret) throws SQLException {
+    public void creerCompteEpargne(int idClient, long soldeInitial, double tauxInteret) throws SQLException {
         if (clientDAO.findById(idClient).isEmpty()) {
             throw new IllegalArgumentException("Client introuvable avec l'ID : " + idClient);
         }
@@ -53,7 +59,7 @@ public class CompteService {
         compteDAO.saveCompteEpargne(compte);
     }
 
-    public void mettreAJourSolde(String code, double nouveauSolde) throws SQLException {
+    public void mettreAJourSolde(String code, long nouveauSolde) throws SQLException {
         Optional<Compte> compteOpt = compteDAO.findByCode(code);
         if (compteOpt.isEmpty()) {
             throw new IllegalArgumentException("Compte introuvable avec le code : " + code);
@@ -69,11 +75,16 @@ public class CompteService {
             throw new IllegalArgumentException("Le solde d'un compte épargne ne peut pas être négatif");
         }
 
+        if (registre != null) {
+            registre.fixerSolde(code, nouveauSolde);
+            return;
+        }
         compteDAO.updateSolde(code, nouveauSolde);
     }
 
     public Optional<Compte> rechercherParCode(String code) throws SQLException {
-        return compteDAO.findByCode(code);
+        Optional<Compte> compte = compteDAO.findByCode(code);
+        return registre != null ? compte.map(registre::superposer) : compte;
     }
 
     public List<Compte> rechercherParClient(int idClient) throws SQLException {
@@ -84,14 +95,18 @@ public class CompteService {
         return compteDAO.findAll();
     }
 
+    public Page<Compte> listerComptes(String curseur, int taille) throws SQLException {
+        return compteDAO.findPage(curseur, taille);
+    }
+
     public Optional<Compte> trouverCompteSoldeMax() throws SQLException {
         return compteDAO.findAll().stream()
-                .max(Comparator.comparingDouble(Compte::getSolde));
+                .max(Comparator.comparingLong(Compte::getSolde));
     }
 
     public Optional<Compte> trouverCompteSoldeMin() throws SQLException {
         return compteDAO.findAll().stream()
-                .min(Comparator.comparingDouble(Compte::getSolde));
+                .min(Comparator.comparingLong(Compte::getSolde));
     }
 
     public void supprimerCompte(String code) throws SQLException {
@@ -100,46 +115,39 @@ public class CompteService {
             throw new IllegalArgumentException("Compte introuvable avec le code : " + code);
         }
 
+        if (registre != null) {
+            registre.oublier(code);
+        }
         compteDAO.delete(code);
     }
 
-    public void crediter(String code, double montant) throws SQLException {
+    public MouvementSolde crediter(String code, long montant) throws SQLException {
         if (montant <= 0) {
             throw new IllegalArgumentException("Le montant à créditer doit être positif");
         }
 
-        Optional<Compte> compteOpt = compteDAO.findByCode(code);
-        if (compteOpt.isEmpty()) {
-            throw new IllegalArgumentException("Compte introuvable");
-        }
-
-        Compte compte = compteOpt.get();
-        double nouveauSolde = compte.getSolde() + montant;
-        compteDAO.updateSolde(code, nouveauSolde);
+        return compteDAO.applyDelta(code, montant)
+                .orElseThrow(() -> new IllegalArgumentException("Compte introuvable"));
     }
 
-    public void debiter(String code, double montant) throws SQLException {
+    public MouvementSolde debiter(String code, long montant) throws SQLException {
         if (montant <= 0) {
             throw new IllegalArgumentException("Le montant à débiter doit être positif");
         }
 
+        Optional<MouvementSolde> mouvement = compteDAO.applyDelta(code, Montant.oppose(montant));
+        if (mouvement.isPresent()) {
+            return mouvement.get();
+        }
+
         Optional<Compte> compteOpt = compteDAO.findByCode(code);
         if (compteOpt.isEmpty()) {
             throw new IllegalArgumentException("Compte introuvable");
         }
-
-        Compte compte = compteOpt.get();
-        double nouveauSolde = compte.getSolde() - montant;
-
-        if (compte instanceof CompteCourant cc) {
-            if (nouveauSolde < -cc.getDecouvert()) {
-                throw new IllegalArgumentException("Opération refusée : dépassement du découvert autorisé");
-            }
-        } else if (nouveauSolde < 0) {
-            throw new IllegalArgumentException("Opération refusée : solde insuffisant");
+        if (compteOpt.get() instanceof CompteCourant) {
+            throw new IllegalArgumentException("Opération refusée : dépassement du découvert autorisé");
         }
-
-        compteDAO.updateSolde(code, nouveauSolde);
+        throw new IllegalArgumentException("Opération refusée : solde insuffisant");
     }
 
     private String genererCodeCompte() {
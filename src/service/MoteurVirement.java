@@ -0,0 +1,66 @@
+package service;
+
+import dao.MouvementSolde;
+import dao.TransactionDAO;
+import dao.TransactionManager;
+import entity.Transaction;
+import entity.TypeTransaction;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class MoteurVirement {
+    private final CompteService compteService;
+    private final TransactionDAO transactionDAO;
+    private final TransactionManager transactionManager;
+
+    public MoteurVirement() {
+        this(new TransactionManager());
+    }
+
+    public MoteurVirement(TransactionManager transactionManager) {
+        this.compteService = new CompteService();
+        this.transactionDAO = new TransactionDAO();
+        this.transactionManager = transactionManager;
+    }
+
+    // Retourne les deux jambes enregistrées, débit puis crédit.
+    public List<Transaction> executer(String codeSource, String codeDest, long montant) throws SQLException {
+        if (montant <= 0) {
+            throw new IllegalArgumentException("Le montant doit être positif");
+        }
+        if (codeSource.equals(codeDest)) {
+            throw new IllegalArgumentException("Les comptes source et destination doivent être différents");
+        }
+
+        return transactionManager.executer(() -> {
+            // Les lignes sont verrouillées dans l'ordre des codes : deux virements opposés
+            // attendent l'un sur l'autre au lieu de s'interbloquer.
+            boolean sourceEnPremier = codeSource.compareTo(codeDest) < 0;
+            MouvementSolde debit;
+            MouvementSolde credit;
+            if (sourceEnPremier) {
+                debit = compteService.debiter(codeSource, montant);
+                credit = compteService.crediter(codeDest, montant);
+            } else {
+                credit = compteService.crediter(codeDest, montant);
+                debit = compteService.debiter(codeSource, montant);
+            }
+
+            LocalDateTime maintenant = LocalDateTime.now();
+            List<Transaction> jambes = List.of(
+                    new Transaction(maintenant, montant, TypeTransaction.VIREMENT,
+                            "Virement vers " + codeDest, debit.idCompte()),
+                    new Transaction(maintenant, montant, TypeTransaction.VIREMENT,
+                            "Virement de " + codeSource, credit.idCompte())
+            );
+            transactionDAO.saveBatch(jambes);
+            return jambes;
+        });
+    }
+
+    public TransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+}
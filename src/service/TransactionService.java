@@ -1,118 +1,143 @@
 package service;
 
+import analytique.ColonnesTransactions;
+import dao.CommitGroupe;
 import dao.TransactionDAO;
-import dao.CompteDAO;
+import dao.MouvementSolde;
+import dao.Page;
+import dao.StatistiqueDAO;
+import dao.StatistiqueDAO.StatistiqueMois;
+import dao.StatistiqueDAO.StatistiqueType;
+import dao.UncheckedSQLException;
 import entity.Transaction;
 import entity.TypeTransaction;
+import fraude.PipelineFraude;
+import fraude.PipelineFraude.MetriqueRegle;
+import fraude.SurveillanceAsynchrone;
+import journal.Journal;
+import registre.Registre;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class TransactionService {
     private final TransactionDAO transactionDAO;
-    private final CompteDAO compteDAO;
+    private final StatistiqueDAO statistiqueDAO;
     private final CompteService compteService;
+    private final MoteurVirement moteurVirement;
+    private final SurveillanceAsynchrone surveillance;
+    private final Registre registre;
+    private final Journal journal;
+    private final CommitGroupe commitGroupe;
+    private final ColonnesTransactions colonnes;
 
     public TransactionService() {
+        this(SurveillanceAsynchrone.actif());
+    }
+
+    public TransactionService(SurveillanceAsynchrone surveillance) {
         this.transactionDAO = new TransactionDAO();
-        this.compteDAO = new CompteDAO();
+        this.statistiqueDAO = new StatistiqueDAO();
         this.compteService = new CompteService();
+        this.moteurVirement = new MoteurVirement();
+        this.registre = Registre.actif();
+        this.journal = Journal.actif();
+        this.commitGroupe = CommitGroupe.actif();
+        this.colonnes = ColonnesTransactions.actif();
+        this.surveillance = surveillance;
     }
 
-    public void effectuerVersement(String codeCompte, double montant, String lieu) throws SQLException {
+    public MouvementSolde effectuerVersement(String codeCompte, long montant, String lieu) throws SQLException {
         if (montant <= 0) {
             throw new IllegalArgumentException("Le montant doit être positif");
         }
 
-        var compteOpt = compteDAO.findByCode(codeCompte);
-        if (compteOpt.isEmpty()) {
-            throw new IllegalArgumentException("Compte introuvable");
+        String lieuEffectif = lieu != null ? lieu : Transaction.LIEU_PAR_DEFAUT;
+        if (registre != null) {
+            MouvementSolde mouvement = registre.verser(codeCompte, montant, lieuEffectif);
+            surveillance.soumettre(new Transaction(LocalDateTime.now(), montant, TypeTransaction.VERSEMENT,
+                    lieuEffectif, mouvement.idCompte()));
+            return mouvement;
         }
 
-        compteService.crediter(codeCompte, montant);
+        MouvementSolde mouvement = compteService.crediter(codeCompte, montant);
 
         Transaction transaction = new Transaction(
                 LocalDateTime.now(),
                 montant,
                 TypeTransaction.VERSEMENT,
-                lieu != null ? lieu : "Agence",
-                compteOpt.get().getIdClient()
+                lieuEffectif,
+                mouvement.idCompte()
         );
-        transactionDAO.save(transaction);
+        enregistrer(transaction);
+        return mouvement;
     }
 
-    public void effectuerRetrait(String codeCompte, double montant, String lieu) throws SQLException {
+    public MouvementSolde effectuerRetrait(String codeCompte, long montant, String lieu) throws SQLException {
         if (montant <= 0) {
             throw new IllegalArgumentException("Le montant doit être positif");
         }
 
-        var compteOpt = compteDAO.findByCode(codeCompte);
-        if (compteOpt.isEmpty()) {
-            throw new IllegalArgumentException("Compte introuvable");
+        String lieuEffectif = lieu != null ? lieu : Transaction.LIEU_PAR_DEFAUT;
+        if (registre != null) {
+            MouvementSolde mouvement = registre.retirer(codeCompte, montant, lieuEffectif);
+            surveillance.soumettre(new Transaction(LocalDateTime.now(), montant, TypeTransaction.RETRAIT,
+                    lieuEffectif, mouvement.idCompte()));
+            return mouvement;
         }
 
-        compteService.debiter(codeCompte, montant);
+        MouvementSolde mouvement = compteService.debiter(codeCompte, montant);
 
         Transaction transaction = new Transaction(
                 LocalDateTime.now(),
                 montant,
                 TypeTransaction.RETRAIT,
-                lieu != null ? lieu : "Agence",
-                compteOpt.get().getIdClient()
+                lieuEffectif,
+                mouvement.idCompte()
         );
-        transactionDAO.save(transaction);
+        enregistrer(transaction);
+        return mouvement;
     }
 
-    public void effectuerVirement(String codeCompteSource, String codeCompteDest, double montant) throws SQLException {
-        if (montant <= 0) {
-            throw new IllegalArgumentException("Le montant doit être positif");
-        }
-
-        var compteSourceOpt = compteDAO.findByCode(codeCompteSource);
-        var compteDestOpt = compteDAO.findByCode(codeCompteDest);
-
-        if (compteSourceOpt.isEmpty() || compteDestOpt.isEmpty()) {
-            throw new IllegalArgumentException("Un ou plusieurs comptes introuvables");
+    public void effectuerVirement(String codeCompteSource, String codeCompteDest, long montant) throws SQLException {
+        List<Transaction> jambes = registre != null
+                ? registre.virer(codeCompteSource, codeCompteDest, montant)
+                : moteurVirement.executer(codeCompteSource, codeCompteDest, montant);
+        for (Transaction jambe : jambes) {
+            surveillance.soumettre(jambe);
         }
-
-        compteService.debiter(codeCompteSource, montant);
-        compteService.crediter(codeCompteDest, montant);
-
-        Transaction transactionDebit = new Transaction(
-                LocalDateTime.now(),
-                montant,
-                TypeTransaction.VIREMENT,
-                "Virement vers " + codeCompteDest,
-                compteSourceOpt.get().getIdClient()
-        );
-        transactionDAO.save(transactionDebit);
-
-        Transaction transactionCredit = new Transaction(
-                LocalDateTime.now(),
-                montant,
-                TypeTransaction.VIREMENT,
-                "Virement de " + codeCompteSource,
-                compteDestOpt.get().getIdClient()
-        );
-        transactionDAO.save(transactionCredit);
     }
 
     public List<Transaction> listerTransactionsParCompte(int compteId) throws SQLException {
         return transactionDAO.findByCompteId(compteId);
     }
 
+    public Page<Transaction> listerTransactionsParCompte(int compteId, String curseur, int taille) throws SQLException {
+        return transactionDAO.findPageByCompteId(compteId, curseur, taille);
+    }
+
+    public List<Transaction> listerTransactionsRecentes(int compteId, LocalDateTime depuis) throws SQLException {
+        return transactionDAO.findByCompteIdSince(compteId, depuis);
+    }
+
     public List<Transaction> listerToutesLesTransactions() throws SQLException {
         return transactionDAO.findAll();
     }
 
+    public Page<Transaction> listerToutesLesTransactions(String curseur, int taille) throws SQLException {
+        return transactionDAO.findPage(curseur, taille);
+    }
+
     public List<Transaction> filtrerParType(TypeTransaction type) throws SQLException {
         return transactionDAO.findByType(type);
     }
 
-    public List<Transaction> filtrerParMontant(double montantMin) throws SQLException {
+    public List<Transaction> filtrerParMontant(long montantMin) throws SQLException {
         return transactionDAO.findByMontantGreaterThan(montantMin);
     }
 
@@ -125,82 +150,95 @@ public class TransactionService {
     }
 
     public Map<TypeTransaction, List<Transaction>> regrouperParType() throws SQLException {
-        return transactionDAO.findAll().stream()
-                .collect(Collectors.groupingBy(Transaction::type));
+        return parcourir(transactionDAO.streamAll(), this::regrouperParType);
     }
 
-    public Map<String, List<Transaction>> regrouperParMois() throws SQLException {
-        return transactionDAO.findAll().stream()
-                .collect(Collectors.groupingBy(t ->
-                        t.date().getYear() + "-" + String.format("%02d", t.date().getMonthValue())
-                ));
+    public Map<TypeTransaction, List<Transaction>> regrouperParType(Stream<Transaction> flux) {
+        return flux.collect(Collectors.groupingBy(Transaction::type,
+                () -> new EnumMap<>(TypeTransaction.class), Collectors.toList()));
     }
 
-    public double calculerMoyenneTransactions(int compteId) throws SQLException {
-        List<Transaction> transactions = transactionDAO.findByCompteId(compteId);
-        return transactions.stream()
-                .mapToDouble(Transaction::montant)
-                .average()
-                .orElse(0.0);
+    public Map<String, List<Transaction>> regrouperParMois() throws SQLException {
+        return parcourir(transactionDAO.streamAll(), this::regrouperParMois);
     }
 
-    public double calculerTotalTransactions(int compteId) throws SQLException {
-        return transactionDAO.findByCompteId(compteId).stream()
-                .mapToDouble(Transaction::montant)
-                .sum();
+    public Map<String, List<Transaction>> regrouperParMois(Stream<Transaction> flux) {
+        Map<YearMonth, List<Transaction>> parMois = flux.collect(Collectors.groupingBy(
+                t -> YearMonth.from(t.date()), TreeMap::new, Collectors.toList()));
+        Map<String, List<Transaction>> resultat = new LinkedHashMap<>();
+        parMois.forEach((mois, transactions) -> resultat.put(mois.toString(), transactions));
+        return resultat;
     }
 
-    public List<Transaction> detecterTransactionsSuspectes(double seuilMontant, String paysHabituel) throws SQLException {
-        List<Transaction> toutes = transactionDAO.findAll();
-        List<Transaction> suspectes = new ArrayList<>();
-
-        for (Transaction t : toutes) {
-            if (t.montant() > seuilMontant) {
-                suspectes.add(t);
-                continue;
-            }
-
-            if (paysHabituel != null && !t.lieu().contains(paysHabituel)) {
-                suspectes.add(t);
-                continue;
-            }
+    public Map<String, StatistiqueMois> calculerStatistiquesParMois() throws SQLException {
+        Map<String, StatistiqueMois> statistiques = new TreeMap<>();
+        List<StatistiqueMois> parMois = colonnes != null
+                ? colonnes.aJour().statistiquesParMois()
+                : statistiqueDAO.statistiquesParMois();
+        for (StatistiqueMois statistique : parMois) {
+            statistiques.put(statistique.cle(), statistique);
         }
+        return statistiques;
+    }
+
+    public long calculerMoyenneTransactions(int compteId) throws SQLException {
+        return statistiqueDAO.statistiquesCompte(compteId).moyenne();
+    }
 
-        suspectes.addAll(detecterFrequenceExcessive());
+    public long calculerTotalTransactions(int compteId) throws SQLException {
+        return statistiqueDAO.statistiquesCompte(compteId).total();
+    }
 
-        return suspectes.stream().distinct().collect(Collectors.toList());
+    public List<Transaction> detecterTransactionsSuspectes(long seuilMontant, String paysHabituel) throws SQLException {
+        return detecterTransactionsSuspectes(creerPipelineFraude(seuilMontant, paysHabituel));
     }
 
-    private List<Transaction> detecterFrequenceExcessive() throws SQLException {
-        List<Transaction> toutes = transactionDAO.findAll();
+    // Mois en base seulement, comme les regroupements : les mois archivés ne sont plus analysés.
+    public List<Transaction> detecterTransactionsSuspectes(PipelineFraude pipeline) throws SQLException {
         List<Transaction> suspectes = new ArrayList<>();
+        parcourir(transactionDAO.streamChronologique(), flux -> pipeline.analyser(flux, suspectes::add));
+        return suspectes;
+    }
 
-        Map<Integer, List<Transaction>> parCompte = toutes.stream()
-                .collect(Collectors.groupingBy(Transaction::idCompte));
+    public PipelineFraude creerPipelineFraude(long seuilMontant, String paysHabituel) {
+        return PipelineFraude.standard(seuilMontant, paysHabituel, PipelineFraude.FENETRE_FREQUENCE_SECONDES);
+    }
 
-        for (List<Transaction> transactions : parCompte.values()) {
-            transactions.sort(Comparator.comparing(Transaction::date));
+    public List<Transaction> getAlertesRecentes() {
+        return surveillance.alertesRecentes();
+    }
 
-            for (int i = 0; i < transactions.size() - 1; i++) {
-                Transaction t1 = transactions.get(i);
-                Transaction t2 = transactions.get(i + 1);
+    public List<MetriqueRegle> getMetriquesSurveillance() {
+        return surveillance.pipeline().metriques();
+    }
 
-                long secondes = ChronoUnit.SECONDS.between(t1.date(), t2.date());
-                if (secondes < 60) {
-                    suspectes.add(t1);
-                    suspectes.add(t2);
-                }
-            }
+    public Map<TypeTransaction, Long> calculerStatistiquesParType() throws SQLException {
+        Map<TypeTransaction, Long> statistiques = new EnumMap<>(TypeTransaction.class);
+        List<StatistiqueType> parType = colonnes != null
+                ? colonnes.aJour().statistiquesParType()
+                : statistiqueDAO.statistiquesParType();
+        for (StatistiqueType statistique : parType) {
+            statistiques.put(statistique.type(), statistique.total());
         }
+        return statistiques;
+    }
 
-        return suspectes;
+    // Avec le journal, la ligne est insérée plus tard par l'expéditeur : la transaction surveillée n'a pas encore d'ID.
+    private void enregistrer(Transaction transaction) throws SQLException {
+        if (journal != null) {
+            journal.ajouter(transaction);
+            surveillance.soumettre(transaction);
+            return;
+        }
+        int id = commitGroupe != null ? commitGroupe.enregistrer(transaction) : transactionDAO.save(transaction);
+        surveillance.soumettre(transaction.avecId(id));
     }
 
-    public Map<TypeTransaction, Double> calculerStatistiquesParType() throws SQLException {
-        return transactionDAO.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        Transaction::type,
-                        Collectors.summingDouble(Transaction::montant)
-                ));
+    private <R> R parcourir(Stream<Transaction> flux, Function<Stream<Transaction>, R> traitement) throws SQLException {
+        try (flux) {
+            return traitement.apply(flux);
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package session;
+
+import dao.Page;
+import dao.TransactionManager.Travail;
+import entity.Compte;
+import entity.Transaction;
+import service.ClientService;
+import service.CompteService;
+import service.TransactionService;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+public class Guichet {
+    private final MoteurSessions moteur;
+    private final ClientService clientService;
+    private final CompteService compteService;
+    private final TransactionService transactionService;
+    private final long echeanceNanos;
+
+    Guichet(MoteurSessions moteur, ClientService clientService, CompteService compteService,
+            TransactionService transactionService, long echeanceNanos) {
+        this.moteur = moteur;
+        this.clientService = clientService;
+        this.compteService = compteService;
+        this.transactionService = transactionService;
+        this.echeanceNanos = echeanceNanos;
+    }
+
+    public Optional<Compte> consulterCompte(String code) throws SQLException {
+        return executer("consulterCompte", () -> compteService.rechercherParCode(code));
+    }
+
+    public List<Transaction> listerTransactions(int idCompte) throws SQLException {
+        return executer("listerTransactions", () -> transactionService.listerTransactionsParCompte(idCompte));
+    }
+
+    public Page<Transaction> listerTransactions(int idCompte, String curseur, int taille) throws SQLException {
+        return executer("listerTransactions", () -> transactionService.listerTransactionsParCompte(idCompte, curseur, taille));
+    }
+
+    public String rapportClient(int idClient) throws SQLException {
+        return executer("rapportClient", () -> clientService.genererRapportClient(idClient));
+    }
+
+    public void verser(String code, long montant, String lieu) throws SQLException {
+        executer("verser", () -> {
+            transactionService.effectuerVersement(code, montant, lieu);
+            return null;
+        });
+    }
+
+    public void retirer(String code, long montant, String lieu) throws SQLException {
+        executer("retirer", () -> {
+            transactionService.effectuerRetrait(code, montant, lieu);
+            return null;
+        });
+    }
+
+    public void virer(String codeSource, String codeDest, long montant) throws SQLException {
+        executer("virer", () -> {
+            transactionService.effectuerVirement(codeSource, codeDest, montant);
+            return null;
+        });
+    }
+
+    public <T> T executer(String operation, Travail<T> travail) throws SQLException {
+        return moteur.accederBase(operation, echeanceNanos, travail);
+    }
+
+    public long tempsRestantMillis() {
+        return Math.max(0, (echeanceNanos - System.nanoTime()) / 1_000_000);
+    }
+}
@@ -0,0 +1,22 @@
+package session;
+
+import util.LatencyHistogram;
+
+import java.util.Map;
+
+public record MetriquesSessions(String executeur, long demarrees, long reussies, long echouees, long expirees,
+                                int enCours, double sessionsParSeconde, LatencyHistogram dureeSession,
+                                LatencyHistogram attenteAccesBase, Map<String, LatencyHistogram> operations) {
+
+    @Override
+    public String toString() {
+        StringBuilder texte = new StringBuilder(String.format(
+                "Sessions[%s, démarrées=%d, réussies=%d, échouées=%d, expirées=%d, en cours=%d, %.1f/s]%n",
+                executeur, demarrees, reussies, echouees, expirees, enCours, sessionsParSeconde));
+        texte.append("  durée : ").append(dureeSession.resume()).append('\n');
+        texte.append("  attente base : ").append(attenteAccesBase.resume());
+        operations.forEach((nom, latence) ->
+                texte.append('\n').append("  ").append(nom).append(" : ").append(latence.resume()));
+        return texte.toString();
+    }
+}
@@ -0,0 +1,156 @@
+package session;
+
+import dao.TransactionManager.Travail;
+import service.ClientService;
+import service.CompteService;
+import service.TransactionService;
+import util.Executeurs;
+import util.Executeurs.Executeur;
+import util.LatencyHistogram;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MoteurSessions implements AutoCloseable {
+    private final ExecutorService executeur;
+    private final String typeExecuteur;
+    private final ScheduledExecutorService minuteur;
+    private final Semaphore accesBase;
+    private final long timeoutSessionNanos;
+
+    private final ClientService clientService = new ClientService();
+    private final CompteService compteService = new CompteService();
+    private final TransactionService transactionService = new TransactionService();
+
+    private final LongAdder demarrees = new LongAdder();
+    private final LongAdder reussies = new LongAdder();
+    private final LongAdder echouees = new LongAdder();
+    private final LongAdder expirees = new LongAdder();
+    private final AtomicInteger enCours = new AtomicInteger();
+    private final LatencyHistogram dureeSession = new LatencyHistogram();
+    private final LatencyHistogram attenteAccesBase = new LatencyHistogram();
+    private final ConcurrentHashMap<String, LatencyHistogram> operations = new ConcurrentHashMap<>();
+    private final long debutNanos = System.nanoTime();
+
+    public MoteurSessions() {
+        this(Integer.getInteger("bank.sessions.accesBase", Integer.getInteger("bank.pool.taille", 10)),
+                Duration.ofMillis(Long.getLong("bank.sessions.timeoutMs", 30_000L)),
+                Integer.getInteger("bank.sessions.threadsPlateforme", 256));
+    }
+
+    public MoteurSessions(int accesBaseMax, Duration timeoutSession, int threadsPlateforme) {
+        if (accesBaseMax <= 0) {
+            throw new IllegalArgumentException("Le nombre d'accès simultanés à la base doit être positif");
+        }
+        this.accesBase = new Semaphore(accesBaseMax, true);
+        this.timeoutSessionNanos = timeoutSession.toNanos();
+
+        Executeur executeurSessions = Executeurs.unThreadParTache("session", threadsPlateforme);
+        this.executeur = executeurSessions.service();
+        this.typeExecuteur = executeurSessions.description();
+        this.minuteur = Executors.newSingleThreadScheduledExecutor(Executeurs.fabriqueThreads("session-minuteur"));
+    }
+
+    public <T> CompletableFuture<T> soumettre(Session<T> session) {
+        CompletableFuture<T> resultat = new CompletableFuture<>();
+        long debut = System.nanoTime();
+        long echeance = debut + timeoutSessionNanos;
+        demarrees.increment();
+
+        Future<?> tache = executeur.submit(() -> {
+            enCours.incrementAndGet();
+            try {
+                Guichet guichet = new Guichet(this, clientService, compteService, transactionService, echeance);
+                T valeur = session.executer(guichet);
+                if (resultat.complete(valeur)) {
+                    reussies.increment();
+                }
+            } catch (Throwable e) {
+                if (resultat.completeExceptionally(e)) {
+                    echouees.increment();
+                }
+            } finally {
+                enCours.decrementAndGet();
+                dureeSession.enregistrer(System.nanoTime() - debut);
+            }
+        });
+
+        ScheduledFuture<?> expiration = minuteur.schedule(() -> {
+            if (resultat.completeExceptionally(new TimeoutException("Session expirée"))) {
+                expirees.increment();
+                tache.cancel(true);
+            }
+        }, timeoutSessionNanos, TimeUnit.NANOSECONDS);
+        resultat.whenComplete((valeur, erreur) -> expiration.cancel(false));
+
+        return resultat;
+    }
+
+    public MetriquesSessions metriques() {
+        double secondes = (System.nanoTime() - debutNanos) / 1e9;
+        long terminees = reussies.sum() + echouees.sum() + expirees.sum();
+        return new MetriquesSessions(
+                typeExecuteur,
+                demarrees.sum(),
+                reussies.sum(),
+                echouees.sum(),
+                expirees.sum(),
+                enCours.get(),
+                secondes > 0 ? terminees / secondes : 0.0,
+                dureeSession,
+                attenteAccesBase,
+                Collections.unmodifiableMap(new TreeMap<>(operations))
+        );
+    }
+
+    public String getTypeExecuteur() {
+        return typeExecuteur;
+    }
+
+    @Override
+    public void close() {
+        executeur.shutdown();
+        try {
+            if (!executeur.awaitTermination(timeoutSessionNanos, TimeUnit.NANOSECONDS)) {
+                executeur.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executeur.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            minuteur.shutdownNow();
+        }
+    }
+
+    // Les sessions patientent ici plutôt que dans le pool : l'attente respecte
+    // l'échéance de chaque session au lieu du timeout global du pool.
+    <T> T accederBase(String operation, long echeanceNanos, Travail<T> travail) throws SQLException {
+        long debut = System.nanoTime();
+        long restant = echeanceNanos - debut;
+        try {
+            if (restant <= 0 || !accesBase.tryAcquire(restant, TimeUnit.NANOSECONDS)) {
+                throw new SQLTimeoutException("Session expirée avant l'accès à la base");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Session interrompue", e);
+        }
+
+        long acquis = System.nanoTime();
+        attenteAccesBase.enregistrer(acquis - debut);
+        try {
+            return travail.executer();
+        } finally {
+            accesBase.release();
+            operations.computeIfAbsent(operation, nom -> new LatencyHistogram())
+                    .enregistrer(System.nanoTime() - acquis);
+        }
+    }
+}
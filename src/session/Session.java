@@ -0,0 +1,6 @@
+package session;
+
+@FunctionalInterface
+public interface Session<T> {
+    T executer(Guichet guichet) throws Exception;
+}
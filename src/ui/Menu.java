@@ -1,15 +1,26 @@
 package ui;
 
+import dao.Page;
+import entity.Transaction;
 import entity.TypeTransaction;
 import service.ClientService;
 import service.CompteService;
 import service.RapportService;
 import service.TransactionService;
+import util.Montant;
 
 import java.sql.SQLException;
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 public class Menu {
+    private static final int TAILLE_PAGE = 20;
+
+    @FunctionalInterface
+    private interface ChargeurPage<T> {
+        Page<T> charger(String curseur) throws SQLException;
+    }
+
     private final Scanner scanner;
     private final ClientService clientService;
     private final CompteService compteService;
@@ -153,21 +164,16 @@ public class Menu {
             System.out.println("❌ Aucun client trouvé.");
         } else {
             System.out.println("✅ " + clients.size() + " client(s) trouvé(s):");
-            clients.forEach(c -> System.out.println("   • " + c.nom() + " - " + c.email()));
+            clients.forEach(c -> System.out.println("   • [" + c.id() + "] " + c.nom() + " - " + c.email()));
         }
     }
 
     private void listerClients() throws SQLException {
         System.out.println("\n📋 LISTE DE TOUS LES CLIENTS");
         System.out.println("────────────────────────────────────────");
-        var clients = clientService.listerTousLesClients();
-
-        if (clients.isEmpty()) {
-            System.out.println("Aucun client enregistré.");
-        } else {
-            System.out.println("Total: " + clients.size() + " client(s)\n");
-            clients.forEach(c -> System.out.println("   • " + c.nom() + " - " + c.email()));
-        }
+        afficherPages(curseur -> clientService.listerClients(curseur, TAILLE_PAGE),
+                c -> System.out.println("   • [" + c.id() + "] " + c.nom() + " - " + c.email()),
+                "Aucun client enregistré.");
     }
 
     private void afficherRapportClient() throws SQLException {
@@ -214,8 +220,8 @@ public class Menu {
         System.out.println("\n➕ CRÉER UN COMPTE COURANT");
         System.out.println("────────────────────────────────────────");
         int idClient = lireEntier("ID du client: ");
-        double soldeInitial = lireDouble("Solde initial: ");
-        double decouvert = lireDouble("Découvert autorisé: ");
+        long soldeInitial = lireMontant("Solde initial: ");
+        long decouvert = lireMontant("Découvert autorisé: ");
 
         compteService.creerCompteCourant(idClient, soldeInitial, decouvert);
         System.out.println("✅ Compte courant créé avec succès!");
@@ -225,7 +231,7 @@ public class Menu {
         System.out.println("\n➕ CRÉER UN COMPTE ÉPARGNE");
         System.out.println("────────────────────────────────────────");
         int idClient = lireEntier("ID du client: ");
-        double soldeInitial = lireDouble("Solde initial: ");
+        long soldeInitial = lireMontant("Solde initial: ");
         double tauxInteret = lireDouble("Taux d'intérêt (%): ");
 
         compteService.creerCompteEpargne(idClient, soldeInitial, tauxInteret);
@@ -240,8 +246,9 @@ public class Menu {
         var compte = compteService.rechercherParCode(code);
         if (compte.isPresent()) {
             System.out.println("✅ Compte trouvé:");
+            System.out.println("   ID: " + compte.get().getId());
             System.out.println("   Code: " + compte.get().getCode());
-            System.out.println("   Solde: " + String.format("%.2f", compte.get().getSolde()) + " MAD");
+            System.out.println("   Solde: " + Montant.texte(compte.get().getSolde()) + " MAD");
             System.out.println("   Type: " + compte.get().getClass().getSimpleName());
         } else {
             System.out.println("❌ Compte introuvable.");
@@ -259,8 +266,8 @@ public class Menu {
         } else {
             System.out.println("✅ " + comptes.size() + " compte(s) trouvé(s):\n");
             comptes.forEach(c -> System.out.println(
-                    String.format("   • %s | Solde: %.2f MAD | Type: %s",
-                            c.getCode(), c.getSolde(), c.getClass().getSimpleName())
+                    String.format("   • [%d] %s | Solde: %.2f MAD | Type: %s",
+                            c.getId(), c.getCode(), Montant.versDecimal(c.getSolde()), c.getClass().getSimpleName())
             ));
         }
     }
@@ -268,17 +275,10 @@ public class Menu {
     private void listerTousLesComptes() throws SQLException {
         System.out.println("\n📋 TOUS LES COMPTES");
         System.out.println("────────────────────────────────────────");
-        var comptes = compteService.listerTousLesComptes();
-
-        if (comptes.isEmpty()) {
-            System.out.println("Aucun compte enregistré.");
-        } else {
-            System.out.println("Total: " + comptes.size() + " compte(s)\n");
-            comptes.forEach(c -> System.out.println(
-                    String.format("   • %s | Solde: %.2f MAD | Type: %s",
-                            c.getCode(), c.getSolde(), c.getClass().getSimpleName())
-            ));
-        }
+        afficherPages(curseur -> compteService.listerComptes(curseur, TAILLE_PAGE),
+                c -> System.out.println(String.format("   • [%d] %s | Solde: %.2f MAD | Type: %s",
+                        c.getId(), c.getCode(), Montant.versDecimal(c.getSolde()), c.getClass().getSimpleName())),
+                "Aucun compte enregistré.");
     }
 
     private void afficherCompteSoldeMax() throws SQLException {
@@ -286,7 +286,7 @@ public class Menu {
         if (compte.isPresent()) {
             System.out.println("\n💎 COMPTE AVEC LE SOLDE MAXIMUM:");
             System.out.println("   Code: " + compte.get().getCode());
-            System.out.println("   Solde: " + String.format("%.2f", compte.get().getSolde()) + " MAD");
+            System.out.println("   Solde: " + Montant.texte(compte.get().getSolde()) + " MAD");
         } else {
             System.out.println("❌ Aucun compte trouvé.");
         }
@@ -297,7 +297,7 @@ public class Menu {
         if (compte.isPresent()) {
             System.out.println("\n📉 COMPTE AVEC LE SOLDE MINIMUM:");
             System.out.println("   Code: " + compte.get().getCode());
-            System.out.println("   Solde: " + String.format("%.2f", compte.get().getSolde()) + " MAD");
+            System.out.println("   Solde: " + Montant.texte(compte.get().getSolde()) + " MAD");
         } else {
             System.out.println("❌ Aucun compte trouvé.");
         }
@@ -352,10 +352,10 @@ public class Menu {
         System.out.println("\n💵 EFFECTUER UN VERSEMENT");
         System.out.println("────────────────────────────────────────");
         String code = lireChaine("Code du compte: ");
-        double montant = lireDouble("Montant: ");
+        long montant = lireMontant("Montant: ");
         String lieu = lireChaine("Lieu (Agence par défaut): ");
 
-        if (lieu.trim().isEmpty()) lieu = "Agence";
+        if (lieu.trim().isEmpty()) lieu = Transaction.LIEU_PAR_DEFAUT;
 
         transactionService.effectuerVersement(code, montant, lieu);
         System.out.println("✅ Versement effectué avec succès!");
@@ -365,10 +365,10 @@ public class Menu {
         System.out.println("\n💸 EFFECTUER UN RETRAIT");
         System.out.println("────────────────────────────────────────");
         String code = lireChaine("Code du compte: ");
-        double montant = lireDouble("Montant: ");
+        long montant = lireMontant("Montant: ");
         String lieu = lireChaine("Lieu (Agence par défaut): ");
 
-        if (lieu.trim().isEmpty()) lieu = "Agence";
+        if (lieu.trim().isEmpty()) lieu = Transaction.LIEU_PAR_DEFAUT;
 
         transactionService.effectuerRetrait(code, montant, lieu);
         System.out.println("✅ Retrait effectué avec succès!");
@@ -379,7 +379,7 @@ public class Menu {
         System.out.println("────────────────────────────────────────");
         String codeSource = lireChaine("Code du compte source: ");
         String codeDest = lireChaine("Code du compte destination: ");
-        double montant = lireDouble("Montant: ");
+        long montant = lireMontant("Montant: ");
 
         transactionService.effectuerVirement(codeSource, codeDest, montant);
         System.out.println("✅ Virement effectué avec succès!");
@@ -390,35 +390,19 @@ public class Menu {
         System.out.println("────────────────────────────────────────");
         int compteId = lireEntier("ID du compte: ");
 
-        var transactions = transactionService.listerTransactionsParCompte(compteId);
-        if (transactions.isEmpty()) {
-            System.out.println("❌ Aucune transaction trouvée.");
-        } else {
-            System.out.println("✅ " + transactions.size() + " transaction(s):\n");
-            transactions.forEach(t -> System.out.println(
-                    String.format("   • %s | %.2f MAD | %s | %s",
-                            t.date().toString(), t.montant(), t.type(), t.lieu())
-            ));
-        }
+        afficherPages(curseur -> transactionService.listerTransactionsParCompte(compteId, curseur, TAILLE_PAGE),
+                t -> System.out.println(String.format("   • %s | %.2f MAD | %s | %s",
+                        t.date().toString(), Montant.versDecimal(t.montant()), t.type(), t.lieu())),
+                "❌ Aucune transaction trouvée.");
     }
 
     private void listerToutesTransactions() throws SQLException {
         System.out.println("\n📜 TOUTES LES TRANSACTIONS");
         System.out.println("────────────────────────────────────────");
-        var transactions = transactionService.listerToutesLesTransactions();
-
-        if (transactions.isEmpty()) {
-            System.out.println("Aucune transaction enregistrée.");
-        } else {
-            System.out.println("Total: " + transactions.size() + " transaction(s)\n");
-            transactions.stream().limit(20).forEach(t -> System.out.println(
-                    String.format("   • %s | %.2f MAD | %s | %s",
-                            t.date().toString(), t.montant(), t.type(), t.lieu())
-            ));
-            if (transactions.size() > 20) {
-                System.out.println("\n   ... (" + (transactions.size() - 20) + " autres)");
-            }
-        }
+        afficherPages(curseur -> transactionService.listerToutesLesTransactions(curseur, TAILLE_PAGE),
+                t -> System.out.println(String.format("   • %s | %.2f MAD | %s | %s",
+                        t.date().toString(), Montant.versDecimal(t.montant()), t.type(), t.lieu())),
+                "Aucune transaction enregistrée.");
     }
 
     private void filtrerParType() throws SQLException {
@@ -448,7 +432,7 @@ public class Menu {
     private void filtrerParMontant() throws SQLException {
         System.out.println("\n🔍 FILTRER PAR MONTANT MINIMUM");
         System.out.println("────────────────────────────────────────");
-        double montant = lireDouble("Montant minimum: ");
+        long montant = lireMontant("Montant minimum: ");
 
         var transactions = transactionService.filtrerParMontant(montant);
         if (transactions.isEmpty()) {
@@ -457,7 +441,7 @@ public class Menu {
             System.out.println("✅ " + transactions.size() + " transaction(s) trouvée(s):\n");
             transactions.forEach(t -> System.out.println(
                     String.format("   • %s | %.2f MAD | %s",
-                            t.date().toString(), t.montant(), t.type())
+                            t.date().toString(), Montant.versDecimal(t.montant()), t.type())
             ));
         }
     }
@@ -468,7 +452,7 @@ public class Menu {
         var stats = transactionService.calculerStatistiquesParType();
 
         stats.forEach((type, total) ->
-                System.out.println(String.format("   %s: %.2f MAD", type, total))
+                System.out.println(String.format("   %s: %.2f MAD", type, Montant.versDecimal(total)))
         );
     }
 
@@ -481,6 +465,7 @@ public class Menu {
         System.out.println("  3. Détecter les transactions suspectes");
         System.out.println("  4. Identifier les comptes inactifs");
         System.out.println("  5. Rapport complet du système");
+        System.out.println("  6. Reconstruire les résumés");
         System.out.println("  0. Retour");
         System.out.println("──────────────────────────────────────────────────────");
 
@@ -492,6 +477,7 @@ public class Menu {
             case 3 -> detecterTransactionsSuspectes();
             case 4 -> identifierComptesInactifs();
             case 5 -> afficherRapportComplet();
+            case 6 -> reconstruireResumes();
             case 0 -> {}
             default -> System.out.println("❌ Choix invalide.");
         }
@@ -511,7 +497,7 @@ public class Menu {
     }
 
     private void detecterTransactionsSuspectes() throws SQLException {
-        double seuil = lireDouble("Seuil de montant (ex: 10000): ");
+        long seuil = lireMontant("Seuil de montant (ex: 10000): ");
 
         String rapport = rapportService.detecterTransactionsSuspectes(seuil);
         System.out.println(rapport);
@@ -529,6 +515,12 @@ public class Menu {
         System.out.println(rapport);
     }
 
+    private void reconstruireResumes() throws SQLException {
+        System.out.println("\n🔄 Reconstruction des résumés en cours...");
+        rapportService.reconstruireResumes();
+        System.out.println("✅ Résumés reconstruits avec succès!");
+    }
+
     private void menuAlertes() throws SQLException {
         System.out.println("\n╔══════════════════════════════════════════════════════╗");
         System.out.println("║          ALERTES ET SURVEILLANCE                     ║");
@@ -543,7 +535,7 @@ public class Menu {
 
         switch (choix) {
             case 1 -> {
-                double seuil = lireDouble("Seuil d'alerte: ");
+                long seuil = lireMontant("Seuil d'alerte: ");
                 String rapport = rapportService.genererAlertesSoldesBas(seuil);
                 System.out.println(rapport);
             }
@@ -554,6 +546,23 @@ public class Menu {
         }
     }
 
+    private <T> void afficherPages(ChargeurPage<T> chargeur, Consumer<T> affichage, String messageVide)
+            throws SQLException {
+        String curseur = null;
+        int numero = 1;
+        do {
+            Page<T> page = chargeur.charger(curseur);
+            if (numero == 1 && page.elements().isEmpty()) {
+                System.out.println(messageVide);
+                return;
+            }
+            System.out.println("\n   — Page " + numero + " —");
+            page.elements().forEach(affichage);
+            curseur = page.curseurSuivant();
+            numero++;
+        } while (curseur != null && lireChaine("\nPage suivante ? (o/n): ").trim().equalsIgnoreCase("o"));
+    }
+
     private int lireEntier(String message) {
         System.out.print(message);
         while (!scanner.hasNextInt()) {
@@ -576,6 +585,17 @@ public class Menu {
         return valeur;
     }
 
+    private long lireMontant(String message) {
+        System.out.print(message);
+        while (true) {
+            try {
+                return Montant.parser(scanner.nextLine());
+            } catch (IllegalArgumentException e) {
+                System.out.print("❌ Veuillez entrer un montant valide (2 décimales au plus): ");
+            }
+        }
+    }
+
     private String lireChaine(String message) {
         System.out.print(message);
         return scanner.nextLine();
@@ -0,0 +1,34 @@
+package util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class Executeurs {
+    private Executeurs() {
+    }
+
+    public record Executeur(ExecutorService service, String description) {}
+
+    // Threads virtuels si le JDK les fournit (21+), sinon un pool borné de threads plateforme.
+    public static Executeur unThreadParTache(String prefixe, int threadsPlateforme) {
+        try {
+            Method fabrique = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new Executeur((ExecutorService) fabrique.invoke(null), "threads virtuels");
+        } catch (ReflectiveOperationException e) {
+            return new Executeur(Executors.newFixedThreadPool(threadsPlateforme, fabriqueThreads(prefixe)),
+                    threadsPlateforme + " threads plateforme");
+        }
+    }
+
+    public static ThreadFactory fabriqueThreads(String prefixe) {
+        AtomicInteger compteur = new AtomicInteger();
+        return tache -> {
+            Thread thread = new Thread(tache, prefixe + "-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
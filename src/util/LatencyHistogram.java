@@ -0,0 +1,102 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+    private static final int SOUS_SEAUX = 8;
+    private static final int BITS_SOUS_SEAUX = 3;
+    private static final int NOMBRE_SEAUX = 64 * SOUS_SEAUX;
+
+    private final AtomicLongArray seaux = new AtomicLongArray(NOMBRE_SEAUX);
+    private final LongAdder nombre = new LongAdder();
+    private final LongAdder somme = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void enregistrer(long nanos) {
+        long valeur = Math.max(0, nanos);
+        seaux.incrementAndGet(indexDe(valeur));
+        nombre.increment();
+        somme.add(valeur);
+        max.accumulate(valeur);
+    }
+
+    public long nombre() {
+        return nombre.sum();
+    }
+
+    public double moyenneNanos() {
+        long n = nombre.sum();
+        return n == 0 ? 0.0 : (double) somme.sum() / n;
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    public long percentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Le percentile doit être entre 0 et 100");
+        }
+
+        long total = 0;
+        long[] copie = new long[NOMBRE_SEAUX];
+        for (int i = 0; i < NOMBRE_SEAUX; i++) {
+            copie[i] = seaux.get(i);
+            total += copie[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rang = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long cumul = 0;
+        for (int i = 0; i < NOMBRE_SEAUX; i++) {
+            cumul += copie[i];
+            if (cumul >= rang) {
+                return Math.min(borneSuperieure(i), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    public void reinitialiser() {
+        for (int i = 0; i < NOMBRE_SEAUX; i++) {
+            seaux.set(i, 0);
+        }
+        nombre.reset();
+        somme.reset();
+        max.reset();
+    }
+
+    public String resume() {
+        return String.format("n=%d moy=%.1fµs p50=%.1fµs p99=%.1fµs p999=%.1fµs max=%.1fµs",
+                nombre(),
+                moyenneNanos() / 1_000.0,
+                percentileNanos(50) / 1_000.0,
+                percentileNanos(99) / 1_000.0,
+                percentileNanos(99.9) / 1_000.0,
+                maxNanos() / 1_000.0);
+    }
+
+    // Seaux log-linéaires : 8 sous-seaux par puissance de deux, soit une erreur relative < 12,5 %.
+    private static int indexDe(long valeur) {
+        if (valeur < SOUS_SEAUX) {
+            return (int) valeur;
+        }
+        int exposant = 63 - Long.numberOfLeadingZeros(valeur);
+        int sousSeau = (int) ((valeur >>> (exposant - BITS_SOUS_SEAUX)) & (SOUS_SEAUX - 1));
+        return (exposant - BITS_SOUS_SEAUX + 1) * SOUS_SEAUX + sousSeau;
+    }
+
+    private static long borneSuperieure(int index) {
+        if (index < SOUS_SEAUX) {
+            return index;
+        }
+        int exposant = index / SOUS_SEAUX + BITS_SOUS_SEAUX - 1;
+        int sousSeau = index % SOUS_SEAUX;
+        long largeur = 1L << (exposant - BITS_SOUS_SEAUX);
+        return ((SOUS_SEAUX + sousSeau) * largeur) + largeur - 1;
+    }
+}
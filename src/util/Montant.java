@@ -0,0 +1,127 @@
+package util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Montants en centimes sur un long : arithmétique exacte, sans allocation, avec détection des débordements.
+// BigDecimal n'apparaît qu'à la frontière JDBC (colonnes NUMERIC) et pour l'affichage.
+public final class Montant {
+    public static final int ECHELLE = 2;
+    public static final long CENTIMES_PAR_UNITE = 100;
+    // Plus grande valeur absolue des colonnes NUMERIC(15, 2) (solde, montant), en centimes.
+    public static final long MAXIMUM_COLONNE = 999_999_999_999_999L;
+
+    private Montant() {
+    }
+
+    public static long unites(long unites) {
+        return Math.multiplyExact(unites, CENTIMES_PAR_UNITE);
+    }
+
+    public static long additionner(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long soustraire(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long oppose(long montant) {
+        return Math.negateExact(montant);
+    }
+
+    public static boolean tientEnColonne(long centimes) {
+        return centimes >= -MAXIMUM_COLONNE && centimes <= MAXIMUM_COLONNE;
+    }
+
+    public static long moyenne(long total, long nombre) {
+        if (nombre == 0) {
+            return 0;
+        }
+        long quotient = total / nombre;
+        long reste = total % nombre;
+        if (Math.abs(reste) * 2 >= Math.abs(nombre)) {
+            quotient += Long.signum(total) * Long.signum(nombre);
+        }
+        return quotient;
+    }
+
+    // NULL en base vaut 0, comme ResultSet.getDouble ; les sous-centimes sont arrondis au centime pair.
+    public static long depuisDecimal(BigDecimal valeur) {
+        if (valeur == null) {
+            return 0;
+        }
+        try {
+            return valeur.setScale(ECHELLE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Montant hors limites : " + valeur.toPlainString());
+        }
+    }
+
+    public static BigDecimal versDecimal(long centimes) {
+        return BigDecimal.valueOf(centimes, ECHELLE);
+    }
+
+    public static long parser(String texte) {
+        if (texte == null) {
+            throw new IllegalArgumentException("Montant manquant");
+        }
+        String valeur = texte.trim();
+        int longueur = valeur.length();
+        int i = 0;
+        boolean negatif = false;
+        if (i < longueur && (valeur.charAt(i) == '-' || valeur.charAt(i) == '+')) {
+            negatif = valeur.charAt(i) == '-';
+            i++;
+        }
+
+        long centimes = 0;
+        int chiffres = 0;
+        int decimales = -1;
+        try {
+            for (; i < longueur; i++) {
+                char c = valeur.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    if (decimales == ECHELLE) {
+                        throw new IllegalArgumentException("Montant invalide (plus de " + ECHELLE + " décimales) : " + texte);
+                    }
+                    centimes = Math.addExact(Math.multiplyExact(centimes, 10), c - '0');
+                    chiffres++;
+                    if (decimales >= 0) {
+                        decimales++;
+                    }
+                } else if ((c == '.' || c == ',') && decimales < 0) {
+                    decimales = 0;
+                } else {
+                    throw new IllegalArgumentException("Montant invalide : " + texte);
+                }
+            }
+            if (chiffres == 0) {
+                throw new IllegalArgumentException("Montant invalide : " + texte);
+            }
+            for (int d = Math.max(decimales, 0); d < ECHELLE; d++) {
+                centimes = Math.multiplyExact(centimes, 10);
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Montant hors limites : " + texte);
+        }
+        return negatif ? -centimes : centimes;
+    }
+
+    public static StringBuilder ecrire(StringBuilder sortie, long centimes) {
+        if (centimes < 0) {
+            sortie.append('-');
+        }
+        long unites = Math.abs(centimes / CENTIMES_PAR_UNITE);
+        int reste = (int) Math.abs(centimes % CENTIMES_PAR_UNITE);
+        sortie.append(unites).append('.');
+        if (reste < 10) {
+            sortie.append('0');
+        }
+        return sortie.append(reste);
+    }
+
+    public static String texte(long centimes) {
+        return ecrire(new StringBuilder(24), centimes).toString();
+    }
+}
@@ -0,0 +1,104 @@
+package dao;
+
+import dao.ArchiveTransactions.MoisArchive;
+import entity.Client;
+import entity.CompteCourant;
+import entity.Transaction;
+import entity.TypeTransaction;
+import util.Montant;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static util.Verifications.*;
+
+public class ArchiveTransactionsTest {
+    // Mois antérieur à toutes les données : sa partition est créée puis archivée par le test.
+    private static final YearMonth MOIS = YearMonth.of(1999, 1);
+
+    public static void main(String[] args) throws Exception {
+        new SchemaManager().initialiser();
+
+        cas("un mois archivé se relit à l'identique", ArchiveTransactionsTest::allerRetour);
+
+        terminer();
+    }
+
+    private static void allerRetour() throws Exception {
+        int idClient = new ClientDAO().save(new Client("Test Archive", "archive@bank.ma"));
+        String code = "TA" + System.nanoTime() % 1_000_000_000_000L;
+        int id = new CompteDAO().saveCompteCourant(new CompteCourant(code, Montant.unites(1_000), idClient, 0));
+        String lieu = "Archive " + code;
+        Path repertoire = Files.createTempDirectory("archive-test");
+        TransactionDAO transactionDAO = new TransactionDAO();
+        ArchiveTransactions archives = new ArchiveTransactions(repertoire);
+
+        executer("CREATE TABLE " + SchemaManager.nomPartition(MOIS) + " PARTITION OF transaction " +
+                "FOR VALUES FROM ('" + MOIS.atDay(1) + "') TO ('" + MOIS.plusMonths(1).atDay(1) + "')");
+        try {
+            List<Transaction> ecrites = List.of(
+                    new Transaction(MOIS.atDay(3).atTime(9, 30), Montant.unites(120), TypeTransaction.VERSEMENT, lieu, id),
+                    new Transaction(MOIS.atDay(17).atTime(14, 5), Montant.unites(45), TypeTransaction.RETRAIT, "Agence", id),
+                    new Transaction(MOIS.atDay(28).atTime(18, 0), Montant.unites(300), TypeTransaction.VIREMENT, null, id));
+            int[] ids = transactionDAO.saveBatchWithIds(ecrites);
+
+            MoisArchive archive = archives.archiverMois(MOIS);
+            egal(3L, archive.nombre(), "lignes archivées");
+            egal(Montant.unites(465), archive.volume(), "volume archivé");
+            verifier(Files.isRegularFile(archive.fichier()), "fichier d'archive absent");
+            verifier(!new SchemaManager().partitionsTransactions().contains(MOIS), "partition toujours attachée");
+
+            // Lecture en base seulement par défaut ; les archives sur demande, dans l'ordre de la base.
+            egal(0, transactionDAO.findByCompteId(id).size(), "transactions en base");
+            List<Transaction> relues = transactionDAO.findByCompteId(id, true);
+            egal(3, relues.size(), "transactions relues");
+            for (int i = 0; i < ecrites.size(); i++) {
+                egal(ecrites.get(i).avecId(ids[i]), relues.get(ecrites.size() - 1 - i), "transaction relue " + i);
+            }
+            Map<Integer, Transaction> parId = transactionDAO.findByIds(Arrays.stream(ids).boxed().toList());
+            egal(3, parId.size(), "transactions relues par id");
+
+            // Élagage par le catalogue : lieu et montant maximal du mois.
+            verifier(archives.moisDuLieu(lieu).stream().anyMatch(mois -> mois.mois().equals(MOIS)), "lieu absent du catalogue");
+            verifier(archives.moisDuLieu(lieu + " inconnu").stream().noneMatch(mois -> mois.mois().equals(MOIS)),
+                    "mois retenu pour un lieu absent");
+            verifier(archives.moisAuDessusDe(Montant.unites(300)).stream().noneMatch(mois -> mois.mois().equals(MOIS)),
+                    "mois retenu au-dessus de son montant maximal");
+            egal(1, transactionDAO.findByLieu(lieu).size(), "transactions du lieu");
+        } finally {
+            nettoyer(repertoire);
+        }
+    }
+
+    // Retire le mois de test du catalogue et des agrégats ; les résumés, qui comptaient ses lignes,
+    // sont reconstruits.
+    private static void nettoyer(Path repertoire) throws Exception {
+        String mois = "'" + MOIS.atDay(1) + "'";
+        executer("DROP TABLE IF EXISTS " + SchemaManager.nomPartition(MOIS));
+        executer("DELETE FROM transaction_archive WHERE mois = " + mois);
+        executer("DELETE FROM transaction_archive_compte WHERE mois = " + mois);
+        executer("DELETE FROM transaction_archive_lieu WHERE mois = " + mois);
+        executer("DELETE FROM transaction_archive_jour WHERE jour >= " + mois + " AND jour < " + mois + "::DATE + INTERVAL '1 month'");
+        new ResumeDAO().reconstruire();
+        try (var fichiers = Files.list(repertoire)) {
+            for (Path fichier : fichiers.toList()) {
+                Files.delete(fichier);
+            }
+        }
+        Files.delete(repertoire);
+    }
+
+    private static void executer(String sql) throws Exception {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
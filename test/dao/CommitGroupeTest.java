@@ -0,0 +1,61 @@
+package dao;
+
+import entity.Client;
+import entity.CompteCourant;
+import entity.Transaction;
+import entity.TypeTransaction;
+import util.Montant;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static util.Verifications.*;
+
+public class CommitGroupeTest {
+
+    public static void main(String[] args) throws Exception {
+        new SchemaManager().initialiser();
+
+        cas("une ligne refusée n'échoue pas le reste du lot", CommitGroupeTest::isoleLigneRefusee);
+
+        terminer();
+    }
+
+    private static void isoleLigneRefusee() throws Exception {
+        int idClient = new ClientDAO().save(new Client("Test Commit Groupe", "commitgroupe@bank.ma"));
+        String code = "TC" + System.nanoTime() % 1_000_000_000_000L;
+        int id = new CompteDAO().saveCompteCourant(new CompteCourant(code, Montant.unites(1_000), idClient, 0));
+
+        // Fenêtre large : les trois demandes partent dans le même lot.
+        CommitGroupe commitGroupe = new CommitGroupe(1 << 10, 16, 200_000);
+        try {
+            CompletableFuture<Integer> premiere = commitGroupe.soumettre(versement(id, Montant.unites(1)));
+            CompletableFuture<Integer> refusee = commitGroupe.soumettre(versement(id, Montant.MAXIMUM_COLONNE + 1));
+            CompletableFuture<Integer> derniere = commitGroupe.soumettre(versement(id, Montant.unites(2)));
+
+            verifier(premiere.join() > 0, "identifiant de la première ligne");
+            verifier(derniere.join() > 0, "identifiant de la dernière ligne");
+            try {
+                refusee.join();
+                throw new AssertionError("la ligne hors colonne a été acceptée");
+            } catch (CompletionException e) {
+                verifier(e.getCause() instanceof SQLException, "cause de l'échec : " + e.getCause());
+            }
+
+            // Les compteurs avancent après la libération des appelants : relus une fois le consommateur arrêté.
+            commitGroupe.fermer();
+            CommitGroupe.MetriquesCommitGroupe metriques = commitGroupe.metriques();
+            egal(1L, metriques.echecs(), "lignes en échec");
+            egal(2L, metriques.lignes(), "lignes validées");
+            egal(2, new TransactionDAO().findByCompteId(id).size(), "transactions enregistrées");
+        } finally {
+            commitGroupe.fermer();
+        }
+    }
+
+    private static Transaction versement(int idCompte, long montant) {
+        return new Transaction(LocalDateTime.now(), montant, TypeTransaction.VERSEMENT, "Test", idCompte);
+    }
+}
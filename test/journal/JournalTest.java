@@ -0,0 +1,110 @@
+package journal;
+
+import dao.ClientDAO;
+import dao.CompteDAO;
+import dao.JournalDAO;
+import dao.SchemaManager;
+import dao.TransactionDAO;
+import entity.Client;
+import entity.CompteCourant;
+import entity.Transaction;
+import entity.TypeTransaction;
+import util.Montant;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import static util.Verifications.*;
+
+public class JournalTest {
+    private static final int ENREGISTREMENTS_PAR_SEGMENT = 64;
+
+    private static final CompteDAO compteDAO = new CompteDAO();
+    private static final TransactionDAO transactionDAO = new TransactionDAO();
+    private static final JournalDAO journalDAO = new JournalDAO();
+    private static int idClient;
+
+    public static void main(String[] args) throws Exception {
+        new SchemaManager().initialiser();
+        idClient = new ClientDAO().save(new Client("Test Journal", "journal@bank.ma"));
+
+        cas("la reprise s'arrête au premier enregistrement déchiré", JournalTest::repriseApresDechirure);
+        cas("un enregistrement refusé par la base est mis en quarantaine", JournalTest::quarantaineEnregistrementRefuse);
+
+        terminer();
+    }
+
+    // Arrêt brutal simulé : trois enregistrements durables jamais expédiés, le deuxième déchiré.
+    // Seul le premier est rejoué ; le troisième, intact mais jamais acquitté, est effacé.
+    private static void repriseApresDechirure() throws Exception {
+        int id = creerCompte();
+        Path repertoire = Files.createTempDirectory("journal-test");
+        long expediee = journalDAO.findSequenceExpediee();
+        Path fichier;
+        try (Segment segment = Segment.creer(repertoire, expediee + 1, ENREGISTREMENTS_PAR_SEGMENT)) {
+            segment.ecrire(expediee + 1, versement(id, Montant.unites(1)));
+            segment.ecrire(expediee + 2, versement(id, Montant.unites(2)));
+            segment.ecrire(expediee + 3, versement(id, Montant.unites(3)));
+            segment.forcer();
+            fichier = segment.fichier();
+        }
+        dechirer(fichier, 1);
+
+        Journal journal = Journal.ouvrir(repertoire, ENREGISTREMENTS_PAR_SEGMENT);
+        try {
+            verifier(journal.attendreExpedition(30_000), "le journal n'a pas été expédié");
+            egal(expediee + 1, journal.metriques().sequenceExpediee(), "séquence expédiée après la reprise");
+            egal(1, transactionDAO.findByCompteId(id).size(), "transactions rejouées");
+
+            // L'écriture reprend juste après le dernier enregistrement valide.
+            egal(expediee + 2, journal.ajouter(versement(id, Montant.unites(4))), "séquence du premier ajout");
+            verifier(journal.attendreExpedition(30_000), "le journal n'a pas été expédié");
+            egal(2, transactionDAO.findByCompteId(id).size(), "transactions après l'ajout");
+        } finally {
+            journal.fermer();
+        }
+    }
+
+    private static void quarantaineEnregistrementRefuse() throws Exception {
+        int id = creerCompte();
+        Journal journal = Journal.ouvrir(Files.createTempDirectory("journal-test"), ENREGISTREMENTS_PAR_SEGMENT);
+        try {
+            journal.ajouter(versement(id, Montant.unites(1)));
+            journal.ajouter(versement(id, Montant.MAXIMUM_COLONNE + 1));
+            journal.ajouter(versement(id, Montant.unites(2)));
+            verifier(journal.attendreExpedition(30_000), "le journal n'a pas été expédié");
+
+            Journal.MetriquesJournal metriques = journal.metriques();
+            egal(null, metriques.defaillance(), "défaillance");
+            egal(1L, metriques.quarantaines(), "enregistrements en quarantaine");
+            egal(2, transactionDAO.findByCompteId(id).size(), "transactions expédiées");
+        } finally {
+            journal.fermer();
+        }
+    }
+
+    // Altère un octet du corps de l'enregistrement : son CRC ne correspond plus.
+    private static void dechirer(Path fichier, int emplacement) throws Exception {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = (long) emplacement * Segment.TAILLE_ENREGISTREMENT + 20;
+            ByteBuffer octet = ByteBuffer.allocate(1);
+            canal.read(octet, position);
+            octet.put(0, (byte) ~octet.get(0)).rewind();
+            canal.write(octet, position);
+            canal.force(true);
+        }
+    }
+
+    private static Transaction versement(int idCompte, long montant) {
+        return new Transaction(LocalDateTime.now(), montant, TypeTransaction.VERSEMENT, "Test", idCompte);
+    }
+
+    private static int creerCompte() throws Exception {
+        String code = "TJ" + System.nanoTime() % 1_000_000_000_000L;
+        return compteDAO.saveCompteCourant(new CompteCourant(code, Montant.unites(1_000), idClient, 0));
+    }
+}
@@ -0,0 +1,114 @@
+package registre;
+
+import dao.ClientDAO;
+import dao.CompteDAO;
+import dao.QuarantaineDAO;
+import dao.RegistreDAO;
+import dao.SchemaManager;
+import entity.Client;
+import entity.CompteCourant;
+import entity.Transaction;
+import entity.TypeTransaction;
+import registre.Persisteur.Ecriture;
+import registre.Persisteur.Mouvement;
+import util.Montant;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static util.Verifications.*;
+
+public class PersisteurTest {
+    private static final long SOLDE_INITIAL = Montant.unites(1_000);
+    // Hors des NUMERIC(15, 2) de compte.solde et transaction.montant : refus définitif (22003).
+    private static final long HORS_COLONNE = Montant.MAXIMUM_COLONNE + 1;
+
+    private static final CompteDAO compteDAO = new CompteDAO();
+    private static final QuarantaineDAO quarantaineDAO = new QuarantaineDAO();
+    private static int idClient;
+
+    public static void main(String[] args) throws Exception {
+        new SchemaManager().initialiser();
+        idClient = new ClientDAO().save(new Client("Test Persisteur", "persisteur@bank.ma"));
+
+        cas("une écriture refusée est isolée, le reste du lot passe", PersisteurTest::isoleEcritureRefusee);
+        cas("les deux jambes d'un virement sont refusées ensemble", PersisteurTest::refuseVirementEntier);
+        cas("un lot déjà validé n'est pas rejoué", PersisteurTest::ignoreLotDejaValide);
+
+        terminer();
+    }
+
+    private static void isoleEcritureRefusee() throws Exception {
+        int id = creerCompte();
+        long quarantainesAvant = quarantaineDAO.count(Persisteur.ORIGINE_QUARANTAINE);
+        Persisteur persisteur = new Persisteur(1_000, 64);
+        try {
+            persisteur.publier(depot(id, Montant.unites(10)));
+            persisteur.publier(depot(id, HORS_COLONNE));
+            persisteur.publier(depot(id, Montant.unites(5)));
+            verifier(persisteur.attendre(30_000), "le persisteur n'a pas vidé sa file");
+
+            egal(1L, persisteur.quarantaines(), "écritures en quarantaine");
+            egal(quarantainesAvant + 1, quarantaineDAO.count(Persisteur.ORIGINE_QUARANTAINE), "lignes de quarantaine");
+            egal(SOLDE_INITIAL + Montant.unites(15), solde(id), "solde après le lot");
+        } finally {
+            persisteur.arreter(5_000);
+        }
+    }
+
+    private static void refuseVirementEntier() throws Exception {
+        int source = creerCompte();
+        int dest = creerCompte();
+        long quarantainesAvant = quarantaineDAO.count(Persisteur.ORIGINE_QUARANTAINE);
+        Persisteur persisteur = new Persisteur(1_000, 64);
+        try {
+            // Débit valide, crédit hors colonne : aucune des deux jambes ne doit être appliquée.
+            Transaction debit = new Transaction(LocalDateTime.now(), Montant.unites(1), TypeTransaction.VIREMENT, "Test", source);
+            Transaction credit = new Transaction(LocalDateTime.now(), HORS_COLONNE, TypeTransaction.VIREMENT, "Test", dest);
+            persisteur.publier(new Ecriture(List.of(
+                    new Mouvement(source, -Montant.unites(1), debit),
+                    new Mouvement(dest, Montant.unites(1), credit))));
+            verifier(persisteur.attendre(30_000), "le persisteur n'a pas vidé sa file");
+
+            egal(1L, persisteur.quarantaines(), "écritures en quarantaine");
+            egal(quarantainesAvant + 2, quarantaineDAO.count(Persisteur.ORIGINE_QUARANTAINE), "jambes en quarantaine");
+            egal(SOLDE_INITIAL, solde(source), "solde source");
+            egal(SOLDE_INITIAL, solde(dest), "solde destination");
+        } finally {
+            persisteur.arreter(5_000);
+        }
+    }
+
+    // Simule un commit validé dont le client n'a pas eu la réponse : le numéro suivant est déjà en base.
+    private static void ignoreLotDejaValide() throws Exception {
+        int id = creerCompte();
+        Persisteur persisteur = new Persisteur(1_000, 64);
+        try {
+            RegistreDAO registreDAO = new RegistreDAO();
+            registreDAO.updateDernierLot(registreDAO.findDernierLot() + 1);
+            persisteur.publier(depot(id, Montant.unites(7)));
+            verifier(persisteur.attendre(30_000), "le persisteur n'a pas vidé sa file");
+            egal(SOLDE_INITIAL, solde(id), "solde après un lot déjà validé");
+
+            persisteur.publier(depot(id, Montant.unites(3)));
+            verifier(persisteur.attendre(30_000), "le persisteur n'a pas vidé sa file");
+            egal(SOLDE_INITIAL + Montant.unites(3), solde(id), "solde après le lot suivant");
+        } finally {
+            persisteur.arreter(5_000);
+        }
+    }
+
+    private static Ecriture depot(int idCompte, long montant) {
+        return new Ecriture(idCompte, montant,
+                new Transaction(LocalDateTime.now(), montant, TypeTransaction.VERSEMENT, "Test", idCompte));
+    }
+
+    private static int creerCompte() throws Exception {
+        String code = "TP" + System.nanoTime() % 1_000_000_000_000L;
+        return compteDAO.saveCompteCourant(new CompteCourant(code, SOLDE_INITIAL, idClient, 0));
+    }
+
+    private static long solde(int id) throws Exception {
+        return compteDAO.findByIds(List.of(id)).get(id).getSolde();
+    }
+}
@@ -0,0 +1,44 @@
+package util;
+
+// Vérifications des tests d'intégration, sans bibliothèque de test : chaque classe de test a son
+// main, exécute ses cas et sort en code 1 au premier cas en échec. Les tests s'exécutent contre la
+// base de DatabaseConnection, schéma initialisé (Main ou SchemaManager.initialiser()).
+public final class Verifications {
+    private static int echecs;
+
+    @FunctionalInterface
+    public interface Cas {
+        void executer() throws Exception;
+    }
+
+    private Verifications() {
+    }
+
+    public static void cas(String nom, Cas cas) {
+        try {
+            cas.executer();
+            System.out.println("✅ " + nom);
+        } catch (Exception | AssertionError e) {
+            echecs++;
+            System.out.println("❌ " + nom + " : " + e);
+            e.printStackTrace();
+        }
+    }
+
+    public static void verifier(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void egal(Object attendu, Object obtenu, String message) {
+        if (!java.util.Objects.equals(attendu, obtenu)) {
+            throw new AssertionError(message + " : attendu " + attendu + ", obtenu " + obtenu);
+        }
+    }
+
+    public static void terminer() {
+        System.out.println(echecs == 0 ? "Tous les cas passent" : echecs + " cas en échec");
+        System.exit(echecs == 0 ? 0 : 1);
+    }
+}